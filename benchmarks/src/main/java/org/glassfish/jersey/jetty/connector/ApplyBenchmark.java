@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through the connector {@code apply} methods to the in-process {@link BenchmarkServer}.
+ * <p/>
+ * The Jersey requests are built once and replayed on the connector, so that the client filters, interceptors and
+ * message body readers are not measured. Response entities are drained as raw bytes. Run with {@code -prof gc}
+ * to report the allocations per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ApplyBenchmark {
+
+    /**
+     * Size of the request and response entities in bytes.
+     */
+    @Param({"16", "16384"})
+    public int size;
+
+    private BenchmarkServer server;
+    private JettyConnector connector;
+    private Client client;
+    private ClientRequest getRequest;
+    private ClientRequest postRequest;
+
+    @Setup
+    public void setUp() {
+        server = BenchmarkServer.start();
+        final ClientConfig config = new ClientConfig();
+        connector = new JettyConnector(config);
+        config.connector(connector);
+        client = ClientBuilder.newClient(config);
+        final WebTarget target = client.target(server.getBaseUri()).path(BenchmarkServer.PATH);
+        getRequest = BenchmarkServer.capture(target.path("bytes").path(String.valueOf(size)), HttpMethod.GET, null);
+        final byte[] entity = new byte[size];
+        Arrays.fill(entity, (byte) 'e');
+        postRequest = BenchmarkServer.capture(target.path("echo"), HttpMethod.POST,
+                Entity.entity(entity, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        connector.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public long syncGet() throws IOException {
+        return drain(connector.apply(new ClientRequest(getRequest)));
+    }
+
+    @Benchmark
+    public long syncPost() throws IOException {
+        return drain(connector.apply(new ClientRequest(postRequest)));
+    }
+
+    @Benchmark
+    public long asyncGet() throws Exception {
+        return drain(applyAsync(new ClientRequest(getRequest)));
+    }
+
+    @Benchmark
+    public long asyncPost() throws Exception {
+        return drain(applyAsync(new ClientRequest(postRequest)));
+    }
+
+    private ClientResponse applyAsync(final ClientRequest request) throws Exception {
+        final SettableFuture<ClientResponse> response = SettableFuture.create();
+        connector.apply(request, new AsyncConnectorCallback() {
+            @Override
+            public void response(final ClientResponse clientResponse) {
+                response.set(clientResponse);
+            }
+
+            @Override
+            public void failure(final Throwable failure) {
+                response.setException(failure);
+            }
+        });
+        return response.get();
+    }
+
+    /**
+     * Read a response entity to its end.
+     *
+     * @param response response.
+     * @return number of bytes read, to be consumed by the benchmark.
+     * @throws IOException if the entity cannot be read.
+     */
+    static long drain(final ClientResponse response) throws IOException {
+        final InputStream entity = response.getEntityStream();
+        final byte[] buffer = new byte[8192];
+        long count = 0;
+        try {
+            for (int read; (read = entity.read(buffer)) != -1; ) {
+                count += read;
+            }
+        } finally {
+            entity.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.SslConfigurator;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.jetty.JettyHttpContainerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process Jetty server serving the benchmarked requests, started like the servers of the connector tests.
+ * <p/>
+ * The port is taken from the {@code benchmark.port} system property, {@code 9998} by default, and the port of the
+ * TLS server from the {@code benchmark.tlsPort} system property, {@code 9443} by default. The TLS server uses the
+ * self-signed {@code localhost} certificate of the {@link #KEYSTORE} trusted by the {@link #TRUSTSTORE}.
+ */
+final class BenchmarkServer {
+
+    /**
+     * Path of the benchmark resource.
+     */
+    static final String PATH = "bench";
+
+    /**
+     * Class path resource of the key store of the TLS server.
+     */
+    static final String KEYSTORE = "/keystore_benchmark";
+
+    /**
+     * Class path resource of the trust store of the TLS clients.
+     */
+    static final String TRUSTSTORE = "/truststore_benchmark";
+
+    /**
+     * Password of the key and trust stores.
+     */
+    static final String STORE_PASSWORD = "benchmark";
+
+    private final Server server;
+    private final URI baseUri;
+
+    private BenchmarkServer(final Server server, final URI baseUri) {
+        this.server = server;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Start a server.
+     *
+     * @return started server.
+     */
+    static BenchmarkServer start() {
+        final URI baseUri = UriBuilder.fromUri("http://localhost/")
+                .port(Integer.getInteger("benchmark.port", 9998)).build();
+        return new BenchmarkServer(JettyHttpContainerFactory.createServer(baseUri, createApplication()), baseUri);
+    }
+
+    /**
+     * Start a TLS server.
+     *
+     * @return started server.
+     */
+    static BenchmarkServer startSecure() {
+        final URI baseUri = UriBuilder.fromUri("https://localhost/")
+                .port(Integer.getInteger("benchmark.tlsPort", 9443)).build();
+        final SslContextFactory sslContextFactory = new SslContextFactory();
+        sslContextFactory.setKeyStorePath(BenchmarkServer.class.getResource(KEYSTORE).toExternalForm());
+        sslContextFactory.setKeyStorePassword(STORE_PASSWORD);
+        return new BenchmarkServer(
+                JettyHttpContainerFactory.createServer(baseUri, sslContextFactory, createApplication()), baseUri);
+    }
+
+    /**
+     * Get the client SSL configuration trusting the certificate of the {@link #startSecure() TLS server}.
+     *
+     * @return client SSL configuration.
+     */
+    static SslConfigurator clientSslConfig() {
+        return SslConfigurator.newInstance()
+                .trustStoreBytes(readResource(TRUSTSTORE))
+                .trustStorePassword(STORE_PASSWORD);
+    }
+
+    private static byte[] readResource(final String name) {
+        final InputStream in = BenchmarkServer.class.getResourceAsStream(name);
+        try {
+            try {
+                final byte[] buffer = new byte[8192];
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (int read; (read = in.read(buffer)) != -1; ) {
+                    bytes.write(buffer, 0, read);
+                }
+                return bytes.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResourceConfig createApplication() {
+        return new ResourceConfig(BenchmarkResource.class).register(JacksonFeature.class);
+    }
+
+    /**
+     * Get the base URI of the server.
+     *
+     * @return base URI.
+     */
+    URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Set the maximum number of server threads, e.g. to serve many concurrent delayed requests.
+     *
+     * @param maxThreads maximum number of threads.
+     */
+    void setMaxThreads(final int maxThreads) {
+        ((QueuedThreadPool) server.getThreadPool()).setMaxThreads(maxThreads);
+    }
+
+    /**
+     * Stop the server.
+     *
+     * @throws Exception if the server fails to stop.
+     */
+    void stop() throws Exception {
+        server.stop();
+    }
+
+    /**
+     * Build the Jersey request of an invocation without sending it, to be replayed on the connector
+     * through copies.
+     *
+     * @param target request target, its client must use a {@link JettyConnector}.
+     * @param method request method.
+     * @param entity request entity, may be {@code null}.
+     * @return captured request, with its message body workers.
+     */
+    static ClientRequest capture(final WebTarget target, final String method, final Entity<?> entity) {
+        final AtomicReference<ClientRequest> captured = new AtomicReference<ClientRequest>();
+        // registered on a derived target, the given one is left untouched
+        target.path("").register(new ClientRequestFilter() {
+            @Override
+            public void filter(final ClientRequestContext requestContext) throws IOException {
+                captured.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request().method(method, entity).close();
+        return captured.get();
+    }
+
+    /**
+     * Benchmark resource.
+     */
+    @Path(PATH)
+    public static class BenchmarkResource {
+
+        /**
+         * Get a small text response.
+         *
+         * @return response text.
+         */
+        @GET
+        public String get() {
+            return "benchmark";
+        }
+
+        /**
+         * Get a response entity of the given size.
+         *
+         * @param size entity size in bytes.
+         * @return response entity.
+         */
+        @GET
+        @Path("bytes/{size}")
+        public byte[] bytes(@PathParam("size") final int size) {
+            if (size < 0) {
+                throw new ClientErrorException(Response.Status.BAD_REQUEST);
+            }
+            final byte[] bytes = new byte[size];
+            Arrays.fill(bytes, (byte) 'b');
+            return bytes;
+        }
+
+        /**
+         * Stream a response entity of the given size following the {@link PatternInputStream} pattern.
+         *
+         * @param size entity size in bytes.
+         * @return response entity.
+         */
+        @GET
+        @Path("stream/{size}")
+        public StreamingOutput stream(@PathParam("size") final long size) {
+            if (size < 0) {
+                throw new ClientErrorException(Response.Status.BAD_REQUEST);
+            }
+            return new StreamingOutput() {
+                @Override
+                public void write(final OutputStream output) throws IOException {
+                    final InputStream in = new PatternInputStream(size);
+                    final byte[] buffer = new byte[64 * 1024];
+                    for (int read; (read = in.read(buffer)) != -1; ) {
+                        output.write(buffer, 0, read);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Consume an entity following the {@link PatternInputStream} pattern.
+         *
+         * @param entity uploaded entity.
+         * @return number of bytes received if they all follow the pattern, otherwise the position of the first one
+         *         that does not.
+         * @throws IOException if the entity cannot be read.
+         */
+        @POST
+        @Path("stream")
+        public String verify(final InputStream entity) throws IOException {
+            return String.valueOf(PatternInputStream.verify(entity));
+        }
+
+        /**
+         * Answer a JSON remote procedure call, summing its parameters.
+         *
+         * @param call procedure call.
+         * @return call result.
+         */
+        @POST
+        @Path("rpc")
+        @Consumes(MediaType.APPLICATION_JSON)
+        @Produces(MediaType.APPLICATION_JSON)
+        public Rpc rpc(final Rpc call) {
+            final Rpc result = new Rpc();
+            result.id = call.id;
+            result.method = call.method;
+            if (call.params != null) {
+                for (int param : call.params) {
+                    result.result += param;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Consume an uploaded entity, inflating it if {@code gzip} encoded.
+         *
+         * @param encoding value of the {@code Content-Encoding} request header, may be {@code null}.
+         * @param entity   uploaded entity.
+         * @return number of bytes received, after inflating them.
+         * @throws IOException if the entity cannot be read.
+         */
+        @POST
+        @Path("upload")
+        public String upload(@HeaderParam("Content-Encoding") final String encoding, final InputStream entity)
+                throws IOException {
+            final InputStream in = "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(entity) : entity;
+            final byte[] buffer = new byte[8192];
+            long count = 0;
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                count += read;
+            }
+            return String.valueOf(count);
+        }
+
+        /**
+         * Get a small text response after a delay, e.g. the latency of a remote service. The delay holds a server
+         * thread, see {@link BenchmarkServer#setMaxThreads(int)}.
+         *
+         * @param millis delay in milliseconds.
+         * @return response text.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        @GET
+        @Path("delay/{millis}")
+        public String delay(@PathParam("millis") final long millis) throws InterruptedException {
+            Thread.sleep(millis);
+            return "benchmark";
+        }
+
+        /**
+         * Echo the request entity.
+         *
+         * @param entity request entity.
+         * @return the request entity.
+         */
+        @POST
+        @Path("echo")
+        public byte[] echo(final byte[] entity) {
+            return entity;
+        }
+    }
+
+    /**
+     * JSON remote procedure call and result.
+     */
+    public static class Rpc {
+        public int id;
+        public String method;
+        public List<Integer> params;
+        public long result;
+    }
+}
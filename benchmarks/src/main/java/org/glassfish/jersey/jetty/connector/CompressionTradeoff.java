@@ -0,0 +1,227 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the request entity compression against the network bytes it saves.
+ * <p/>
+ * For each payload kind, entity size and compression level it uploads entities to the in-process
+ * {@link BenchmarkServer}, which inflates and counts them, and prints the round trips per second, the bytes sent to the
+ * network and the compression CPU time per request, as reported by {@link JettyConnector#getCompressionStatistics()},
+ * and the CPU time per KB saved. The break-even column is the link speed below which the transfer time saved exceeds
+ * the compression CPU time: compression pays off on slower links. The {@code off} level uploads the entities
+ * uncompressed, as a baseline. Options:
+ * <pre>
+ * --payloads json,text,random   payload kinds: repetitive JSON records, natural-language-like text, random bytes
+ * --sizes 4k,64k,1m             entity sizes in bytes, with an optional k or m suffix
+ * --levels off,1,6,9            compression levels
+ * --seconds 5                   measured seconds of each configuration, after a warm-up of half as long
+ * </pre>
+ * E.g. {@code java -cp target/benchmarks.jar org.glassfish.jersey.jetty.connector.CompressionTradeoff --sizes 64k}.
+ */
+public final class CompressionTradeoff {
+
+    private static final String ROW = "%-7s %6s %5s %9s %9s %11s %7s %11s %11s %12s%n";
+    private static final String[] WORDS = {"the", "connector", "request", "response", "entity", "client", "server",
+            "compression", "network", "bytes", "of", "and", "to", "is", "a", "with", "for", "latency", "cost", "saved"};
+
+    private CompressionTradeoff() {
+    }
+
+    /**
+     * Run the uploads.
+     *
+     * @param args command line options.
+     * @throws Exception if the server cannot be started.
+     */
+    public static void main(final String[] args) throws Exception {
+        List<String> payloads = Arrays.asList("json", "text", "random");
+        List<String> sizes = Arrays.asList("4k", "64k", "1m");
+        List<String> levels = Arrays.asList("off", "1", "6", "9");
+        int seconds = 5;
+        for (int i = 0; i < args.length; i++) {
+            if ("--payloads".equals(args[i])) {
+                payloads = Arrays.asList(args[++i].split(","));
+            } else if ("--sizes".equals(args[i])) {
+                sizes = Arrays.asList(args[++i].split(","));
+            } else if ("--levels".equals(args[i])) {
+                levels = Arrays.asList(args[++i].split(","));
+            } else if ("--seconds".equals(args[i])) {
+                seconds = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+            }
+        }
+
+        final BenchmarkServer server = BenchmarkServer.start();
+        try {
+            System.out.printf(Locale.ROOT, ROW, "payload", "size", "level", "req/s", "ms/req", "wire B/req",
+                    "ratio", "CPU us/req", "CPU us/KB", "break-even");
+            for (String payload : payloads) {
+                for (String size : sizes) {
+                    final byte[] entity = createPayload(payload.trim(), parseSize(size));
+                    for (String level : levels) {
+                        measure(server, payload.trim(), entity, level.trim(), seconds);
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static int parseSize(final String size) {
+        final String value = size.trim().toLowerCase(Locale.ROOT);
+        final char unit = value.charAt(value.length() - 1);
+        final int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : 0;
+        return Integer.parseInt(shift > 0 ? value.substring(0, value.length() - 1) : value) << shift;
+    }
+
+    private static byte[] createPayload(final String kind, final int size) {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[size];
+        if ("random".equals(kind)) {
+            random.nextBytes(bytes);
+            return bytes;
+        }
+        final StringBuilder text = new StringBuilder(size + 256);
+        if ("json".equals(kind)) {
+            text.append('[');
+            for (int id = 0; text.length() < size; id++) {
+                text.append("{\"id\":").append(id).append(",\"name\":\"customer-").append(random.nextInt(100000))
+                        .append("\",\"active\":").append(random.nextBoolean())
+                        .append(",\"balance\":").append(random.nextInt(1000000) / 100.0)
+                        .append(",\"tags\":[\"").append(WORDS[random.nextInt(WORDS.length)]).append("\"]},");
+            }
+        } else if ("text".equals(kind)) {
+            while (text.length() < size) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown payload " + kind + ".");
+        }
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+
+    private static void measure(final BenchmarkServer server,
+                                final String payload,
+                                final byte[] entity,
+                                final String level,
+                                final int seconds) {
+        final ClientConfig config = new ClientConfig();
+        final boolean compressed = !"off".equals(level);
+        if (compressed) {
+            config.property(JettyClientProperties.REQUEST_COMPRESSION_THRESHOLD, 0);
+            config.property(JettyClientProperties.REQUEST_COMPRESSION_LEVEL, Integer.parseInt(level));
+        }
+        final JettyConnector connector = new JettyConnector(config);
+        config.connector(connector);
+        final Client client = ClientBuilder.newClient(config);
+        try {
+            final WebTarget target = client.target(server.getBaseUri()).path(BenchmarkServer.PATH).path("upload");
+            upload(target, entity, TimeUnit.SECONDS.toNanos(seconds) / 2);
+            final CompressionStatistics before = connector.getCompressionStatistics();
+            final long start = System.nanoTime();
+            final long requests = upload(target, entity, TimeUnit.SECONDS.toNanos(seconds));
+            final double elapsed = (System.nanoTime() - start) / 1e9;
+            final CompressionStatistics after = connector.getCompressionStatistics();
+
+            String wire = String.valueOf(entity.length);
+            String ratio = "1.000";
+            String cpu = "-";
+            String cpuPerKb = "-";
+            String breakEven = "-";
+            if (compressed) {
+                final long entityBytes = after.getEntityBytes() - before.getEntityBytes();
+                final long wireBytes = after.getCompressedBytes() - before.getCompressedBytes();
+                final long cpuNanos = after.getCompressionTime(TimeUnit.NANOSECONDS)
+                        - before.getCompressionTime(TimeUnit.NANOSECONDS);
+                final long saved = entityBytes - wireBytes;
+                wire = String.valueOf(wireBytes / requests);
+                ratio = String.format(Locale.ROOT, "%.3f", (double) wireBytes / entityBytes);
+                cpu = String.format(Locale.ROOT, "%.1f", cpuNanos / 1e3 / requests);
+                if (saved > 0) {
+                    cpuPerKb = String.format(Locale.ROOT, "%.2f", cpuNanos / 1e3 / (saved / 1024.0));
+                    // bits saved per microsecond of compression, i.e. Mbit/s
+                    breakEven = String.format(Locale.ROOT, "%.0f Mbit/s", saved * 8 / (cpuNanos / 1e3));
+                } else {
+                    cpuPerKb = "no saving";
+                    breakEven = "never";
+                }
+            }
+            System.out.printf(Locale.ROOT, ROW, payload, entity.length, level,
+                    String.format(Locale.ROOT, "%.0f", requests / elapsed),
+                    String.format(Locale.ROOT, "%.3f", elapsed * 1e3 / requests), wire, ratio, cpu, cpuPerKb, breakEven);
+        } finally {
+            client.close();
+            connector.close();
+        }
+    }
+
+    private static long upload(final WebTarget target, final byte[] entity, final long nanos) {
+        final Entity<byte[]> upload = Entity.entity(entity, MediaType.APPLICATION_OCTET_STREAM_TYPE);
+        final long end = System.nanoTime() + nanos;
+        long requests = 0;
+        do {
+            final long received = Long.parseLong(target.request().post(upload, String.class));
+            if (received != entity.length) {
+                throw new IllegalStateException("Entity corrupted or truncated, " + received + " bytes received.");
+            }
+            requests++;
+        } while (System.nanoTime() < end);
+        return requests;
+    }
+}
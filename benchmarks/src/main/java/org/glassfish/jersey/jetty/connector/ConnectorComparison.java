@@ -0,0 +1,81 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the {@link ConnectorComparisonBenchmark} and writes its results as JSON to
+ * {@code target/connector-comparison-<version>.json}, so that the results of successive connector versions can be
+ * compared. The version is taken from the {@code benchmark.version} system property, and defaults to the version of
+ * the connector on the class path.
+ * <p/>
+ * Any JMH command line options are accepted and applied first, e.g. {@code -p connector=jetty,apache}.
+ */
+public final class ConnectorComparison {
+
+    private ConnectorComparison() {
+    }
+
+    /**
+     * Run the comparison.
+     *
+     * @param args JMH command line options.
+     * @throws Exception if the benchmarks fail.
+     */
+    public static void main(final String[] args) throws Exception {
+        String version = System.getProperty("benchmark.version",
+                JettyConnector.class.getPackage().getImplementationVersion());
+        if (version == null) {
+            version = "unknown";
+        }
+        final String result = "target/connector-comparison-" + version + ".json";
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ConnectorComparisonBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build()).run();
+        System.out.println("Results written to " + result);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.glassfish.jersey.SslConfigurator;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnector;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identical workloads sent through the Jetty connector, Jersey's default {@code HttpURLConnection} based connector
+ * and the Apache connector, against the same in-process {@link BenchmarkServer}s. Use {@link ConnectorComparison}
+ * to run the suite and write its results as JSON.
+ * <p/>
+ * Each connector is configured with {@value #CONNECTIONS} connections per destination where it supports it.
+ * The large entities are {@value #LARGE} bytes, as the synchronous responses of the Jetty connector are buffered
+ * up to 2 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConnectorComparisonBenchmark {
+
+    /**
+     * Connections per destination, and threads of the fan-out workload.
+     */
+    static final int CONNECTIONS = 64;
+
+    /**
+     * Size of the large downloads and uploads in bytes.
+     */
+    static final int LARGE = 1024 * 1024;
+
+    /**
+     * Connector: {@code jetty}, {@code httpurl} or {@code apache}.
+     */
+    @Param({"jetty", "httpurl", "apache"})
+    public String connector;
+
+    private BenchmarkServer server;
+    private BenchmarkServer secureServer;
+    private Client client;
+    private Client secureClient;
+    private WebTarget target;
+    private WebTarget secureTarget;
+    private byte[] largeEntity;
+    private int calls;
+
+    @Setup
+    public void setUp() {
+        // keep-alive connections of HttpURLConnection, 5 by default
+        System.setProperty("http.maxConnections", String.valueOf(CONNECTIONS));
+        server = BenchmarkServer.start();
+        secureServer = BenchmarkServer.startSecure();
+        client = createClient(connector, null);
+        secureClient = createClient(connector, BenchmarkServer.clientSslConfig());
+        target = client.target(server.getBaseUri()).path(BenchmarkServer.PATH);
+        secureTarget = secureClient.target(secureServer.getBaseUri()).path(BenchmarkServer.PATH);
+        largeEntity = new byte[LARGE];
+        Arrays.fill(largeEntity, (byte) 'u');
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        secureClient.close();
+        server.stop();
+        secureServer.stop();
+    }
+
+    private static Client createClient(final String connector, final SslConfigurator sslConfig) {
+        final ClientConfig config = new ClientConfig().register(JacksonFeature.class);
+        final SSLContext sslContext = sslConfig != null ? sslConfig.createSSLContext() : null;
+        if ("jetty".equals(connector)) {
+            config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, CONNECTIONS);
+            if (sslConfig != null) {
+                config.property(JettyClientProperties.SSL_CONFIG, sslConfig);
+            }
+            config.connector(new JettyConnector(config));
+        } else if ("apache".equals(connector)) {
+            final SchemeRegistry schemes = new SchemeRegistry();
+            schemes.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+            if (sslContext != null) {
+                schemes.register(new Scheme("https", 443, new SSLSocketFactory(sslContext)));
+            }
+            final PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(schemes);
+            connectionManager.setMaxTotal(CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(CONNECTIONS);
+            config.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+            config.connector(new ApacheConnector(config));
+        } else if (!"httpurl".equals(connector)) {
+            throw new IllegalArgumentException("Unknown connector " + connector + ".");
+        }
+        final ClientBuilder builder = ClientBuilder.newBuilder().withConfig(config);
+        if (sslContext != null) {
+            // used by the HttpURLConnection connector
+            builder.sslContext(sslContext);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Small JSON remote procedure call.
+     *
+     * @return call result.
+     */
+    @Benchmark
+    public BenchmarkServer.Rpc jsonRpc() {
+        final BenchmarkServer.Rpc call = new BenchmarkServer.Rpc();
+        call.id = calls++;
+        call.method = "sum";
+        call.params = Arrays.asList(1, 2, 3, 4);
+        return target.path("rpc").request(MediaType.APPLICATION_JSON_TYPE)
+                .post(Entity.json(call), BenchmarkServer.Rpc.class);
+    }
+
+    /**
+     * Large response entity, read as a stream.
+     *
+     * @return number of bytes read.
+     * @throws IOException if the entity cannot be read.
+     */
+    @Benchmark
+    public long largeDownload() throws IOException {
+        final InputStream entity = target.path("bytes").path(String.valueOf(LARGE)).request().get(InputStream.class);
+        final byte[] buffer = new byte[8192];
+        long count = 0;
+        try {
+            for (int read; (read = entity.read(buffer)) != -1; ) {
+                count += read;
+            }
+        } finally {
+            entity.close();
+        }
+        return count;
+    }
+
+    /**
+     * Large request entity.
+     *
+     * @return number of bytes received by the server.
+     */
+    @Benchmark
+    public String largeUpload() {
+        return target.path("upload").request()
+                .post(Entity.entity(largeEntity, MediaType.APPLICATION_OCTET_STREAM_TYPE), String.class);
+    }
+
+    /**
+     * Small requests sent concurrently by as many threads as connections.
+     *
+     * @return response entity.
+     */
+    @Benchmark
+    @Threads(CONNECTIONS)
+    public String fanOut() {
+        return target.request().get(String.class);
+    }
+
+    /**
+     * Small request over TLS.
+     *
+     * @return response entity.
+     */
+    @Benchmark
+    public String tls() {
+        return secureTarget.request().get(String.class);
+    }
+}
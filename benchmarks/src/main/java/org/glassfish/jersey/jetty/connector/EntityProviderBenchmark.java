@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.ContentProvider;
+import org.eclipse.jetty.client.api.Request;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of request entities by the buffering provider of the synchronous requests and the streaming
+ * provider of the asynchronous ones, without any network round trip. The provided content is iterated as Jetty
+ * would when sending it. Run with {@code -prof gc} to report the allocations per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EntityProviderBenchmark {
+
+    /**
+     * Size of the request entity in bytes.
+     */
+    @Param({"16", "16384", "1048576"})
+    public int size;
+
+    private JettyConnector connector;
+    private Client client;
+    private ClientRequest request;
+
+    @Setup
+    public void setUp() {
+        final ClientConfig config = new ClientConfig();
+        connector = new JettyConnector(config);
+        config.connector(connector);
+        client = ClientBuilder.newClient(config);
+        final byte[] entity = new byte[size];
+        Arrays.fill(entity, (byte) 'e');
+        request = BenchmarkServer.capture(client.target("http://localhost:9998/").path(BenchmarkServer.PATH),
+                HttpMethod.POST, Entity.entity(entity, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        connector.close();
+    }
+
+    @Benchmark
+    public long bytesProvider() {
+        final ClientRequest copy = new ClientRequest(request);
+        final Request jettyRequest = connector.getHttpClient().newRequest(copy.getUri());
+        return consume(connector.getBytesProvider(copy, jettyRequest));
+    }
+
+    @Benchmark
+    public long streamProvider() {
+        final ClientRequest copy = new ClientRequest(request);
+        final Request jettyRequest = connector.getHttpClient().newRequest(copy.getUri());
+        return consume(connector.getStreamProvider(copy, jettyRequest));
+    }
+
+    private static long consume(final ContentProvider provider) {
+        long count = 0;
+        for (ByteBuffer buffer : provider) {
+            count += buffer.remaining();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream of a given number of bytes following a fixed pattern, generated on the fly so that payloads of any
+ * size can be sent and checked without holding them in memory. The byte at position {@code p} is
+ * {@code (byte) (p % 251)}, a prime period not aligned with any buffer size.
+ */
+final class PatternInputStream extends InputStream {
+
+    private static final int PERIOD = 251;
+    private static final byte[] PATTERN = new byte[PERIOD * 64];
+
+    static {
+        for (int i = 0; i < PATTERN.length; i++) {
+            PATTERN[i] = (byte) (i % PERIOD);
+        }
+    }
+
+    private final long size;
+    private long position;
+
+    /**
+     * Create a new pattern stream.
+     *
+     * @param size number of bytes of the stream.
+     */
+    PatternInputStream(final long size) {
+        this.size = size;
+    }
+
+    @Override
+    public int read() {
+        return position < size ? PATTERN[(int) (position++ % PERIOD)] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        final int n = (int) Math.min(len, size - position);
+        int copied = 0;
+        while (copied < n) {
+            final int from = (int) ((position + copied) % PERIOD);
+            final int chunk = Math.min(n - copied, PATTERN.length - from);
+            System.arraycopy(PATTERN, from, b, off + copied, chunk);
+            copied += chunk;
+        }
+        position += n;
+        return n;
+    }
+
+    /**
+     * Read a stream to its end, checking it against the pattern.
+     *
+     * @param in stream to check, not closed.
+     * @return number of bytes read if they all follow the pattern, otherwise the position of the first one that
+     *         does not.
+     * @throws IOException if the stream cannot be read.
+     */
+    static long verify(final InputStream in) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        long position = 0;
+        long mismatch = -1;
+        int expected = 0;
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            if (mismatch < 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != PATTERN[expected]) {
+                        mismatch = position + i;
+                        break;
+                    }
+                    if (++expected == PERIOD) {
+                        expected = 0;
+                    }
+                }
+            }
+            position += read;
+        }
+        return mismatch < 0 ? position : mismatch;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of the connector in each {@link StartMode}, e.g. of an application creating its clients on boot.
+ * <p/>
+ * {@code construct} measures the creation of the connectors and their clients only, {@code firstRequest} the creation followed by one
+ * request through each of them, so that the work moved out of the constructor is accounted for. Each invocation
+ * creates {@link #connectors} connectors in a row, with a TLS configuration when {@link #tls} is set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"EAGER", "LAZY", "BACKGROUND"})
+    public StartMode mode;
+
+    /**
+     * Number of connectors created by an invocation.
+     */
+    @Param({"1", "32"})
+    public int connectors;
+
+    /**
+     * Whether the connectors are configured with an SSL context and send their first request over TLS.
+     */
+    @Param({"false", "true"})
+    public boolean tls;
+
+    private BenchmarkServer server;
+    private URI baseUri;
+    private final List<JettyConnector> created = new ArrayList<JettyConnector>();
+    private final List<Client> clients = new ArrayList<Client>();
+
+    @Setup
+    public void setUp() {
+        server = tls ? BenchmarkServer.startSecure() : BenchmarkServer.start();
+        baseUri = server.getBaseUri();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeConnectors() {
+        for (Client client : clients) {
+            client.close();
+        }
+        for (JettyConnector connector : created) {
+            connector.close();
+        }
+        clients.clear();
+        created.clear();
+    }
+
+    @Benchmark
+    public int construct() {
+        for (int i = 0; i < connectors; i++) {
+            create();
+        }
+        return created.size();
+    }
+
+    @Benchmark
+    public long firstRequest() {
+        for (int i = 0; i < connectors; i++) {
+            create();
+        }
+        long count = 0;
+        for (Client client : clients) {
+            count += client.target(baseUri).path(BenchmarkServer.PATH).path("bytes").path("16")
+                    .request().get(byte[].class).length;
+        }
+        return count;
+    }
+
+    private void create() {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.START_MODE, mode);
+        if (tls) {
+            config.property(JettyClientProperties.SSL_CONFIG, BenchmarkServer.clientSslConfig());
+        }
+        final JettyConnector connector = new JettyConnector(config);
+        created.add(connector);
+        clients.add(ClientBuilder.newClient(new ClientConfig().connector(connector)));
+    }
+}
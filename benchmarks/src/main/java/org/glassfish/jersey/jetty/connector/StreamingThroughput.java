@@ -0,0 +1,303 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.glassfish.jersey.client.ClientConfig;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of large uploads and downloads through the synchronous and asynchronous paths of the connector, with
+ * the Jetty client reading and writing through heap or direct buffers.
+ * <p/>
+ * For each payload size, connector path, direction and buffer kind it prints the throughput in MB/s, the peak heap
+ * usage and the garbage collections of the transfer. The payloads are generated and checked on the fly, by
+ * {@link PatternInputStream}s on the client and the in-process {@link BenchmarkServer}, which streams them through
+ * small buffers: the peak heap is the one of the connector paths, and a transfer that does not deliver its payload
+ * intact fails. Options:
+ * <pre>
+ * --sizes 1m,64m,1g,4g    payload sizes in bytes, with an optional k, m or g suffix
+ * --paths sync,async      connector paths
+ * --buffers heap,direct   buffers of the Jetty client
+ * --runs 1                measured runs of each transfer, after a warm-up with the smallest size
+ * </pre>
+ * A failed transfer, e.g. running out of memory, is reported and the next one started. Give the JVM a heap large
+ * enough for the paths that buffer whole payloads, e.g.
+ * {@code java -Xmx8g -cp target/benchmarks.jar org.glassfish.jersey.jetty.connector.StreamingThroughput}.
+ */
+public final class StreamingThroughput {
+
+    private static final String ROW = "%-6s %-9s %-7s %10s %10s %10s %6s %9s %9s  %s%n";
+    private static final double MB = 1024 * 1024;
+
+    private StreamingThroughput() {
+    }
+
+    /**
+     * Run the transfers.
+     *
+     * @param args command line options.
+     * @throws Exception if the server cannot be started.
+     */
+    public static void main(final String[] args) throws Exception {
+        List<String> sizes = Arrays.asList("1m", "64m", "1g", "4g");
+        List<String> paths = Arrays.asList("sync", "async");
+        List<String> buffers = Arrays.asList("heap", "direct");
+        int runs = 1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--sizes".equals(args[i])) {
+                sizes = Arrays.asList(args[++i].split(","));
+            } else if ("--paths".equals(args[i])) {
+                paths = Arrays.asList(args[++i].split(","));
+            } else if ("--buffers".equals(args[i])) {
+                buffers = Arrays.asList(args[++i].split(","));
+            } else if ("--runs".equals(args[i])) {
+                runs = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+            }
+        }
+        final List<Long> bytes = new ArrayList<Long>();
+        for (String size : sizes) {
+            bytes.add(parseSize(size));
+        }
+
+        final GcMonitor gc = new GcMonitor();
+        final BenchmarkServer server = BenchmarkServer.start();
+        try {
+            System.out.printf(Locale.ROOT, ROW,
+                    "path", "direction", "buffers", "size", "MB/s", "peak MB", "GCs", "GC ms", "max ms", "result");
+            for (String buffer : buffers) {
+                final Client client = createClient("direct".equals(buffer));
+                try {
+                    final WebTarget target = client.target(server.getBaseUri()).path(BenchmarkServer.PATH).path("stream");
+                    for (String path : paths) {
+                        transfer(target, path, true, Collections.min(bytes));
+                        transfer(target, path, false, Collections.min(bytes));
+                    }
+                    for (long size : bytes) {
+                        for (String path : paths) {
+                            for (boolean download : new boolean[]{true, false}) {
+                                for (int run = 0; run < runs; run++) {
+                                    measure(target, path, download, buffer, size, gc);
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    client.close();
+                }
+            }
+        } finally {
+            gc.close();
+            server.stop();
+        }
+    }
+
+    private static long parseSize(final String size) {
+        final String value = size.trim().toLowerCase(Locale.ROOT);
+        final char unit = value.charAt(value.length() - 1);
+        final int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : 0;
+        return Long.parseLong(shift > 0 ? value.substring(0, value.length() - 1) : value) << shift;
+    }
+
+    private static Client createClient(final boolean direct) {
+        final ClientConfig config = new ClientConfig();
+        final JettyConnector connector = new JettyConnector(config);
+        // Jetty 9.0 chooses the buffer kind itself, the pool is set before the first connection is opened
+        connector.getHttpClient().setByteBufferPool(new MappedByteBufferPool() {
+            @Override
+            public ByteBuffer acquire(final int size, final boolean ignored) {
+                return super.acquire(size, direct);
+            }
+        });
+        config.connector(connector);
+        return ClientBuilder.newClient(config);
+    }
+
+    private static void measure(final WebTarget target,
+                                final String path,
+                                final boolean download,
+                                final String buffers,
+                                final long size,
+                                final GcMonitor gc) {
+        System.gc();
+        final List<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        }
+        gc.reset();
+        final long start = System.nanoTime();
+        String result;
+        try {
+            transfer(target, path, download, size);
+            result = "ok";
+        } catch (Throwable t) {
+            Throwable cause = t;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            result = "failed: " + cause;
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heap) {
+            // upper bound, the pools may peak at different times
+            peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf(Locale.ROOT, ROW, path, download ? "download" : "upload", buffers,
+                String.format(Locale.ROOT, "%.0fm", size / MB), "ok".equals(result)
+                        ? String.format(Locale.ROOT, "%.1f", size / MB / seconds) : "-",
+                String.format(Locale.ROOT, "%.1f", peak / MB), gc.getCount(), gc.getTime(), gc.getMax(), result);
+    }
+
+    private static void transfer(final WebTarget target, final String path, final boolean download, final long size)
+            throws Exception {
+        final boolean async = "async".equals(path);
+        if (!async && !"sync".equals(path)) {
+            throw new IllegalArgumentException("Unknown path " + path + ".");
+        }
+        final long received;
+        if (download) {
+            final WebTarget resource = target.path(String.valueOf(size));
+            final InputStream entity = async
+                    ? resource.request().async().get().get().readEntity(InputStream.class)
+                    : resource.request().get(InputStream.class);
+            try {
+                received = PatternInputStream.verify(entity);
+            } finally {
+                entity.close();
+            }
+        } else {
+            final Entity<InputStream> entity =
+                    Entity.entity((InputStream) new PatternInputStream(size), MediaType.APPLICATION_OCTET_STREAM_TYPE);
+            received = Long.parseLong(async
+                    ? target.request().async().post(entity, String.class).get()
+                    : target.request().post(entity, String.class));
+        }
+        if (received != size) {
+            throw new IllegalStateException("Payload corrupted or truncated at byte " + received + ".");
+        }
+    }
+
+    /**
+     * Garbage collections reported by the JVM notifications.
+     */
+    private static final class GcMonitor implements NotificationListener {
+
+        private final List<NotificationEmitter> emitters = new ArrayList<NotificationEmitter>();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong time = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    final NotificationEmitter emitter = (NotificationEmitter) collector;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(final Notification notification, final Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            final long duration = GarbageCollectionNotificationInfo
+                    .from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+            count.incrementAndGet();
+            time.addAndGet(duration);
+            for (long current = max.get(); duration > current && !max.compareAndSet(current, duration); ) {
+                current = max.get();
+            }
+        }
+
+        void reset() {
+            count.set(0);
+            time.set(0);
+            max.set(0);
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getTime() {
+            return time.get();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        void close() throws Exception {
+            for (NotificationEmitter emitter : emitters) {
+                emitter.removeNotificationListener(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.http.HttpFields;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header translation between Jersey and Jetty messages, without any network round trip.
+ * Run with {@code -prof gc} to report the allocations per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TranslationBenchmark {
+
+    /**
+     * Number of request and response headers, besides the standard ones.
+     */
+    @Param({"4", "32"})
+    public int headers;
+
+    private JettyConnector connector;
+    private Client client;
+    private ClientRequest request;
+    private MultivaluedMap<String, Object> requestHeaders;
+    private URI uri;
+    private HttpFields responseHeaders;
+
+    @Setup
+    public void setUp() {
+        final ClientConfig config = new ClientConfig();
+        connector = new JettyConnector(config);
+        config.connector(connector);
+        client = ClientBuilder.newClient(config);
+        uri = URI.create("http://localhost:9998/" + BenchmarkServer.PATH);
+        request = BenchmarkServer.capture(client.target(uri), HttpMethod.GET, null);
+        requestHeaders = request.getHeaders();
+        requestHeaders.add("Accept", "text/plain");
+        responseHeaders = new HttpFields();
+        responseHeaders.add("Content-Type", "text/plain");
+        responseHeaders.add("Content-Length", "9");
+        for (int i = 0; i < headers; i++) {
+            requestHeaders.add("X-Request-" + i, "value-" + i);
+            responseHeaders.add("X-Response-" + i, "value-" + i);
+        }
+        // the values of a multi-valued request header are joined
+        requestHeaders.add("X-Multi", "a");
+        requestHeaders.add("X-Multi", "b");
+        responseHeaders.add("X-Multi", "a");
+        responseHeaders.add("X-Multi", "b");
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        connector.close();
+    }
+
+    @Benchmark
+    public Request translateRequest() {
+        return connector.translateRequest(request);
+    }
+
+    @Benchmark
+    public Request writeOutBoundHeaders() {
+        final Request jettyRequest = connector.getHttpClient().newRequest(uri);
+        JettyConnector.writeOutBoundHeaders(requestHeaders, jettyRequest);
+        return jettyRequest;
+    }
+
+    @Benchmark
+    public ClientResponse processResponseHeaders() {
+        final ClientResponse response = new ClientResponse(Response.Status.OK, request);
+        connector.processResponseHeaders(responseHeaders, response);
+        return response;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many concurrent blocking calls through the connector running on platform thread pools or on virtual threads,
+ * see {@link JettyClientProperties#VIRTUAL_THREADS}. Each invocation runs {@link #concurrency} calls at once to a
+ * server answering after {@link #latency} milliseconds, and measures the time until all of them complete:
+ * <ul>
+ * <li>{@code blockingCalls} makes sync calls, each on its own caller thread taken from a pool of
+ * {@link #PLATFORM_THREADS} platform threads or started as a virtual thread,</li>
+ * <li>{@code blockingCallbacks} makes async calls whose callbacks block for {@link #latency} milliseconds as well,
+ * e.g. calling another service, on the connector executor of {@link #PLATFORM_THREADS} platform threads or on
+ * virtual threads.</li>
+ * </ul>
+ * The {@code virtual} runs require Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    /**
+     * Size of the platform thread pools, the callers and the connector executor.
+     */
+    static final int PLATFORM_THREADS = 200;
+
+    /**
+     * Maximum number of connections to the server.
+     */
+    static final int CONNECTIONS = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    /**
+     * Number of calls in flight.
+     */
+    @Param({"1000", "10000"})
+    public int concurrency;
+
+    /**
+     * Server latency, and time blocked by each callback, in milliseconds.
+     */
+    @Param({"20"})
+    public int latency;
+
+    private BenchmarkServer server;
+    private JettyConnector connector;
+    private Client client;
+    private ClientRequest request;
+    private Executor callers;
+
+    @Setup
+    public void setUp() {
+        final boolean virtual = "virtual".equals(threads);
+        if (virtual && !VirtualThreads.isAvailable()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later.");
+        }
+        server = BenchmarkServer.start();
+        // each connection holds a server thread while the response is delayed
+        server.setMaxThreads(CONNECTIONS + PLATFORM_THREADS);
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.VIRTUAL_THREADS, virtual);
+        config.property(ClientProperties.ASYNC_THREADPOOL_SIZE, PLATFORM_THREADS);
+        config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, CONNECTIONS);
+        connector = new JettyConnector(config);
+        connector.getHttpClient().setMaxRequestsQueuedPerDestination(concurrency);
+        config.connector(connector);
+        client = ClientBuilder.newClient(config);
+        request = BenchmarkServer.capture(client.target(server.getBaseUri()).path(BenchmarkServer.PATH)
+                .path("delay").path(String.valueOf(latency)), HttpMethod.GET, null);
+        callers = virtual ? VirtualThreads.newExecutor("benchmark-caller-") : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (callers instanceof ExecutorService) {
+            ((ExecutorService) callers).shutdownNow();
+        }
+        client.close();
+        connector.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public int blockingCalls() throws Exception {
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            callers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ApplyBenchmark.drain(connector.apply(new ClientRequest(request)));
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        return await(done, failures);
+    }
+
+    @Benchmark
+    public int blockingCallbacks() throws Exception {
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            connector.apply(new ClientRequest(request), new AsyncConnectorCallback() {
+                @Override
+                public void response(final ClientResponse response) {
+                    // the entity is delivered by the same thread once the callback returns, it cannot be read here
+                    try {
+                        Thread.sleep(latency);
+                    } catch (InterruptedException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        response.close();
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void failure(final Throwable failure) {
+                    failures.incrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        return await(done, failures);
+    }
+
+    private static int await(final CountDownLatch done, final AtomicInteger failures) throws InterruptedException {
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Calls did not complete.");
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " calls failed.");
+        }
+        return failures.get();
+    }
+}
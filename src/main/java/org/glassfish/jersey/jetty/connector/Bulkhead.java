@@ -0,0 +1,245 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolates the requests of a destination, or a named group of destinations, from all other requests
+ * by limiting the number of requests in flight and by dispatching their callbacks on a dedicated
+ * bounded executor.
+ *
+ * @see JettyClientProperties#BULKHEAD_MAX_CONCURRENT
+ */
+final class Bulkhead implements Executor {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    /**
+     * Create new bulkhead.
+     *
+     * @param name          bulkhead name.
+     * @param maxConcurrent maximum number of requests in flight.
+     * @param threads       number of callback threads; callbacks run on the network thread if not positive.
+     * @param virtual       whether the callback threads are virtual threads.
+     */
+    Bulkhead(final String name, final int maxConcurrent, final int threads, final boolean virtual) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        if (threads > 0) {
+            // each admitted request dispatches at most one callback, so the queue never overflows;
+            // virtual threads are pooled as well, the pool size being the callback concurrency limit
+            final ThreadFactory threadFactory = virtual
+                    ? VirtualThreads.newThreadFactory(BulkheadThreadFactory.PREFIX + name + "-")
+                    : new BulkheadThreadFactory(name);
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(maxConcurrent), threadFactory);
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Try to admit a request.
+     *
+     * @return permit to be released once the request completes, or {@code null} if the bulkhead is full.
+     */
+    Permit tryAcquire() {
+        final Permit permit = new Permit();
+        return permit.acquire() ? permit : null;
+    }
+
+    /**
+     * Create a permit to be acquired later, e.g. once the request got its rate limit permit.
+     *
+     * @return permit not acquired yet.
+     */
+    Permit newPermit() {
+        return new Permit();
+    }
+
+    /**
+     * Run a callback on the bulkhead executor, or on the calling thread if the bulkhead has no executor
+     * or the executor rejects the task.
+     *
+     * @param task callback task.
+     */
+    @Override
+    public void execute(final Runnable task) {
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.incrementAndGet();
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * Check whether the callbacks run on the bulkhead executor.
+     *
+     * @return {@code true} if the bulkhead has callback threads.
+     */
+    boolean isOffloading() {
+        return executor != null;
+    }
+
+    /**
+     * Get the bulkhead name.
+     *
+     * @return bulkhead name.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get a snapshot of the bulkhead statistics.
+     *
+     * @return bulkhead statistics.
+     */
+    BulkheadStatistics getStatistics() {
+        return new BulkheadStatistics(name, maxConcurrent, maxConcurrent - permits.availablePermits(),
+                admitted.get(), rejected.get(),
+                executor == null ? 0 : executor.getMaximumPoolSize(),
+                executor == null ? 0 : executor.getActiveCount(),
+                executor == null ? 0 : executor.getQueue().size(),
+                rejectedTasks.get());
+    }
+
+    /**
+     * Stop the bulkhead executor.
+     */
+    void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Slot of a single admitted request.
+     */
+    final class Permit {
+
+        private static final int NEW = 0;
+        private static final int ACQUIRED = 1;
+        private static final int RELEASED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        private Permit() {
+        }
+
+        /**
+         * Get the bulkhead the permit belongs to.
+         *
+         * @return bulkhead.
+         */
+        Bulkhead getBulkhead() {
+            return Bulkhead.this;
+        }
+
+        /**
+         * Try to take the slot.
+         *
+         * @return {@code true} if the slot is taken, {@code false} if the bulkhead is full or the permit
+         *         has already been released.
+         */
+        boolean acquire() {
+            if (!permits.tryAcquire()) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (!state.compareAndSet(NEW, ACQUIRED)) {
+                permits.release();
+                return false;
+            }
+            admitted.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Release the slot. Releasing a permit more than once has no effect, releasing a permit not acquired
+         * yet prevents it from being acquired.
+         */
+        void release() {
+            if (state.getAndSet(RELEASED) == ACQUIRED) {
+                permits.release();
+            }
+        }
+    }
+
+    private static final class BulkheadThreadFactory implements ThreadFactory {
+
+        static final String PREFIX = "jetty-connector-bulkhead-";
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        BulkheadThreadFactory(final String name) {
+            this.prefix = PREFIX + name + "-";
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of the utilization of a single bulkhead.
+ *
+ * @see JettyConnector#getBulkheadStatistics()
+ */
+public final class BulkheadStatistics {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int inFlight;
+    private final long admitted;
+    private final long rejected;
+    private final int threads;
+    private final int activeThreads;
+    private final int queuedCallbacks;
+    private final long rejectedCallbacks;
+
+    BulkheadStatistics(final String name,
+                       final int maxConcurrent,
+                       final int inFlight,
+                       final long admitted,
+                       final long rejected,
+                       final int threads,
+                       final int activeThreads,
+                       final int queuedCallbacks,
+                       final long rejectedCallbacks) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.inFlight = inFlight;
+        this.admitted = admitted;
+        this.rejected = rejected;
+        this.threads = threads;
+        this.activeThreads = activeThreads;
+        this.queuedCallbacks = queuedCallbacks;
+        this.rejectedCallbacks = rejectedCallbacks;
+    }
+
+    /**
+     * Get the bulkhead name, i.e. the destination or the group name.
+     *
+     * @return bulkhead name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the maximum number of requests in flight.
+     *
+     * @return in-flight limit.
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Get the number of requests currently in flight.
+     *
+     * @return requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Get the ratio of requests in flight to the in-flight limit.
+     *
+     * @return utilization between {@code 0} and {@code 1}.
+     */
+    public double getUtilization() {
+        return maxConcurrent == 0 ? 0 : (double) inFlight / maxConcurrent;
+    }
+
+    /**
+     * Get the total number of admitted requests.
+     *
+     * @return admitted requests.
+     */
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Get the total number of requests rejected because the bulkhead was full.
+     *
+     * @return rejected requests.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Get the maximum number of callback threads, {@code 0} if callbacks are not offloaded.
+     *
+     * @return callback threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the number of callback threads currently running a callback.
+     *
+     * @return active callback threads.
+     */
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    /**
+     * Get the number of callbacks waiting for a callback thread.
+     *
+     * @return queued callbacks.
+     */
+    public int getQueuedCallbacks() {
+        return queuedCallbacks;
+    }
+
+    /**
+     * Get the number of callbacks the executor rejected and that ran on the network thread instead.
+     *
+     * @return rejected callbacks.
+     */
+    public long getRejectedCallbacks() {
+        return rejectedCallbacks;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{inFlight=" + inFlight + "/" + maxConcurrent + ", admitted=" + admitted
+                + ", rejected=" + rejected + ", activeThreads=" + activeThreads + "/" + threads
+                + ", queuedCallbacks=" + queuedCallbacks + ", rejectedCallbacks=" + rejectedCallbacks + "}";
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientRequest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link Bulkhead bulkheads} of a connector, one per destination or named group.
+ *
+ * @see JettyClientProperties#BULKHEAD_MAX_CONCURRENT
+ */
+final class Bulkheads {
+
+    private final int maxConcurrent;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final Map<String, String> destinationGroups;
+    private final Map<String, Integer> limits;
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<String, Bulkhead>();
+
+    /**
+     * Create new bulkhead registry.
+     *
+     * @param maxConcurrent     default in-flight limit of a bulkhead.
+     * @param threads           number of callback threads of each bulkhead.
+     * @param virtualThreads    whether the callback threads are virtual threads.
+     * @param destinationGroups group names keyed by destination.
+     * @param limits            in-flight limits keyed by destination or group name.
+     */
+    Bulkheads(final int maxConcurrent,
+              final int threads,
+              final boolean virtualThreads,
+              final Map<String, String> destinationGroups,
+              final Map<String, Integer> limits) {
+        this.maxConcurrent = maxConcurrent;
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+        this.destinationGroups = destinationGroups;
+        this.limits = limits;
+    }
+
+    /**
+     * Get the bulkhead of a request.
+     *
+     * @param request     client request.
+     * @param destination request destination key.
+     * @return bulkhead the request belongs to.
+     */
+    Bulkhead get(final ClientRequest request, final String destination) {
+        String name = request.resolveProperty(JettyClientProperties.BULKHEAD, String.class);
+        if (name == null) {
+            name = destinationGroups.get(destination);
+        }
+        if (name == null) {
+            name = destination;
+        }
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead == null) {
+            final Integer limit = limits.get(name);
+            bulkhead = new Bulkhead(name, limit != null ? limit : maxConcurrent, threads, virtualThreads);
+            final Bulkhead previous = bulkheads.putIfAbsent(name, bulkhead);
+            if (previous != null) {
+                bulkhead.close();
+                bulkhead = previous;
+            }
+        }
+        return bulkhead;
+    }
+
+    /**
+     * Get a snapshot of the statistics of all bulkheads.
+     *
+     * @return statistics keyed by bulkhead name.
+     */
+    Map<String, BulkheadStatistics> getStatistics() {
+        final Map<String, BulkheadStatistics> statistics = new TreeMap<String, BulkheadStatistics>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            statistics.put(bulkhead.getName(), bulkhead.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Stop the executors of all bulkheads.
+     */
+    void close() {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of the statistics of the response cache.
+ *
+ * @see JettyConnector#getCacheStatistics()
+ */
+public final class CacheStatistics {
+
+    private final long hits;
+    private final long diskHits;
+    private final long staleHits;
+    private final long staleIfErrorHits;
+    private final long misses;
+    private final long evictions;
+    private final long revalidations;
+    private final long notModified;
+    private final int entries;
+    private final long size;
+    private final long maxSize;
+    private final int diskEntries;
+    private final long diskSize;
+
+    CacheStatistics(final long hits,
+                    final long diskHits,
+                    final long staleHits,
+                    final long staleIfErrorHits,
+                    final long misses,
+                    final long evictions,
+                    final long revalidations,
+                    final long notModified,
+                    final int entries,
+                    final long size,
+                    final long maxSize,
+                    final int diskEntries,
+                    final long diskSize) {
+        this.hits = hits;
+        this.diskHits = diskHits;
+        this.staleHits = staleHits;
+        this.staleIfErrorHits = staleIfErrorHits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.revalidations = revalidations;
+        this.notModified = notModified;
+        this.entries = entries;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.diskEntries = diskEntries;
+        this.diskSize = diskSize;
+    }
+
+    /**
+     * Get the number of requests served from the cache.
+     *
+     * @return cache hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests served from the disk tier, included in {@link #getHits()}.
+     *
+     * @return disk tier hits.
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Get the number of stale responses served while being refreshed in the background,
+     * included in {@link #getHits()}.
+     *
+     * @return stale-while-revalidate hits.
+     */
+    public long getStaleHits() {
+        return staleHits;
+    }
+
+    /**
+     * Get the number of stale responses served because the origin server failed.
+     *
+     * @return stale-if-error hits.
+     */
+    public long getStaleIfErrorHits() {
+        return staleIfErrorHits;
+    }
+
+    /**
+     * Get the number of cacheable requests sent to the network.
+     *
+     * @return cache misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the ratio of cache hits to all cacheable requests.
+     *
+     * @return hit ratio between {@code 0} and {@code 1}.
+     */
+    public double getHitRatio() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Get the number of responses evicted to stay within the maximum cache size.
+     *
+     * @return evicted responses.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of conditional requests sent to revalidate stale responses.
+     *
+     * @return revalidation requests.
+     */
+    public long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * Get the number of revalidations answered with {@code 304 Not Modified}, i.e. responses rebuilt
+     * from the stored body.
+     *
+     * @return not modified responses.
+     */
+    public long getNotModified() {
+        return notModified;
+    }
+
+    /**
+     * Get the number of responses cached in memory.
+     *
+     * @return cached responses.
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the total size of the response bodies cached in memory.
+     *
+     * @return size in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum total size of the response bodies cached in memory.
+     *
+     * @return maximum size in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of responses stored in the disk tier.
+     *
+     * @return responses on disk, {@code 0} if the disk tier is not configured.
+     */
+    public int getDiskEntries() {
+        return diskEntries;
+    }
+
+    /**
+     * Get the total size of the segment files of the disk tier.
+     *
+     * @return size in bytes, {@code 0} if the disk tier is not configured.
+     */
+    public long getDiskSize() {
+        return diskSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{hits=" + hits + ", diskHits=" + diskHits + ", staleHits=" + staleHits
+                + ", staleIfErrorHits=" + staleIfErrorHits + ", misses=" + misses + ", evictions=" + evictions
+                + ", revalidations=" + revalidations + ", notModified=" + notModified
+                + ", entries=" + entries + ", size=" + size + "/" + maxSize
+                + ", diskEntries=" + diskEntries + ", diskSize=" + diskSize + "}";
+    }
+}
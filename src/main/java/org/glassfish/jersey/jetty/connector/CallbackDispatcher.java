@@ -0,0 +1,182 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the callbacks of the asynchronous requests according to the {@link CallbackDispatch} mode, and records
+ * their execution times.
+ * <p/>
+ * A running callback cannot be moved off the network thread, so the {@link CallbackDispatch#ADAPTIVE adaptive}
+ * mode decides before running it: the execution times of each destination are averaged with an exponentially
+ * weighted moving average, and the callbacks of a destination whose average exceeds the time budget are offloaded.
+ * Offloaded callbacks keep being measured, so that a destination whose callbacks become fast again returns to
+ * inline dispatch.
+ *
+ * @see JettyClientProperties#CALLBACK_DISPATCH
+ */
+final class CallbackDispatcher {
+
+    // weight of a new sample in the moving average, 1 / 2^AVERAGE_SHIFT
+    private static final int AVERAGE_SHIFT = 3;
+
+    private final CallbackDispatch dispatch;
+    private final Executor executor;
+    private final long budgetNanos;
+    // moving average of the execution times in nanoseconds, keyed by destination
+    private final ConcurrentMap<String, AtomicLong> averages = new ConcurrentHashMap<String, AtomicLong>();
+    private final LatencyHistogram executionTimes = new LatencyHistogram();
+    private final LatencyHistogram queueTimes = new LatencyHistogram();
+    private final AtomicLong inline = new AtomicLong();
+    private final AtomicLong offloaded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Create new callback dispatcher.
+     *
+     * @param dispatch    dispatch mode.
+     * @param executor    executor of the offloaded callbacks.
+     * @param budgetNanos average execution time above which the {@link CallbackDispatch#ADAPTIVE adaptive} mode
+     *                    offloads the callbacks of a destination.
+     */
+    CallbackDispatcher(final CallbackDispatch dispatch, final Executor executor, final long budgetNanos) {
+        this.dispatch = dispatch;
+        this.executor = executor;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Run a callback.
+     *
+     * @param destination destination key of the request.
+     * @param bulkhead    bulkhead of the request, its executor takes precedence over the dispatch mode;
+     *                    may be {@code null}.
+     * @param callback    callback task.
+     */
+    void dispatch(final String destination, final Bulkhead bulkhead, final Runnable callback) {
+        if (bulkhead != null && bulkhead.isOffloading()) {
+            offloaded.incrementAndGet();
+            bulkhead.execute(new Timed(destination, callback, true));
+            return;
+        }
+        if (dispatch == CallbackDispatch.EXECUTOR
+                || (dispatch == CallbackDispatch.ADAPTIVE && getAverage(destination).get() > budgetNanos)) {
+            try {
+                executor.execute(new Timed(destination, callback, true));
+                offloaded.incrementAndGet();
+                return;
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+            }
+        }
+        inline.incrementAndGet();
+        // not charged to the request notified by the calling thread
+        ResourceAccounting.runUnaccounted(new Timed(destination, callback, false));
+    }
+
+    /**
+     * Get a snapshot of the callback statistics.
+     *
+     * @return callback statistics.
+     */
+    CallbackStatistics getStatistics() {
+        return new CallbackStatistics(dispatch, inline.get(), offloaded.get(), rejected.get(),
+                executionTimes.getStatistics(), queueTimes.getStatistics());
+    }
+
+    private AtomicLong getAverage(final String destination) {
+        AtomicLong average = averages.get(destination);
+        if (average == null) {
+            average = new AtomicLong();
+            final AtomicLong previous = averages.putIfAbsent(destination, average);
+            if (previous != null) {
+                average = previous;
+            }
+        }
+        return average;
+    }
+
+    private void record(final String destination, final long nanos) {
+        executionTimes.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (dispatch == CallbackDispatch.ADAPTIVE) {
+            final AtomicLong average = getAverage(destination);
+            long current;
+            do {
+                current = average.get();
+            } while (!average.compareAndSet(current, current + ((nanos - current) >> AVERAGE_SHIFT)));
+        }
+    }
+
+    /**
+     * Callback measuring its execution time, and its queue time when offloaded.
+     */
+    private final class Timed implements Runnable {
+
+        private final String destination;
+        private final Runnable callback;
+        private final boolean offloaded;
+        private final long dispatched = System.nanoTime();
+
+        Timed(final String destination, final Runnable callback, final boolean offloaded) {
+            this.destination = destination;
+            this.callback = callback;
+            this.offloaded = offloaded;
+        }
+
+        @Override
+        public void run() {
+            final long started = System.nanoTime();
+            if (offloaded) {
+                queueTimes.record(TimeUnit.NANOSECONDS.toMicros(started - dispatched));
+            }
+            try {
+                callback.run();
+            } finally {
+                record(destination, System.nanoTime() - started);
+            }
+        }
+    }
+}
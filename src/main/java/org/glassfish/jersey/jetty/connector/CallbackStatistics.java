@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of the dispatch and execution times of the asynchronous request callbacks.
+ *
+ * @see JettyConnector#getCallbackStatistics()
+ * @see JettyClientProperties#CALLBACK_DISPATCH
+ */
+public final class CallbackStatistics {
+
+    private final CallbackDispatch dispatch;
+    private final long inline;
+    private final long offloaded;
+    private final long rejected;
+    private final LatencyStatistics executionTimes;
+    private final LatencyStatistics queueTimes;
+
+    CallbackStatistics(final CallbackDispatch dispatch,
+                       final long inline,
+                       final long offloaded,
+                       final long rejected,
+                       final LatencyStatistics executionTimes,
+                       final LatencyStatistics queueTimes) {
+        this.dispatch = dispatch;
+        this.inline = inline;
+        this.offloaded = offloaded;
+        this.rejected = rejected;
+        this.executionTimes = executionTimes;
+        this.queueTimes = queueTimes;
+    }
+
+    /**
+     * Get the dispatch mode of the connector.
+     *
+     * @return dispatch mode.
+     */
+    public CallbackDispatch getDispatch() {
+        return dispatch;
+    }
+
+    /**
+     * Get the number of callbacks run on the network thread, including the rejected ones.
+     *
+     * @return inline callbacks.
+     */
+    public long getInline() {
+        return inline;
+    }
+
+    /**
+     * Get the number of callbacks run on the callback executor or a bulkhead executor.
+     *
+     * @return offloaded callbacks.
+     */
+    public long getOffloaded() {
+        return offloaded;
+    }
+
+    /**
+     * Get the number of callbacks rejected by the callback executor, and run on the network thread instead.
+     *
+     * @return rejected callbacks.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Get the execution times of the callbacks, including the Jersey response processing.
+     *
+     * @return execution times in microseconds.
+     */
+    public LatencyStatistics getExecutionTimes() {
+        return executionTimes;
+    }
+
+    /**
+     * Get the times the offloaded callbacks waited for an executor thread.
+     *
+     * @return queue times in microseconds.
+     */
+    public LatencyStatistics getQueueTimes() {
+        return queueTimes;
+    }
+
+    @Override
+    public String toString() {
+        return "CallbackStatistics{dispatch=" + dispatch + ", inline=" + inline + ", offloaded=" + offloaded
+                + ", rejected=" + rejected + ", executionTimes=" + executionTimes + ", queueTimes=" + queueTimes + "}";
+    }
+}
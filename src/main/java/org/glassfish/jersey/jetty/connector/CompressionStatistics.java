@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the statistics of the request entity compression.
+ *
+ * @see JettyConnector#getCompressionStatistics()
+ */
+public final class CompressionStatistics {
+
+    private final long compressedRequests;
+    private final long uncompressedRequests;
+    private final long entityBytes;
+    private final long compressedBytes;
+    private final long compressionNanos;
+
+    CompressionStatistics(final long compressedRequests,
+                          final long uncompressedRequests,
+                          final long entityBytes,
+                          final long compressedBytes,
+                          final long compressionNanos) {
+        this.compressedRequests = compressedRequests;
+        this.uncompressedRequests = uncompressedRequests;
+        this.entityBytes = entityBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressionNanos = compressionNanos;
+    }
+
+    /**
+     * Get the number of requests sent with a {@code gzip} compressed entity.
+     *
+     * @return compressed requests.
+     */
+    public long getCompressedRequests() {
+        return compressedRequests;
+    }
+
+    /**
+     * Get the number of request entities sent uncompressed, being not larger than the compression threshold.
+     *
+     * @return uncompressed requests.
+     */
+    public long getUncompressedRequests() {
+        return uncompressedRequests;
+    }
+
+    /**
+     * Get the total size of the compressed request entities before compression.
+     *
+     * @return size in bytes.
+     */
+    public long getEntityBytes() {
+        return entityBytes;
+    }
+
+    /**
+     * Get the total size of the compressed request entities, as sent to the network.
+     *
+     * @return size in bytes.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Get the number of bytes not sent to the network thanks to the compression.
+     *
+     * @return saved bytes, negative if the compressed entities were larger than the original ones.
+     */
+    public long getSavedBytes() {
+        return entityBytes - compressedBytes;
+    }
+
+    /**
+     * Get the ratio of the compressed size to the original size of the compressed entities.
+     *
+     * @return compression ratio, {@code 1} if no entity was compressed.
+     */
+    public double getCompressionRatio() {
+        return entityBytes == 0 ? 1 : (double) compressedBytes / entityBytes;
+    }
+
+    /**
+     * Get the CPU time spent compressing request entities. The wall clock time is measured instead when
+     * the JVM does not support measuring the CPU time of threads.
+     *
+     * @param unit time unit of the result.
+     * @return compression time.
+     */
+    public long getCompressionTime(final TimeUnit unit) {
+        return unit.convert(compressionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the compression CPU cost per byte saved, relating the compression work to the network savings.
+     *
+     * @return nanoseconds spent per saved byte, {@link Double#POSITIVE_INFINITY} if no byte was saved.
+     */
+    public double getNanosPerSavedByte() {
+        final long saved = getSavedBytes();
+        return saved <= 0 ? Double.POSITIVE_INFINITY : (double) compressionNanos / saved;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStatistics{compressedRequests=" + compressedRequests
+                + ", uncompressedRequests=" + uncompressedRequests + ", entityBytes=" + entityBytes
+                + ", compressedBytes=" + compressedBytes + ", compressionNanos=" + compressionNanos
+                + ", nanosPerSavedByte=" + getNanosPerSavedByte() + "}";
+    }
+}
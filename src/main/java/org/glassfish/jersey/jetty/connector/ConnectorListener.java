@@ -0,0 +1,174 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Response;
+import org.glassfish.jersey.client.ClientRequest;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener of the transport events of the requests sent by a {@link JettyConnector}, e.g. to integrate
+ * distributed tracing or custom telemetry below the Jersey filters.
+ * <p/>
+ * Listeners are registered through the {@link JettyClientProperties#LISTENERS} property. They are invoked
+ * on Jetty threads and must not block. Exceptions thrown by a listener are logged and do not affect the request.
+ * Requests served without the network, e.g. from the response cache, produce no events.
+ *
+ * @see Adapter
+ */
+public interface ConnectorListener {
+
+    /**
+     * Invoked when a request is queued by Jetty, waiting for a connection.
+     *
+     * @param request Jersey request.
+     */
+    void onQueued(ClientRequest request);
+
+    /**
+     * Invoked when a new connection to a destination is opened, including the TLS handshake of secure
+     * connections.
+     *
+     * @param destination  destination in the {@code scheme://host:port} form.
+     * @param connectNanos time taken to open the connection, in nanoseconds.
+     */
+    void onConnectionCreated(String destination, long connectNanos);
+
+    /**
+     * Invoked when a connection was acquired for a request, which starts being sent.
+     *
+     * @param request Jersey request.
+     */
+    void onConnectionAcquired(ClientRequest request);
+
+    /**
+     * Invoked when the request headers were written to the network. As the write completion and the response
+     * are notified on different threads, this event may follow {@link #onHeaders} for fast responses.
+     *
+     * @param request Jersey request.
+     */
+    void onCommitted(ClientRequest request);
+
+    /**
+     * Invoked for each chunk of request content written to the network. The chunk must not be modified,
+     * including its position and limit.
+     *
+     * @param request Jersey request.
+     * @param content request content chunk.
+     */
+    void onRequestContent(ClientRequest request, ByteBuffer content);
+
+    /**
+     * Invoked when the response headers were received.
+     *
+     * @param request  Jersey request.
+     * @param response Jetty response with its status and headers.
+     */
+    void onHeaders(ClientRequest request, Response response);
+
+    /**
+     * Invoked for each chunk of response content, as received from the network. The chunk must not be modified,
+     * including its position and limit.
+     *
+     * @param request Jersey request.
+     * @param content response content chunk.
+     */
+    void onContent(ClientRequest request, ByteBuffer content);
+
+    /**
+     * Invoked when the response was entirely received.
+     *
+     * @param request  Jersey request.
+     * @param response Jetty response.
+     */
+    void onComplete(ClientRequest request, Response response);
+
+    /**
+     * Invoked when the request failed.
+     *
+     * @param request Jersey request.
+     * @param failure failure cause.
+     */
+    void onFailure(ClientRequest request, Throwable failure);
+
+    /**
+     * Empty implementation of {@link ConnectorListener}, to be extended by listeners interested in some
+     * of the events only.
+     */
+    public static class Adapter implements ConnectorListener {
+
+        @Override
+        public void onQueued(final ClientRequest request) {
+        }
+
+        @Override
+        public void onConnectionCreated(final String destination, final long connectNanos) {
+        }
+
+        @Override
+        public void onConnectionAcquired(final ClientRequest request) {
+        }
+
+        @Override
+        public void onCommitted(final ClientRequest request) {
+        }
+
+        @Override
+        public void onRequestContent(final ClientRequest request, final ByteBuffer content) {
+        }
+
+        @Override
+        public void onHeaders(final ClientRequest request, final Response response) {
+        }
+
+        @Override
+        public void onContent(final ClientRequest request, final ByteBuffer content) {
+        }
+
+        @Override
+        public void onComplete(final ClientRequest request, final Response response) {
+        }
+
+        @Override
+        public void onFailure(final ClientRequest request, final Throwable failure) {
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.HttpClient;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of a connector: per destination latency histograms and request and connection gauges,
+ * exported as JMX MBeans until the connector is closed.
+ *
+ * @see ConnectorMetricsMXBean
+ */
+final class ConnectorMetrics implements ConnectorMetricsMXBean {
+
+    /**
+     * JMX domain of the connector MBeans.
+     */
+    static final String DOMAIN = "org.glassfish.jersey.jetty.connector";
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectorMetrics.class.getName());
+
+    private final HttpClient client;
+    private final String name;
+    private final ResourceAccounting accounting;
+    private final CallbackDispatcher callbackDispatcher;
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final ConcurrentMap<String, DestinationMetrics> destinations =
+            new ConcurrentHashMap<String, DestinationMetrics>();
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<ObjectName>();
+    private volatile boolean closed;
+
+    /**
+     * Create the connector metrics and register their MBean.
+     *
+     * @param client             Jetty client of the connector.
+     * @param name               value of the {@code name} key of the MBean object names.
+     * @param accounting         resource accounting of the requests, may be {@code null}.
+     * @param callbackDispatcher dispatcher of the asynchronous request callbacks.
+     */
+    ConnectorMetrics(final HttpClient client,
+                     final String name,
+                     final ResourceAccounting accounting,
+                     final CallbackDispatcher callbackDispatcher) {
+        this.client = client;
+        this.name = name;
+        this.accounting = accounting;
+        this.callbackDispatcher = callbackDispatcher;
+        register(this, "type=JettyConnector,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Get the metrics of a destination, registering their MBean on first use.
+     *
+     * @param destination destination of the request, as returned by {@link JettyConnector#getDestination(URI)}.
+     * @param uri         request URI.
+     * @return destination metrics.
+     */
+    DestinationMetrics forDestination(final String destination, final URI uri) {
+        DestinationMetrics metrics = destinations.get(destination);
+        if (metrics == null) {
+            final String scheme = destination.substring(0, destination.indexOf(':'));
+            final int port = Integer.parseInt(destination.substring(destination.lastIndexOf(':') + 1));
+            final String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase();
+            final DestinationMetrics created = new DestinationMetrics(client, destination, scheme, host, port, accounting);
+            metrics = destinations.putIfAbsent(destination, created);
+            if (metrics == null) {
+                metrics = created;
+                register(created, "type=JettyConnector,name=" + ObjectName.quote(name)
+                        + ",destination=" + ObjectName.quote(destination));
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Get the metrics of a destination.
+     *
+     * @param destination destination in the {@code scheme://host:port} form.
+     * @return destination metrics, or {@code null} if no request was sent to the destination.
+     */
+    DestinationMetricsMXBean getDestination(final String destination) {
+        return destinations.get(destination);
+    }
+
+    @Override
+    public String[] getDestinations() {
+        return destinations.keySet().toArray(new String[destinations.size()]);
+    }
+
+    @Override
+    public int getActiveRequests() {
+        int active = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            active += metrics.getActiveRequests();
+        }
+        return active;
+    }
+
+    @Override
+    public int getQueuedRequests() {
+        int queued = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            queued += Math.max(0, metrics.getQueuedRequests());
+        }
+        return queued;
+    }
+
+    @Override
+    public long getCompletedRequests() {
+        long completed = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            completed += metrics.getCompletedRequests();
+        }
+        return completed;
+    }
+
+    @Override
+    public long getFailedRequests() {
+        long failed = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            failed += metrics.getFailedRequests();
+        }
+        return failed;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        int active = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            active += Math.max(0, metrics.getActiveConnections());
+        }
+        return active;
+    }
+
+    @Override
+    public int getIdleConnections() {
+        int idle = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            idle += Math.max(0, metrics.getIdleConnections());
+        }
+        return idle;
+    }
+
+    @Override
+    public int getPendingConnections() {
+        int pending = 0;
+        for (DestinationMetrics metrics : destinations.values()) {
+            pending += Math.max(0, metrics.getPendingConnections());
+        }
+        return pending;
+    }
+
+    @Override
+    public CallbackStatistics getCallbackStatistics() {
+        return callbackDispatcher.getStatistics();
+    }
+
+    @Override
+    public ThreadPoolStatistics getThreadPoolStatistics() {
+        final Executor executor = client.getExecutor();
+        return executor instanceof TunedThreadPool ? ((TunedThreadPool) executor).getStatistics() : null;
+    }
+
+    /**
+     * Unregister the MBeans.
+     */
+    void close() {
+        closed = true;
+        final List<ObjectName> names = new ArrayList<ObjectName>(registered);
+        registered.removeAll(names);
+        for (ObjectName objectName : names) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.log(Level.FINE, LocalizationMessages.MBEAN_UNREGISTRATION_FAILED(objectName), e);
+            }
+        }
+    }
+
+    private void register(final Object mbean, final String keys) {
+        if (closed) {
+            return;
+        }
+        try {
+            final ObjectName objectName = new ObjectName(DOMAIN + ":" + keys);
+            server.registerMBean(mbean, objectName);
+            registered.add(objectName);
+            if (closed) {
+                // closed concurrently
+                close();
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, LocalizationMessages.MBEAN_REGISTRATION_FAILED(keys), e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Management interface of the metrics of a {@link JettyConnector}, aggregated over all destinations.
+ * <p/>
+ * Registered under the <tt>org.glassfish.jersey.jetty.connector:type=JettyConnector,name=&lt;name&gt;</tt>
+ * object name, the metrics of each destination being registered under the same name with an additional
+ * <tt>destination</tt> key.
+ *
+ * @see JettyClientProperties#METRICS
+ * @see DestinationMetricsMXBean
+ */
+public interface ConnectorMetricsMXBean {
+
+    /**
+     * Get the destinations the connector sent requests to, in the {@code scheme://host:port} form.
+     *
+     * @return destinations.
+     */
+    String[] getDestinations();
+
+    /**
+     * Get the number of requests sent and not completed yet.
+     *
+     * @return active requests.
+     */
+    int getActiveRequests();
+
+    /**
+     * Get the number of requests waiting for a connection.
+     *
+     * @return queued requests.
+     */
+    int getQueuedRequests();
+
+    /**
+     * Get the number of completed requests, including the failed ones.
+     *
+     * @return completed requests.
+     */
+    long getCompletedRequests();
+
+    /**
+     * Get the number of requests failed without a response.
+     *
+     * @return failed requests.
+     */
+    long getFailedRequests();
+
+    /**
+     * Get the number of connections processing a request.
+     *
+     * @return active connections.
+     */
+    int getActiveConnections();
+
+    /**
+     * Get the number of open connections available in the connection pools.
+     *
+     * @return idle connections.
+     */
+    int getIdleConnections();
+
+    /**
+     * Get the number of connections being opened.
+     *
+     * @return pending connections.
+     */
+    int getPendingConnections();
+
+    /**
+     * Get the dispatch and execution times of the asynchronous request callbacks.
+     *
+     * @return callback statistics.
+     */
+    CallbackStatistics getCallbackStatistics();
+
+    /**
+     * Get the state and the tuning decisions of the thread pool.
+     *
+     * @return thread pool statistics, or {@code null} when
+     *         {@link JettyClientProperties#THREADPOOL_AUTO_TUNING} is not enabled.
+     */
+    ThreadPoolStatistics getThreadPoolStatistics();
+}
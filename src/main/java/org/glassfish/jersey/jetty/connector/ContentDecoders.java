@@ -0,0 +1,528 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.ContentDecoder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.FutureResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
+
+import javax.ws.rs.ProcessingException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming {@code gzip} and {@code deflate} response decoding.
+ * <p/>
+ * The decoders take over from the {@link HttpClient} content decoders: both encodings are advertised in the
+ * {@code Accept-Encoding} header of each request, and each content chunk is inflated by the response listeners
+ * of the connector as soon as it is received, using {@link Inflater inflaters} taken from a pool. The total
+ * decoded size of a response can be bounded to guard against decompression bombs.
+ * <p/>
+ * The content decoder factories of the client are not used, as Jetty 9.0 only matches the response
+ * {@code Content-Encoding} against the first registered factory.
+ *
+ * @see JettyClientProperties#DECODE_CONTENT
+ */
+final class ContentDecoders {
+
+    /**
+     * {@code gzip} content coding.
+     */
+    static final String GZIP = "gzip";
+    /**
+     * {@code deflate} content coding.
+     */
+    static final String DEFLATE = "deflate";
+    /**
+     * Value of the {@code Accept-Encoding} request header.
+     */
+    static final String ACCEPT_ENCODING = GZIP + ", " + DEFLATE;
+    /**
+     * Maximum decoded size of a response in bytes when {@link JettyClientProperties#DECODE_CONTENT_MAX_SIZE}
+     * is not set.
+     */
+    static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final long maxSize;
+    private final InflaterPool rawInflaters;
+    private final InflaterPool zlibInflaters;
+
+    /**
+     * Create new content decoders.
+     *
+     * @param maxSize maximum decoded size of a response in bytes, not bounded if not positive.
+     */
+    ContentDecoders(final long maxSize) {
+        this.maxSize = maxSize;
+        final int capacity = 2 * Runtime.getRuntime().availableProcessors();
+        this.rawInflaters = new InflaterPool(true, capacity);
+        this.zlibInflaters = new InflaterPool(false, capacity);
+    }
+
+    /**
+     * Disable the content decoding of a client, which no longer advertises {@code gzip} in the
+     * {@code Accept-Encoding} header of the requests either.
+     *
+     * @param client started client.
+     */
+    static void disableClientDecoding(final HttpClient client) {
+        client.getContentDecoderFactories().clear();
+    }
+
+    /**
+     * Get the content codings decoded before the responses reach the Jersey runtime.
+     *
+     * @param decodeContent whether the content is decoded by the connector, see
+     *                      {@link JettyClientProperties#DECODE_CONTENT}.
+     * @return content codings.
+     */
+    static String getDecodedCodings(final boolean decodeContent) {
+        // the Jetty client only decodes gzip
+        return decodeContent ? ACCEPT_ENCODING : GZIP;
+    }
+
+    /**
+     * Create a decoder for the content of a response.
+     *
+     * @param contentEncoding value of the {@code Content-Encoding} response header, may be {@code null}.
+     * @return new decoder, or {@code null} if the response content is not decoded.
+     */
+    Decoder newDecoder(final String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        } else if (GZIP.equalsIgnoreCase(contentEncoding.trim())) {
+            return new GzipDecoder();
+        } else if (DEFLATE.equalsIgnoreCase(contentEncoding.trim())) {
+            return new DeflateDecoder();
+        }
+        return null;
+    }
+
+    /**
+     * Create a listener buffering the decoded response content of a request, the decoding counterpart of the
+     * listener used by {@link Request#send()}.
+     *
+     * @param request request to be sent.
+     * @return response listener, failing the request if the response content cannot be decoded.
+     */
+    FutureResponseListener newResponseListener(final Request request) {
+        return new FutureResponseListener(request) {
+            private Decoder decoder;
+
+            @Override
+            public void onHeaders(final Response response) {
+                super.onHeaders(response);
+                decoder = newDecoder(response.getHeaders().get(HttpHeader.CONTENT_ENCODING));
+            }
+
+            @Override
+            public void onContent(final Response response, final ByteBuffer content) {
+                if (decoder == null) {
+                    super.onContent(response, content);
+                    return;
+                }
+                final ByteBuffer decoded;
+                try {
+                    decoded = decoder.decode(content);
+                } catch (ProcessingException e) {
+                    response.abort(e);
+                    return;
+                }
+                super.onContent(response, decoded);
+            }
+
+            @Override
+            public void onComplete(final Result result) {
+                if (decoder != null) {
+                    try {
+                        decoder.end(result.isSucceeded());
+                    } catch (ProcessingException e) {
+                        super.onComplete(new Result(result.getRequest(), result.getResponse(), e));
+                        return;
+                    }
+                }
+                super.onComplete(result);
+            }
+        };
+    }
+
+    /**
+     * Check whether a response with the given content coding is decoded by these decoders.
+     *
+     * @param contentEncoding value of the {@code Content-Encoding} response header, may be {@code null}.
+     * @return {@code true} if the response content is decoded.
+     */
+    static boolean isDecoded(final String contentEncoding) {
+        return contentEncoding != null
+                && (GZIP.equalsIgnoreCase(contentEncoding.trim()) || DEFLATE.equalsIgnoreCase(contentEncoding.trim()));
+    }
+
+    /**
+     * Get the number of inflaters taken from the pools and not returned yet.
+     *
+     * @return inflaters in use.
+     */
+    int getInflatersInUse() {
+        return rawInflaters.getInUse() + zlibInflaters.getInUse();
+    }
+
+    /**
+     * Release the pooled inflaters.
+     */
+    void close() {
+        rawInflaters.close();
+        zlibInflaters.close();
+    }
+
+    /**
+     * Decoder of a single response content. The decoder must be {@link #end(boolean) ended} once the response
+     * completes, successfully or not, to return its inflater to the pool.
+     */
+    abstract class Decoder implements ContentDecoder {
+
+        private Decoder() {
+        }
+
+        /**
+         * Release the resources of the decoder and check that a successfully received content was complete.
+         *
+         * @param succeeded {@code true} if the response was received successfully.
+         * @throws ProcessingException if the content ended before the end of the encoded stream.
+         */
+        abstract void end(boolean succeeded) throws ProcessingException;
+    }
+
+    private abstract class InflatingDecoder extends Decoder {
+
+        private final String encoding;
+        private InflaterPool pool;
+        private Inflater inflater;
+        private long decoded;
+        private byte[] output;
+        private int count;
+
+        InflatingDecoder(final String encoding) {
+            this.encoding = encoding;
+        }
+
+        /**
+         * Inflate the content of the buffer until the input is consumed or the end of the deflate stream
+         * is reached.
+         *
+         * @param in   compressed content, its position is moved past the consumed bytes.
+         * @param zlib {@code true} if the deflate stream is zlib wrapped.
+         * @return {@code true} if the end of the deflate stream was reached.
+         */
+        final boolean inflate(final ByteBuffer in, final boolean zlib) {
+            if (inflater == null) {
+                pool = zlib ? zlibInflaters : rawInflaters;
+                inflater = pool.acquire();
+            }
+            final int length = in.remaining();
+            if (in.hasArray()) {
+                inflater.setInput(in.array(), in.arrayOffset() + in.position(), length);
+            } else {
+                final byte[] input = new byte[length];
+                in.duplicate().get(input);
+                inflater.setInput(input, 0, length);
+            }
+            if (output == null) {
+                output = new byte[Math.max(1024, Math.min(4 * length, 64 * 1024))];
+            }
+            try {
+                while (!inflater.finished()) {
+                    if (count == output.length) {
+                        final byte[] grown = new byte[2 * output.length];
+                        System.arraycopy(output, 0, grown, 0, count);
+                        output = grown;
+                    }
+                    final int n = inflater.inflate(output, count, output.length - count);
+                    if (n > 0) {
+                        inflated(output, count, n);
+                        count += n;
+                        decoded += n;
+                        if (maxSize > 0 && decoded > maxSize) {
+                            release();
+                            throw new ProcessingException(LocalizationMessages.DECODED_CONTENT_TOO_LARGE(maxSize));
+                        }
+                    } else if (inflater.needsInput()) {
+                        break;
+                    } else if (inflater.needsDictionary()) {
+                        throw new DataFormatException();
+                    }
+                }
+            } catch (DataFormatException e) {
+                release();
+                throw new ProcessingException(LocalizationMessages.CONTENT_DECODING_FAILED(encoding), e);
+            }
+            in.position(in.limit() - inflater.getRemaining());
+            if (inflater.finished()) {
+                release();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Invoked for each decoded range of bytes.
+         *
+         * @param bytes  output buffer.
+         * @param offset range offset.
+         * @param length range length.
+         */
+        void inflated(final byte[] bytes, final int offset, final int length) {
+        }
+
+        /**
+         * Get the total number of decoded bytes.
+         *
+         * @return decoded bytes.
+         */
+        final long getDecoded() {
+            return decoded;
+        }
+
+        /**
+         * Take the bytes decoded by the current {@link #decode(ByteBuffer)} call.
+         *
+         * @return decoded content.
+         */
+        final ByteBuffer takeOutput() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            final ByteBuffer result = ByteBuffer.wrap(output, 0, count);
+            output = null;
+            count = 0;
+            return result;
+        }
+
+        final ProcessingException failure() {
+            release();
+            return new ProcessingException(LocalizationMessages.CONTENT_DECODING_FAILED(encoding));
+        }
+
+        @Override
+        final void end(final boolean succeeded) {
+            release();
+            if (succeeded && isTruncated()) {
+                throw new ProcessingException(LocalizationMessages.DECODED_CONTENT_TRUNCATED(encoding));
+            }
+        }
+
+        /**
+         * Check whether some content was received but the encoded stream did not end.
+         *
+         * @return {@code true} if the content is truncated.
+         */
+        abstract boolean isTruncated();
+
+        private void release() {
+            if (inflater != null) {
+                pool.release(inflater);
+                inflater = null;
+            }
+        }
+    }
+
+    /**
+     * Decoder of the {@code gzip} content coding (RFC 1952).
+     */
+    private final class GzipDecoder extends InflatingDecoder {
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[10];
+        private State state = State.HEADER;
+        private int flags;
+        private int position;
+        private int skip;
+
+        GzipDecoder() {
+            super(GZIP);
+        }
+
+        @Override
+        public ByteBuffer decode(final ByteBuffer in) {
+            while (in.hasRemaining() && state != State.DONE) {
+                switch (state) {
+                    case HEADER:
+                        header[position++] = in.get();
+                        if (position == header.length) {
+                            if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8) {
+                                throw failure();
+                            }
+                            flags = header[3] & 0xFF;
+                            position = 0;
+                            state = next(State.HEADER);
+                        }
+                        break;
+                    case EXTRA_LENGTH:
+                        skip |= (in.get() & 0xFF) << (8 * position++);
+                        if (position == 2) {
+                            position = 0;
+                            state = skip > 0 ? State.EXTRA : next(State.EXTRA);
+                        }
+                        break;
+                    case EXTRA:
+                        final int n = Math.min(skip, in.remaining());
+                        in.position(in.position() + n);
+                        skip -= n;
+                        if (skip == 0) {
+                            state = next(State.EXTRA);
+                        }
+                        break;
+                    case NAME:
+                    case COMMENT:
+                        if (in.get() == 0) {
+                            state = next(state);
+                        }
+                        break;
+                    case HCRC:
+                        in.get();
+                        if (++position == 2) {
+                            position = 0;
+                            state = next(State.HCRC);
+                        }
+                        break;
+                    case DATA:
+                        if (inflate(in, false)) {
+                            state = State.TRAILER;
+                        }
+                        break;
+                    case TRAILER:
+                        header[position++] = in.get();
+                        if (position == 8) {
+                            if (readInt(0) != (int) crc.getValue() || readInt(4) != (int) getDecoded()) {
+                                throw failure();
+                            }
+                            state = State.DONE;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            // data following the gzip member is ignored
+            in.position(in.limit());
+            return takeOutput();
+        }
+
+        @Override
+        void inflated(final byte[] bytes, final int offset, final int length) {
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        boolean isTruncated() {
+            // the trailer carrying the CRC32 and the size was not received
+            return state != State.DONE && (state != State.HEADER || position > 0);
+        }
+
+        private State next(final State done) {
+            if (done.compareTo(State.EXTRA) < 0 && (flags & FEXTRA) != 0) {
+                return State.EXTRA_LENGTH;
+            } else if (done.compareTo(State.NAME) < 0 && (flags & FNAME) != 0) {
+                return State.NAME;
+            } else if (done.compareTo(State.COMMENT) < 0 && (flags & FCOMMENT) != 0) {
+                return State.COMMENT;
+            } else if (done.compareTo(State.HCRC) < 0 && (flags & FHCRC) != 0) {
+                return State.HCRC;
+            }
+            return State.DATA;
+        }
+
+        private int readInt(final int offset) {
+            return (header[offset] & 0xFF) | (header[offset + 1] & 0xFF) << 8
+                    | (header[offset + 2] & 0xFF) << 16 | (header[offset + 3] & 0xFF) << 24;
+        }
+    }
+
+    private enum State {
+        HEADER, EXTRA_LENGTH, EXTRA, NAME, COMMENT, HCRC, DATA, TRAILER, DONE
+    }
+
+    /**
+     * Decoder of the {@code deflate} content coding, i.e. zlib wrapped deflate data (RFC 1950). Raw deflate
+     * data sent by some servers is accepted as well.
+     */
+    private final class DeflateDecoder extends InflatingDecoder {
+
+        private boolean started;
+        private boolean finished;
+
+        DeflateDecoder() {
+            super(DEFLATE);
+        }
+
+        @Override
+        public ByteBuffer decode(final ByteBuffer in) {
+            if (!finished && in.hasRemaining()) {
+                boolean zlib = true;
+                if (!started) {
+                    // zlib header: compression method 8 with a window of at most 32K
+                    final int cmf = in.get(in.position()) & 0xFF;
+                    zlib = (cmf & 0x0F) == 8 && (cmf >> 4) <= 7;
+                    started = true;
+                }
+                finished = inflate(in, zlib);
+            }
+            in.position(in.limit());
+            return takeOutput();
+        }
+
+        @Override
+        boolean isTruncated() {
+            return started && !finished;
+        }
+    }
+}
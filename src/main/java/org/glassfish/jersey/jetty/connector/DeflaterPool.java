@@ -0,0 +1,111 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of raw {@link Deflater} instances of a given compression level.
+ *
+ * @see InflaterPool
+ */
+final class DeflaterPool {
+
+    private final int level;
+    private final BlockingQueue<Deflater> deflaters;
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    /**
+     * Create new deflater pool.
+     *
+     * @param level    compression level of the deflaters.
+     * @param capacity maximum number of pooled deflaters.
+     */
+    DeflaterPool(final int level, final int capacity) {
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<Deflater>(capacity);
+    }
+
+    /**
+     * Take a deflater from the pool, creating a new one if the pool is empty.
+     *
+     * @return deflater ready to be used.
+     */
+    Deflater acquire() {
+        inUse.incrementAndGet();
+        final Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    /**
+     * Return a deflater to the pool. The deflater is released if the pool is full.
+     *
+     * @param deflater deflater no longer used by the caller.
+     */
+    void release(final Deflater deflater) {
+        inUse.decrementAndGet();
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get the number of deflaters taken from the pool and not returned yet.
+     *
+     * @return deflaters in use.
+     */
+    int getInUse() {
+        return inUse.get();
+    }
+
+    /**
+     * Release all pooled deflaters.
+     */
+    void close() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.client.api.Destination;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request latencies and connection gauges of a single destination.
+ * <p/>
+ * Jetty 9.0 does not expose the connection pool and request queue of a destination, the gauges read them
+ * reflectively and report {@code -1} if they cannot.
+ */
+final class DestinationMetrics implements DestinationMetricsMXBean {
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "failed"};
+    private static final int FAILED = STATUS_CLASSES.length - 1;
+
+    private static final Field CONNECTION_COUNT = getField("connectionCount");
+    private static final Field ACTIVE_CONNECTIONS = getField("activeConnections");
+    private static final Field IDLE_CONNECTIONS = getField("idleConnections");
+    private static final Field EXCHANGES = getField("exchanges");
+
+    private final HttpClient client;
+    private final String destination;
+    private final String scheme;
+    private final String host;
+    private final int port;
+    private final ResourceAccounting accounting;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong completedRequests = new AtomicLong();
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STATUS_CLASSES.length];
+
+    DestinationMetrics(final HttpClient client, final String destination, final String scheme, final String host,
+                       final int port, final ResourceAccounting accounting) {
+        this.client = client;
+        this.destination = destination;
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.accounting = accounting;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record the start of a request.
+     *
+     * @return start time to be passed to {@link #end(int, long)}.
+     */
+    long begin() {
+        activeRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of a request.
+     *
+     * @param status response status, or a negative value if the request failed without a response.
+     * @param begin  start time returned by {@link #begin()}.
+     */
+    void end(final int status, final long begin) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin);
+        activeRequests.decrementAndGet();
+        completedRequests.incrementAndGet();
+        histograms[status >= 100 && status < 600 ? status / 100 - 1 : FAILED].record(micros);
+    }
+
+    long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    long getFailedRequests() {
+        return histograms[FAILED].getStatistics().getCount();
+    }
+
+    @Override
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    @Override
+    public int getQueuedRequests() {
+        return size(EXCHANGES);
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return size(ACTIVE_CONNECTIONS);
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return size(IDLE_CONNECTIONS);
+    }
+
+    @Override
+    public int getPendingConnections() {
+        final int connections = size(CONNECTION_COUNT);
+        final int active = getActiveConnections();
+        final int idle = getIdleConnections();
+        return connections < 0 || active < 0 || idle < 0 ? -1 : Math.max(0, connections - active - idle);
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getLatencies() {
+        final Map<String, LatencyStatistics> latencies = new LinkedHashMap<String, LatencyStatistics>();
+        for (int i = 0; i < histograms.length; i++) {
+            final LatencyStatistics statistics = histograms[i].getStatistics();
+            if (statistics.getCount() > 0) {
+                latencies.put(STATUS_CLASSES[i], statistics);
+            }
+        }
+        return latencies;
+    }
+
+    @Override
+    public Map<String, ResourceUsageStatistics> getResourceUsage() {
+        return accounting != null
+                ? accounting.getStatistics(destination) : Collections.<String, ResourceUsageStatistics>emptyMap();
+    }
+
+    private int size(final Field field) {
+        if (field == null) {
+            return -1;
+        }
+        final Destination jettyDestination = client.getDestination(scheme, host, port);
+        try {
+            final Object value = field.get(jettyDestination);
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).size();
+            } else if (value instanceof AtomicInteger) {
+                return ((AtomicInteger) value).get();
+            }
+        } catch (IllegalAccessException e) {
+            // not accessible
+        } catch (IllegalArgumentException e) {
+            // not an HttpDestination
+        }
+        return -1;
+    }
+
+    private static Field getField(final String name) {
+        try {
+            final Field field = HttpDestination.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a single destination of a {@link JettyConnector}.
+ * <p/>
+ * The connection gauges are read from the Jetty destination and are {@code -1} when not available.
+ *
+ * @see ConnectorMetricsMXBean
+ */
+public interface DestinationMetricsMXBean {
+
+    /**
+     * Get the destination, in the {@code scheme://host:port} form.
+     *
+     * @return destination.
+     */
+    String getDestination();
+
+    /**
+     * Get the number of requests sent to the destination and not completed yet.
+     *
+     * @return active requests.
+     */
+    int getActiveRequests();
+
+    /**
+     * Get the number of requests waiting for a connection to the destination.
+     *
+     * @return queued requests, {@code -1} if not available.
+     */
+    int getQueuedRequests();
+
+    /**
+     * Get the number of connections to the destination processing a request.
+     *
+     * @return active connections, {@code -1} if not available.
+     */
+    int getActiveConnections();
+
+    /**
+     * Get the number of open connections to the destination available in the connection pool.
+     *
+     * @return idle connections, {@code -1} if not available.
+     */
+    int getIdleConnections();
+
+    /**
+     * Get the number of connections to the destination being opened.
+     *
+     * @return pending connections, {@code -1} if not available.
+     */
+    int getPendingConnections();
+
+    /**
+     * Get the latency histograms of the destination by status class, i.e. {@code 1xx} to {@code 5xx}, and
+     * {@code failed} for the requests failed without a response. The latency of a request is measured from
+     * the moment it is handed to the Jetty client, including the wait for a connection, to the end of its
+     * response.
+     *
+     * @return latency statistics by status class, only the classes with recorded requests are included.
+     */
+    Map<String, LatencyStatistics> getLatencies();
+
+    /**
+     * Get the CPU time and memory allocated by the connector threads for the requests to the destination, by
+     * {@link JettyClientProperties#REQUEST_ROUTE route}.
+     *
+     * @return resource usage by route, empty if {@link JettyClientProperties#ACCOUNTING} is not enabled.
+     */
+    Map<String, ResourceUsageStatistics> getResourceUsage();
+}
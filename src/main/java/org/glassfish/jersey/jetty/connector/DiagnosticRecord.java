@@ -0,0 +1,270 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diagnostic record of a request, with its metadata and the first bytes of the request and response bodies
+ * as written to and read from the network. The values of sensitive headers, e.g. credentials and cookies,
+ * are redacted.
+ *
+ * @see JettyConnector#getDiagnosticRecords()
+ */
+public final class DiagnosticRecord {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private final String method;
+    private final URI uri;
+    private final MultivaluedMap<String, String> requestHeaders;
+    private final long startTime;
+    private final long startNanos;
+    private final int maxBodyBytes;
+
+    private byte[] requestBody;
+    private int requestBodyLength;
+    private byte[] responseBody;
+    private int responseBodyLength;
+    private int status;
+    private MultivaluedMap<String, String> responseHeaders;
+    private Throwable failure;
+    private long durationNanos = -1;
+    private long sequence = -1;
+
+    DiagnosticRecord(final String method,
+                     final URI uri,
+                     final MultivaluedMap<String, String> requestHeaders,
+                     final int maxBodyBytes) {
+        this.method = method;
+        this.uri = uri;
+        this.requestHeaders = requestHeaders;
+        this.maxBodyBytes = maxBodyBytes;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    void requestContent(final ByteBuffer content) {
+        if (requestBodyLength < maxBodyBytes) {
+            if (requestBody == null) {
+                requestBody = new byte[maxBodyBytes];
+            }
+            requestBodyLength = copy(content, requestBody, requestBodyLength);
+        }
+    }
+
+    void responseContent(final ByteBuffer content) {
+        if (responseBodyLength < maxBodyBytes) {
+            if (responseBody == null) {
+                responseBody = new byte[maxBodyBytes];
+            }
+            responseBodyLength = copy(content, responseBody, responseBodyLength);
+        }
+    }
+
+    private static int copy(final ByteBuffer content, final byte[] body, final int length) {
+        final int count = Math.min(content.remaining(), body.length - length);
+        // absolute reads leave the chunk untouched
+        for (int i = 0; i < count; i++) {
+            body[length + i] = content.get(content.position() + i);
+        }
+        return length + count;
+    }
+
+    void headers(final int status, final MultivaluedMap<String, String> responseHeaders) {
+        this.status = status;
+        this.responseHeaders = responseHeaders;
+    }
+
+    void complete(final Throwable failure) {
+        this.failure = failure;
+        this.durationNanos = System.nanoTime() - startNanos;
+    }
+
+    void setSequence(final long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Get the request method.
+     *
+     * @return request method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the request URI.
+     *
+     * @return request URI.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Get the time the request was sent.
+     *
+     * @return start time in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the time between sending the request and completing the response.
+     *
+     * @param unit time unit.
+     * @return request duration.
+     */
+    public long getDuration(final TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the request headers.
+     *
+     * @return request headers.
+     */
+    public MultivaluedMap<String, String> getRequestHeaders() {
+        return new MultivaluedHashMap<String, String>(requestHeaders);
+    }
+
+    /**
+     * Get the first bytes of the request body, as written to the network, i.e. possibly compressed.
+     *
+     * @return request body prefix, empty if the request has no entity.
+     */
+    public byte[] getRequestBody() {
+        return requestBody != null ? Arrays.copyOf(requestBody, requestBodyLength) : new byte[0];
+    }
+
+    /**
+     * Get the response status.
+     *
+     * @return response status, or {@code 0} if no response was received.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the response headers.
+     *
+     * @return response headers, empty if no response was received.
+     */
+    public MultivaluedMap<String, String> getResponseHeaders() {
+        return responseHeaders != null
+                ? new MultivaluedHashMap<String, String>(responseHeaders) : new MultivaluedHashMap<String, String>();
+    }
+
+    /**
+     * Get the first bytes of the response body, as read from the network, i.e. possibly compressed.
+     *
+     * @return response body prefix, empty if the response has no entity.
+     */
+    public byte[] getResponseBody() {
+        return responseBody != null ? Arrays.copyOf(responseBody, responseBodyLength) : new byte[0];
+    }
+
+    /**
+     * Get the request failure.
+     *
+     * @return failure cause, or {@code null} if the request succeeded.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(method).append(' ').append(uri).append(' ');
+        if (failure != null) {
+            sb.append(failure);
+        } else {
+            sb.append(status);
+        }
+        sb.append(" in ").append(getDuration(TimeUnit.MILLISECONDS)).append(" ms");
+        appendHeaders(sb, "> ", getRequestHeaders());
+        appendBody(sb, "> ", getRequestBody());
+        appendHeaders(sb, "< ", getResponseHeaders());
+        appendBody(sb, "< ", getResponseBody());
+        return sb.toString();
+    }
+
+    private static void appendHeaders(final StringBuilder sb, final String prefix, final MultivaluedMap<String, String> headers) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                sb.append('\n').append(prefix).append(header.getKey()).append(": ").append(value);
+            }
+        }
+    }
+
+    private static void appendBody(final StringBuilder sb, final String prefix, final byte[] body) {
+        if (body.length > 0) {
+            final char[] text = new String(body, ISO_8859_1).toCharArray();
+            for (int i = 0; i < text.length; i++) {
+                // keep the dump on readable lines, e.g. for compressed bodies
+                if (text[i] < 0x20 && text[i] != '\n' || text[i] >= 0x7f) {
+                    text[i] = '.';
+                }
+            }
+            sb.append('\n').append(prefix).append(text);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.glassfish.jersey.client.ClientRequest;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connector listener keeping the {@link DiagnosticRecord records} of the recent requests in a lock-free ring
+ * buffer, and logging them when a request is slow or fails.
+ * <p/>
+ * Each dump contains the records completed since the previous dump, at most the whole ring, so that the
+ * requests concurrent with a slow one are logged with it.
+ * <p/>
+ * The headers are copied when a request is queued and when its response headers are received, the values of
+ * the sensitive headers, e.g. credentials and cookies, being redacted.
+ */
+final class DiagnosticRecorder extends ConnectorListener.Adapter {
+
+    private static final Logger LOGGER = Logger.getLogger(DiagnosticRecorder.class.getName());
+    private static final String PROPERTY = DiagnosticRecorder.class.getName();
+    private static final String REDACTED = "<redacted>";
+
+    /**
+     * Headers always redacted.
+     */
+    static final List<String> SENSITIVE_HEADERS = Collections.unmodifiableList(Arrays.asList(
+            HttpHeader.AUTHORIZATION.asString(), HttpHeader.PROXY_AUTHORIZATION.asString(),
+            HttpHeader.COOKIE.asString(), HttpHeader.SET_COOKIE.asString()));
+
+    private final AtomicReferenceArray<DiagnosticRecord> ring;
+    private final int mask;
+    private final int maxBodyBytes;
+    private final long slowThresholdNanos;
+    private final int sampling;
+    private final Set<String> sensitiveHeaders = new HashSet<String>();
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dumped = new AtomicLong();
+
+    /**
+     * Create a new recorder.
+     *
+     * @param capacity           number of records kept, rounded up to a power of two.
+     * @param maxBodyBytes       number of request and response body bytes recorded.
+     * @param slowThresholdNanos duration above which a request is logged.
+     * @param sampling           one request out of {@code sampling} is recorded.
+     * @param sensitiveHeaders   names of the headers whose values are redacted.
+     */
+    DiagnosticRecorder(final int capacity,
+                       final int maxBodyBytes,
+                       final long slowThresholdNanos,
+                       final int sampling,
+                       final Collection<String> sensitiveHeaders) {
+        final int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << (capacity > 1 ? 1 : 0);
+        this.ring = new AtomicReferenceArray<DiagnosticRecord>(size);
+        this.mask = size - 1;
+        this.maxBodyBytes = maxBodyBytes;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.sampling = Math.max(1, sampling);
+        for (String header : sensitiveHeaders) {
+            if (header.trim().length() > 0) {
+                this.sensitiveHeaders.add(header.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    private String redact(final String name, final String value) {
+        return sensitiveHeaders.contains(name.toLowerCase(Locale.ENGLISH)) ? REDACTED : value;
+    }
+
+    private static DiagnosticRecord getRecord(final ClientRequest request) {
+        final Object record = request.getProperty(PROPERTY);
+        return record instanceof DiagnosticRecord ? (DiagnosticRecord) record : null;
+    }
+
+    @Override
+    public void onQueued(final ClientRequest request) {
+        if (sampling > 1 && sampled.getAndIncrement() % sampling != 0) {
+            return;
+        }
+        // the record must neither follow later changes of the headers nor keep the request reachable
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<String, String>();
+        for (Map.Entry<String, List<String>> header : request.getStringHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                headers.add(header.getKey(), redact(header.getKey(), value));
+            }
+        }
+        request.setProperty(PROPERTY, new DiagnosticRecord(request.getMethod(), request.getUri(), headers, maxBodyBytes));
+    }
+
+    @Override
+    public void onRequestContent(final ClientRequest request, final ByteBuffer content) {
+        final DiagnosticRecord record = getRecord(request);
+        if (record != null) {
+            record.requestContent(content);
+        }
+    }
+
+    @Override
+    public void onHeaders(final ClientRequest request, final Response response) {
+        final DiagnosticRecord record = getRecord(request);
+        if (record != null) {
+            final MultivaluedMap<String, String> headers = new MultivaluedHashMap<String, String>();
+            for (HttpField field : response.getHeaders()) {
+                headers.add(field.getName(), redact(field.getName(), field.getValue()));
+            }
+            record.headers(response.getStatus(), headers);
+        }
+    }
+
+    @Override
+    public void onContent(final ClientRequest request, final ByteBuffer content) {
+        final DiagnosticRecord record = getRecord(request);
+        if (record != null) {
+            record.responseContent(content);
+        }
+    }
+
+    @Override
+    public void onComplete(final ClientRequest request, final Response response) {
+        complete(request, null);
+    }
+
+    @Override
+    public void onFailure(final ClientRequest request, final Throwable failure) {
+        complete(request, failure);
+    }
+
+    private void complete(final ClientRequest request, final Throwable failure) {
+        final DiagnosticRecord record = getRecord(request);
+        if (record == null) {
+            return;
+        }
+        request.removeProperty(PROPERTY);
+        record.complete(failure);
+        final long sequence = published.getAndIncrement();
+        record.setSequence(sequence);
+        ring.set((int) (sequence & mask), record);
+        if (failure != null || record.getDurationNanos() >= slowThresholdNanos) {
+            dump(record);
+        }
+    }
+
+    private void dump(final DiagnosticRecord trigger) {
+        final long last = trigger.getSequence();
+        long from;
+        do {
+            from = dumped.get();
+        } while (from <= last && !dumped.compareAndSet(from, last + 1));
+        if (!LOGGER.isLoggable(Level.WARNING)) {
+            return;
+        }
+        final StringBuilder sb = new StringBuilder();
+        if (trigger.getFailure() != null) {
+            sb.append(LocalizationMessages.DIAGNOSTICS_REQUEST_FAILED(trigger.getMethod(), trigger.getUri()));
+        } else {
+            sb.append(LocalizationMessages.DIAGNOSTICS_SLOW_REQUEST(trigger.getMethod(), trigger.getUri(),
+                    trigger.getDuration(TimeUnit.MILLISECONDS)));
+        }
+        for (DiagnosticRecord record : getRecords(Math.min(from, last), last)) {
+            sb.append('\n').append(record);
+        }
+        LOGGER.log(Level.WARNING, sb.toString());
+    }
+
+    /**
+     * Get the records still in the ring buffer.
+     *
+     * @return records, oldest first.
+     */
+    List<DiagnosticRecord> getRecords() {
+        return getRecords(0, published.get() - 1);
+    }
+
+    private List<DiagnosticRecord> getRecords(final long from, final long to) {
+        final List<DiagnosticRecord> records = new ArrayList<DiagnosticRecord>();
+        for (long sequence = Math.max(from, to - mask); sequence <= to; sequence++) {
+            final DiagnosticRecord record = ring.get((int) (sequence & mask));
+            // skip the slots already overwritten by newer records or not yet written
+            if (record != null && record.getSequence() == sequence) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disk tier of the {@link ResponseCache} keeping responses in memory-mapped segment files.
+ * <p/>
+ * Responses are appended to the current segment as self-describing records. Response bodies are
+ * never copied to the heap: cached entity streams read them in place from the mapped segments. An
+ * in-memory index maps request keys to their records and is rebuilt by scanning the segments when
+ * the cache is opened, so that cached responses survive restarts. Once the maximum size is reached,
+ * the least recently used segment is deleted together with all responses it contains.
+ * <p/>
+ * Segment layout: {@code magic (int), content codings (string), records}. The content codings are the
+ * codings decoded before the responses are stored: segments written with other codings, or in another
+ * format, are deleted when the cache is opened.
+ * <p/>
+ * Record layout: {@code marker (int), last access (long), metadata length (int), metadata, body length (int),
+ * body}. The marker is written last, so that a record torn by a crash ends the scan of its segment. Replaced
+ * and invalidated records are marked dead in place. The last access time in milliseconds is updated in place,
+ * at most once per second, so that the least recently used segment is still known after a restart.
+ *
+ * @see JettyClientProperties#CACHE_DIRECTORY
+ */
+final class DiskCache {
+
+    private static final Logger LOGGER = Logger.getLogger(DiskCache.class.getName());
+
+    private static final int MAGIC = 0x4A435332;
+    private static final int LIVE = 0x4A435231;
+    private static final int DEAD = 0x4A435230;
+    private static final int RECORD_OVERHEAD = 20;
+    private static final long ACCESS_RESOLUTION = 1000;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".cache";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final byte[] header;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+    private final ConcurrentMap<String, Record> index = new ConcurrentHashMap<String, Record>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private Segment current;
+    private long nextSegmentId;
+    private boolean closed;
+
+    /**
+     * Open the disk cache in the given directory, loading the responses stored by previous instances.
+     *
+     * @param directory   cache directory, created if it does not exist.
+     * @param maxSize     maximum total size of the segment files in bytes.
+     * @param segmentSize size of a single segment file in bytes.
+     * @param codings     content codings decoded before the responses are stored.
+     * @throws IOException if the directory cannot be used.
+     */
+    DiskCache(final File directory, final long maxSize, final int segmentSize, final String codings) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(LocalizationMessages.CACHE_DIRECTORY_FAILED(directory));
+        }
+        this.directory = directory;
+        this.header = writeHeader(codings);
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxSize / segmentSize));
+
+        this.lockChannel = new RandomAccessFile(new File(directory, "lock"), "rw").getChannel();
+        FileLock directoryLock = null;
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another connector of this JVM
+        }
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IOException(LocalizationMessages.CACHE_DIRECTORY_LOCKED(directory));
+        }
+        this.directoryLock = directoryLock;
+
+        try {
+            load();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        final SortedMap<Long, File> files = new TreeMap<Long, File>();
+        final File[] list = directory.listFiles();
+        for (File file : list != null ? list : new File[0]) {
+            final String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        for (Map.Entry<Long, File> e : files.entrySet()) {
+            nextSegmentId = e.getKey() + 1;
+            final Segment segment = Segment.open(e.getValue(), (int) Math.min(Integer.MAX_VALUE, e.getValue().length()));
+            if (!hasHeader(segment)) {
+                // the stored responses are encoded differently from the responses of this cache
+                LOGGER.log(Level.FINE, "Deleting cache segment {0} written by another configuration.", segment.file);
+                if (!segment.file.delete()) {
+                    LOGGER.log(Level.FINE, "Failed to delete cache segment {0}.", segment.file);
+                }
+                continue;
+            }
+            scan(segment);
+            segments.add(segment);
+            current = segment;
+        }
+        while (segments.size() > maxSegments) {
+            evict();
+        }
+        LOGGER.log(Level.FINE, "Loaded {0} cached responses from {1}.", new Object[] {index.size(), directory});
+    }
+
+    private boolean hasHeader(final Segment segment) {
+        if (segment.buffer.capacity() < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (segment.buffer.get(i) != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void scan(final Segment segment) {
+        final ByteBuffer buffer = segment.buffer;
+        final int capacity = buffer.capacity();
+        int offset = header.length;
+        long lastAccess = 0;
+        while (offset + RECORD_OVERHEAD <= capacity) {
+            final int marker = buffer.getInt(offset);
+            if (marker != LIVE && marker != DEAD) {
+                break;
+            }
+            final int metaLength = buffer.getInt(offset + 12);
+            if (metaLength < 0 || (long) offset + RECORD_OVERHEAD + metaLength > capacity) {
+                break;
+            }
+            final int bodyLength = buffer.getInt(offset + 16 + metaLength);
+            final long length = (long) RECORD_OVERHEAD + metaLength + bodyLength;
+            if (bodyLength < 0 || offset + length > capacity) {
+                break;
+            }
+            if (marker == LIVE) {
+                final Record record;
+                try {
+                    record = readRecord(segment, offset, metaLength, bodyLength);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Corrupt record in " + segment.file + " at " + offset + ".", e);
+                    break;
+                }
+                final Record previous = index.put(record.key, record);
+                if (previous != null) {
+                    markDead(previous);
+                }
+                lastAccess = Math.max(lastAccess, record.lastAccess);
+            }
+            offset += length;
+        }
+        segment.position = offset;
+        // the segments are ordered by the nano time of their last access, a segment without live records
+        // is the least recently used one
+        segment.lastAccess = lastAccess > 0
+                ? segment.lastAccess - TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - lastAccess))
+                : Long.MIN_VALUE;
+    }
+
+    /**
+     * Get the response stored for a key.
+     *
+     * @param key request key.
+     * @return stored response reading its body from the mapped segment, or {@code null}.
+     */
+    ResponseCache.Entry get(final String key) {
+        final Record record = index.get(key);
+        if (record == null) {
+            return null;
+        }
+        record.segment.lastAccess = System.nanoTime();
+        final long now = System.currentTimeMillis();
+        if (now - record.lastAccess >= ACCESS_RESOLUTION) {
+            record.lastAccess = now;
+            record.segment.buffer.putLong(record.offset + 4, now);
+        }
+        return record.entry;
+    }
+
+    /**
+     * Store a response, replacing the response stored for the key before.
+     *
+     * @param key   request key.
+     * @param entry response to be stored.
+     */
+    void put(final String key, final ResponseCache.Entry entry) {
+        final byte[] meta = writeMeta(key, entry);
+        final int bodyLength = entry.getBodySize();
+        final long length = (long) RECORD_OVERHEAD + meta.length + bodyLength;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (length > segmentSize) {
+                removeRecord(key);
+                return;
+            }
+            if (current == null || current.position + length > current.buffer.capacity()) {
+                roll();
+            }
+            final int offset = current.position;
+            final long now = System.currentTimeMillis();
+            final ByteBuffer target = current.buffer.duplicate();
+            target.putInt(offset, 0);
+            target.position(offset + 4);
+            target.putLong(now);
+            target.putInt(meta.length);
+            target.put(meta);
+            target.putInt(bodyLength);
+            final int bodyOffset = target.position();
+            target.put(entry.getBody());
+            target.putInt(offset, LIVE);
+            current.position = (int) (offset + length);
+            current.lastAccess = System.nanoTime();
+
+            final ResponseCache.Entry stored = new ResponseCache.Entry(entry.getVaryValues(), entry.getStatus(),
+                    entry.getReason(), entry.getVersion(), 0, entry.getHeaders(),
+                    slice(current.buffer, bodyOffset, bodyLength), entry.getRequestTime(), entry.getResponseTime());
+            final Record previous = index.put(key, new Record(key, current, offset, stored, now));
+            if (previous != null) {
+                markDead(previous);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, LocalizationMessages.CACHE_DIRECTORY_FAILED(directory), e);
+            removeRecord(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the response stored for a key.
+     *
+     * @param key request key.
+     */
+    void remove(final String key) {
+        lock.lock();
+        try {
+            if (!closed) {
+                removeRecord(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeRecord(final String key) {
+        final Record record = index.remove(key);
+        if (record != null) {
+            markDead(record);
+        }
+    }
+
+    private static void markDead(final Record record) {
+        record.segment.buffer.putInt(record.offset, DEAD);
+    }
+
+    private void roll() throws IOException {
+        while (segments.size() >= maxSegments) {
+            evict();
+        }
+        final long id = nextSegmentId++;
+        current = Segment.open(new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX), segmentSize);
+        final ByteBuffer target = current.buffer.duplicate();
+        target.put(header);
+        current.position = header.length;
+        segments.add(current);
+    }
+
+    private void evict() {
+        Segment lru = null;
+        for (Segment segment : segments) {
+            if (lru == null || segment.lastAccess < lru.lastAccess) {
+                lru = segment;
+            }
+        }
+        segments.remove(lru);
+        if (lru == current) {
+            current = null;
+        }
+        for (Iterator<Record> records = index.values().iterator(); records.hasNext(); ) {
+            if (records.next().segment == lru) {
+                records.remove();
+            }
+        }
+        // entity streams still reading from the segment keep its mapping valid
+        if (!lru.file.delete()) {
+            LOGGER.log(Level.FINE, "Failed to delete cache segment {0}.", lru.file);
+        }
+    }
+
+    /**
+     * Get the number of stored responses.
+     *
+     * @return stored responses.
+     */
+    int getEntries() {
+        return index.size();
+    }
+
+    /**
+     * Get the total size of the segment files.
+     *
+     * @return size in bytes.
+     */
+    long getSize() {
+        lock.lock();
+        try {
+            long size = 0;
+            for (Segment segment : segments) {
+                size += segment.buffer.capacity();
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush the segments to disk and release the cache directory. The segments are unmapped
+     * once the stored responses are no longer referenced.
+     */
+    void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+            segments.clear();
+            index.clear();
+            current = null;
+            if (directoryLock != null) {
+                directoryLock.release();
+            }
+            lockChannel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to release cache directory " + directory + ".", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length);
+        slice.position(offset);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    private static byte[] writeHeader(final String codings) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            writeString(out, codings);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // not thrown by an in-memory stream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] writeMeta(final String key, final ResponseCache.Entry entry) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, key);
+            out.writeLong(entry.getRequestTime());
+            out.writeLong(entry.getResponseTime());
+            out.writeInt(entry.getStatus());
+            writeString(out, entry.getReason());
+            writeString(out, entry.getVersion() != null ? entry.getVersion().asString() : null);
+            out.writeInt(entry.getHeaders().size());
+            for (HttpField field : entry.getHeaders()) {
+                writeString(out, field.getName());
+                writeString(out, field.getValue());
+            }
+            out.writeInt(entry.getVaryValues().size());
+            for (Map.Entry<String, String> e : entry.getVaryValues().entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // not thrown by an in-memory stream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Record readRecord(final Segment segment, final int offset, final int metaLength, final int bodyLength) {
+        final long lastAccess = segment.buffer.getLong(offset + 4);
+        final ByteBuffer in = slice(segment.buffer, offset + 16, metaLength);
+        final String key = readString(in);
+        final long requestTime = in.getLong();
+        final long responseTime = in.getLong();
+        final int status = in.getInt();
+        final String reason = readString(in);
+        final String version = readString(in);
+        final HttpFields headers = new HttpFields();
+        for (int i = in.getInt(); i > 0; i--) {
+            headers.add(new HttpField(readString(in), readString(in)));
+        }
+        final int varyCount = in.getInt();
+        Map<String, String> varyValues = Collections.emptyMap();
+        if (varyCount > 0) {
+            varyValues = new HashMap<String, String>();
+            for (int i = 0; i < varyCount; i++) {
+                varyValues.put(readString(in), readString(in));
+            }
+        }
+        final ByteBuffer body = slice(segment.buffer, offset + RECORD_OVERHEAD + metaLength, bodyLength);
+        final ResponseCache.Entry entry = new ResponseCache.Entry(varyValues, status, reason,
+                version != null ? HttpVersion.fromString(version) : null, 0, headers, body, requestTime, responseTime);
+        return new Record(key, segment, offset, entry, lastAccess);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = in.getInt();
+        if (length < 0) {
+            return null;
+        } else if (length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length + ".");
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static final class Record {
+
+        private final String key;
+        private final Segment segment;
+        private final int offset;
+        private final ResponseCache.Entry entry;
+        private volatile long lastAccess;
+
+        private Record(final String key,
+                       final Segment segment,
+                       final int offset,
+                       final ResponseCache.Entry entry,
+                       final long lastAccess) {
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final MappedByteBuffer buffer;
+        // guarded by the cache lock
+        private int position;
+        private volatile long lastAccess;
+
+        private Segment(final File file, final MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+            this.lastAccess = System.nanoTime();
+        }
+
+        private static Segment open(final File file, final int size) throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                if (raf.length() < size) {
+                    raf.setLength(size);
+                }
+                // the mapping stays valid after the file is closed
+                return new Segment(file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
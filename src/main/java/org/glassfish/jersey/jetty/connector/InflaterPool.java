@@ -0,0 +1,109 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pool of {@link Inflater} instances, sparing the native zlib stream allocation per decoded response.
+ */
+final class InflaterPool {
+
+    private final boolean nowrap;
+    private final BlockingQueue<Inflater> inflaters;
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    /**
+     * Create new inflater pool.
+     *
+     * @param nowrap   {@code true} for inflaters of raw deflate data, {@code false} for zlib wrapped data.
+     * @param capacity maximum number of pooled inflaters.
+     */
+    InflaterPool(final boolean nowrap, final int capacity) {
+        this.nowrap = nowrap;
+        this.inflaters = new ArrayBlockingQueue<Inflater>(capacity);
+    }
+
+    /**
+     * Take an inflater from the pool, creating a new one if the pool is empty.
+     *
+     * @return inflater ready to be used.
+     */
+    Inflater acquire() {
+        inUse.incrementAndGet();
+        final Inflater inflater = inflaters.poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    /**
+     * Return an inflater to the pool. The inflater is released if the pool is full.
+     *
+     * @param inflater inflater no longer used by the caller.
+     */
+    void release(final Inflater inflater) {
+        inUse.decrementAndGet();
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Get the number of inflaters taken from the pool and not returned yet.
+     *
+     * @return inflaters in use.
+     */
+    int getInUse() {
+        return inUse.get();
+    }
+
+    /**
+     * Release all pooled inflaters.
+     */
+    void close() {
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+}
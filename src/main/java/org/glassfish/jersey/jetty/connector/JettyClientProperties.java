@@ -87,4 +87,608 @@ public class JettyClientProperties {
     public static final String PREEMPTIVE_BASIC_AUTHENTICATION =
             "jersey.config.jetty.client.preemptiveBasicAuthentication";
 
+    /**
+     * Maximum number of connections the client opens to a single destination.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the Jetty {@link org.eclipse.jetty.client.HttpClient} default is used.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String MAX_CONNECTIONS_PER_DESTINATION =
+            "jersey.config.jetty.client.maxConnectionsPerDestination";
+
+    /**
+     * Maximum number of requests per second the connector sends to a single destination
+     * (scheme, host and port). Requests exceeding the rate are delayed, or rejected when
+     * the delay would exceed {@link #RATE_LIMIT_MAX_WAIT}.
+     * <p/>
+     * Asynchronous requests are delayed using the client scheduler and never block a thread.
+     * A {@code 429} or {@code 503} response carrying a {@code Retry-After} header suspends
+     * the destination for the given period and halves its rate for the same period afterwards.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}.
+     * If the property is absent or not positive, requests are not rate limited.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String RATE_LIMIT =
+            "jersey.config.jetty.client.rateLimit";
+
+    /**
+     * Number of requests that may be sent to a rate limited destination at once,
+     * before {@link #RATE_LIMIT} applies.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 1}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String RATE_LIMIT_BURST =
+            "jersey.config.jetty.client.rateLimit.burst";
+
+    /**
+     * Maximum time in milliseconds a request waits for a rate limit permit. A request that would
+     * have to wait longer fails immediately with a {@link javax.ws.rs.ProcessingException}.
+     * A value of {@code 0} makes the rate limiter fail fast.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent, requests wait as long as necessary.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String RATE_LIMIT_MAX_WAIT =
+            "jersey.config.jetty.client.rateLimit.maxWait";
+
+    /**
+     * Per-destination rates overriding {@link #RATE_LIMIT}.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.Map} with destination URIs
+     * (e.g. {@code https://api.example.com}) as keys and {@link java.lang.Number} rates
+     * in requests per second as values.
+     * <p/>
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String RATE_LIMIT_DESTINATIONS =
+            "jersey.config.jetty.client.rateLimit.destinations";
+
+    /**
+     * A value of {@code true} makes concurrent {@code GET} requests without an entity for the same URI
+     * share a single in-flight exchange. The response of the shared exchange is buffered and each
+     * waiting request receives its own entity stream over the buffered content.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String COALESCE_REQUESTS =
+            "jersey.config.jetty.client.coalesceRequests";
+
+    /**
+     * Names of request headers whose values must be equal for requests to be coalesced
+     * when {@link #COALESCE_REQUESTS} is enabled.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.Collection} of header names or a
+     * {@link java.lang.String} of comma separated header names.
+     * If the property is absent, the {@code Accept}, {@code Accept-Encoding}, {@code Accept-Language},
+     * {@code Authorization} and {@code Cookie} headers are used.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String COALESCE_VARY_HEADERS =
+            "jersey.config.jetty.client.coalesceRequests.varyHeaders";
+
+    /**
+     * A value of {@code true} puts a priority-aware queue in front of each destination. At most
+     * {@link org.eclipse.jetty.client.HttpClient#getMaxConnectionsPerDestination()} requests per destination
+     * are handed over to Jetty at a time; the remaining requests wait and are admitted by their
+     * {@link #REQUEST_PRIORITY}. Queue wait times are reported by
+     * {@link JettyConnector#getPriorityQueueStatistics()}.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String PRIORITY_SCHEDULING =
+            "jersey.config.jetty.client.priorityScheduling";
+
+    /**
+     * Share of the connections of each destination reserved for {@link RequestPriority#HIGH} requests
+     * when {@link #PRIORITY_SCHEDULING} is enabled.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number} between {@code 0} and {@code 1}.
+     * If the property is absent the default value is {@code 0.2}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String PRIORITY_RESERVED_SHARE =
+            "jersey.config.jetty.client.priorityScheduling.reservedShare";
+
+    /**
+     * Priority of a request waiting for a connection when {@link #PRIORITY_SCHEDULING} is enabled.
+     * May be set on the client as well as on a single request.
+     * <p/>
+     * The value MUST be an instance of {@link RequestPriority} or its name as a {@link java.lang.String}.
+     * If the property is absent the default value is {@link RequestPriority#NORMAL}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String REQUEST_PRIORITY =
+            "jersey.config.jetty.client.request.priority";
+
+    /**
+     * Maximum number of requests in flight per bulkhead. Requests to a destination are isolated
+     * in a bulkhead of their own unless the destination belongs to a group configured by
+     * {@link #BULKHEAD_GROUPS} or the request names its bulkhead using {@link #BULKHEAD}.
+     * A request exceeding the limit fails immediately with a {@link javax.ws.rs.ProcessingException}.
+     * Bulkhead utilization is reported by {@link JettyConnector#getBulkheadStatistics()}.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent or not positive, bulkheads are not used.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String BULKHEAD_MAX_CONCURRENT =
+            "jersey.config.jetty.client.bulkhead.maxConcurrent";
+
+    /**
+     * Number of threads of the executor each bulkhead uses to invoke the callbacks of
+     * asynchronous requests, so that slow response processing for one destination
+     * cannot exhaust the threads shared by all destinations.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent or not positive, callbacks are invoked by the network thread.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String BULKHEAD_THREADS =
+            "jersey.config.jetty.client.bulkhead.threads";
+
+    /**
+     * Named bulkhead groups shared by several destinations.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.Map} with destination URIs
+     * (e.g. {@code https://api.example.com}) as keys and group names as values.
+     * <p/>
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String BULKHEAD_GROUPS =
+            "jersey.config.jetty.client.bulkhead.groups";
+
+    /**
+     * Per-bulkhead limits overriding {@link #BULKHEAD_MAX_CONCURRENT}.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.Map} with group names or destination URIs
+     * as keys and {@link java.lang.Number} in-flight limits as values.
+     * <p/>
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String BULKHEAD_LIMITS =
+            "jersey.config.jetty.client.bulkhead.limits";
+
+    /**
+     * Name of the bulkhead a request belongs to, overriding its destination and {@link #BULKHEAD_GROUPS}.
+     * May be set on the client as well as on a single request.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.String}.
+     * <p/>
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String BULKHEAD =
+            "jersey.config.jetty.client.request.bulkhead";
+
+    /**
+     * Maximum total size in bytes of the response bodies kept by the in-memory response cache. Setting
+     * the property enables caching of {@code GET} responses carrying an explicit freshness lifetime
+     * ({@code Cache-Control: max-age} or {@code Expires}) or a validator ({@code ETag} or {@code Last-Modified})
+     * as specified by RFC 7234. Fresh responses are served without sending the request, honoring the
+     * {@code Vary} response header and the {@code Cache-Control} directives of the request. Stale responses
+     * are revalidated by sending {@code If-None-Match} and {@code If-Modified-Since} headers; a
+     * {@code 304 Not Modified} answer is turned into the full stored response. The least recently used
+     * responses are evicted first. Cache hits, misses and evictions are reported by
+     * {@link JettyConnector#getCacheStatistics()}.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}.
+     * If the property is absent or not positive, responses are not cached.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_MAX_SIZE =
+            "jersey.config.jetty.client.cache.maxSize";
+
+    /**
+     * Directory of the disk tier of the response cache. Setting the property enables a second cache tier
+     * keeping responses in memory-mapped segment files, in addition to or, if {@link #CACHE_MAX_SIZE} is
+     * not set, instead of the in-memory cache. Cached entity streams read the response bodies directly from
+     * the mapped files, and the cached responses survive restarts of the client unless they were stored with
+     * another {@link #DECODE_CONTENT} setting. A directory can only be used by a single connector at a time.
+     * <p/>
+     * The value MUST be an instance of {@link java.io.File} or {@link java.lang.String}.
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_DIRECTORY =
+            "jersey.config.jetty.client.cache.directory";
+
+    /**
+     * Maximum total size in bytes of the segment files of the disk tier configured by {@link #CACHE_DIRECTORY}.
+     * When the limit is reached, the least recently used segment is deleted.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}.
+     * If the property is absent the default value is 1 GiB.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_DISK_MAX_SIZE =
+            "jersey.config.jetty.client.cache.disk.maxSize";
+
+    /**
+     * Size in bytes of a single segment file of the disk tier configured by {@link #CACHE_DIRECTORY}. Responses
+     * larger than a segment are not stored on disk.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}.
+     * If the property is absent the default value is 64 MiB.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_DISK_SEGMENT_SIZE =
+            "jersey.config.jetty.client.cache.disk.segmentSize";
+
+    /**
+     * Time in seconds a stale cached response may be served while it is refreshed in the background, used for
+     * responses without a {@code stale-while-revalidate} {@code Cache-Control} directive (RFC 5861). A stale
+     * response is refreshed by a single request at a time, sent on the executor of the client.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 0}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_STALE_WHILE_REVALIDATE =
+            "jersey.config.jetty.client.cache.staleWhileRevalidate";
+
+    /**
+     * Time in seconds a stale cached response may be served when the origin server fails, i.e. the request
+     * fails or is answered by a {@code 500}, {@code 502}, {@code 503} or {@code 504} response. Used for responses
+     * and requests without a {@code stale-if-error} {@code Cache-Control} directive (RFC 5861).
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 0}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CACHE_STALE_IF_ERROR =
+            "jersey.config.jetty.client.cache.staleIfError";
+
+    /**
+     * Decode {@code gzip} and {@code deflate} encoded response content in the connector.
+     * <p/>
+     * A value of {@code true} replaces the content decoders of the Jetty {@link org.eclipse.jetty.client.HttpClient}
+     * by streaming decoders that inflate each content chunk as it arrives using pooled
+     * {@link java.util.zip.Inflater inflaters}. Both encodings are advertised in the {@code Accept-Encoding}
+     * header of each request, and the {@code Content-Encoding} and {@code Content-Length} headers of decoded
+     * responses are removed, so that no Jersey {@code ReaderInterceptor} decodes the content again.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}, only {@code gzip} content is then
+     * decoded by the Jetty client.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DECODE_CONTENT =
+            "jersey.config.jetty.client.decodeContent";
+
+    /**
+     * Maximum size in bytes of a response content decoded by the connector. A response whose decoded content
+     * exceeds the size fails, guarding against decompression bombs. Only used when {@link #DECODE_CONTENT}
+     * is enabled.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}, a value of {@code 0} or less does not bound the
+     * decoded content size.
+     * If the property is absent the default value is {@code 67108864} (64 MB).
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DECODE_CONTENT_MAX_SIZE =
+            "jersey.config.jetty.client.decodeContent.maxSize";
+
+    /**
+     * Size in bytes above which request entities are compressed with {@code gzip}. The entity is compressed
+     * while it is written, with {@link java.util.zip.Deflater deflaters} taken from a pool, and the
+     * {@code Content-Encoding} header of the request is set accordingly. Entities already encoded, i.e. with
+     * a {@code Content-Encoding} header, are not compressed.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Number}.
+     * If the property is absent request entities are not compressed.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String REQUEST_COMPRESSION_THRESHOLD =
+            "jersey.config.jetty.client.requestCompression.threshold";
+
+    /**
+     * Compression level of request entities, from {@code 1} (best speed) to {@code 9} (best compression).
+     * Only used when {@link #REQUEST_COMPRESSION_THRESHOLD} is set.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default level of {@link java.util.zip.Deflater} is used.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String REQUEST_COMPRESSION_LEVEL =
+            "jersey.config.jetty.client.requestCompression.level";
+
+    /**
+     * Collect request latency histograms per destination and status class, and request and connection
+     * gauges, and export them as JMX MBeans of the platform MBean server. The MBeans are unregistered
+     * when the connector is closed.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     *
+     * @see ConnectorMetricsMXBean
+     */
+    public static final String METRICS =
+            "jersey.config.jetty.client.metrics";
+
+    /**
+     * Value of the {@code name} key of the object names of the connector MBeans. Only used when
+     * {@link #METRICS} is enabled. Connectors registered at the same time must have distinct names.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.String}.
+     * If the property is absent the name is made of the connector class name and identity hash code.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String METRICS_NAME =
+            "jersey.config.jetty.client.metrics.name";
+
+    /**
+     * Record the timestamps of the phases of each request sent to the network, i.e. admission, connection,
+     * request sending, time to first byte and response download. The timings are stored as a
+     * {@link RequestTimings} instance in the {@link RequestTimings#PROPERTY} request property.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String REQUEST_TIMINGS =
+            "jersey.config.jetty.client.requestTimings";
+
+    /**
+     * {@link ConnectorListener Listeners} notified of the transport events of the requests, i.e. queuing,
+     * connection, commit, response headers, content and completion. When no listener is registered no event
+     * is dispatched at all.
+     * <p/>
+     * The value MUST be an instance of {@link ConnectorListener}, or a {@link java.util.Collection} or an array
+     * of {@link ConnectorListener}s.
+     * If the property is absent no listener is notified.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String LISTENERS =
+            "jersey.config.jetty.client.listeners";
+
+    /**
+     * Number of recent requests kept by the diagnostic recorder, rounded up to a power of two. The recorder keeps
+     * the metadata and the first bytes of the bodies of the requests in a ring buffer, and logs them when a request
+     * is slower than {@link #DIAGNOSTICS_SLOW_THRESHOLD} or fails. The records are also available through
+     * {@link JettyConnector#getDiagnosticRecords()}.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent or {@code 0} the recorder is disabled.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DIAGNOSTICS_CAPACITY =
+            "jersey.config.jetty.client.diagnostics.capacity";
+
+    /**
+     * Number of request and response body bytes kept by the diagnostic recorder. Only used when
+     * {@link #DIAGNOSTICS_CAPACITY} is set.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 256}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DIAGNOSTICS_BODY_BYTES =
+            "jersey.config.jetty.client.diagnostics.bodyBytes";
+
+    /**
+     * Duration in milliseconds above which a request makes the diagnostic recorder log the recent requests.
+     * Only used when {@link #DIAGNOSTICS_CAPACITY} is set.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 1000}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DIAGNOSTICS_SLOW_THRESHOLD =
+            "jersey.config.jetty.client.diagnostics.slowThreshold";
+
+    /**
+     * Sampling of the diagnostic recorder, one request out of the given number is recorded. Requests which are not
+     * recorded are not logged when slow or failed. Only used when {@link #DIAGNOSTICS_CAPACITY} is set.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 1}, i.e. every request is recorded.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DIAGNOSTICS_SAMPLING =
+            "jersey.config.jetty.client.diagnostics.sampling";
+
+    /**
+     * Names of additional request and response headers whose values are replaced by {@code <redacted>} in the
+     * diagnostic records, e.g. API key headers. The values of the {@code Authorization},
+     * {@code Proxy-Authorization}, {@code Cookie} and {@code Set-Cookie} headers are always redacted.
+     * Only used when {@link #DIAGNOSTICS_CAPACITY} is set.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.Collection} of header names or a
+     * {@link java.lang.String} of comma separated header names.
+     * A default value is not set.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String DIAGNOSTICS_SENSITIVE_HEADERS =
+            "jersey.config.jetty.client.diagnostics.sensitiveHeaders";
+
+    /**
+     * Account the CPU time and the memory allocated by the connector threads for each request, e.g. to translate
+     * headers, buffer entities and decode responses. The usage is aggregated by destination and
+     * {@link #REQUEST_ROUTE route}, and reported by {@link JettyConnector#getResourceUsage(String)} and the
+     * destination MBeans when {@link #METRICS} is enabled.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String ACCOUNTING =
+            "jersey.config.jetty.client.accounting";
+
+    /**
+     * Route a request is accounted to by {@link #ACCOUNTING}, e.g. the name of the endpoint or operation.
+     * May be set on the client as well as on a single request.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.String}.
+     * If the property is absent the requests are accounted to the {@code default} route.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String REQUEST_ROUTE =
+            "jersey.config.jetty.client.request.route";
+
+    /**
+     * When the connector starts its Jetty client, i.e. creates the {@link #SSL_CONFIG SSL context}, the thread pool
+     * and the selectors. {@link StartMode#LAZY} defers the start to the first request, {@link StartMode#BACKGROUND}
+     * starts the client in a background thread, so that creating the connector does not block on either.
+     * <p/>
+     * The value MUST be an instance of {@link StartMode} or its name as a {@link java.lang.String}.
+     * If the property is absent the default value is {@link StartMode#EAGER}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String START_MODE =
+            "jersey.config.jetty.client.startMode";
+
+    /**
+     * A value of {@code true} runs the Jetty client executor, i.e. the selectors and the response callbacks, and the
+     * {@link #BULKHEAD_THREADS bulkhead threads} on virtual threads, so that callbacks may block cheaply. Requires
+     * Java 21 or later; on older JVMs a warning is logged and the thread pool is used.
+     * {@link org.glassfish.jersey.client.ClientProperties#ASYNC_THREADPOOL_SIZE} is ignored when virtual threads
+     * are used.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String VIRTUAL_THREADS =
+            "jersey.config.jetty.client.virtualThreads";
+
+    /**
+     * Thread the callbacks of the asynchronous requests run on, see {@link CallbackDispatch}. Callbacks of a
+     * {@link #BULKHEAD_THREADS bulkhead with callback threads} always run on its executor. Callback execution times
+     * are reported by {@link JettyConnector#getCallbackStatistics()}.
+     * <p/>
+     * The value MUST be an instance of {@link CallbackDispatch} or its name as a {@link java.lang.String}.
+     * If the property is absent the default value is {@link CallbackDispatch#INLINE}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CALLBACK_DISPATCH =
+            "jersey.config.jetty.client.callbackDispatch";
+
+    /**
+     * Executor the callbacks are offloaded to by the {@link CallbackDispatch#EXECUTOR} and
+     * {@link CallbackDispatch#ADAPTIVE} {@link #CALLBACK_DISPATCH dispatch modes}. The executor is not shut down by
+     * the connector. A callback rejected by the executor runs on the network thread.
+     * <p/>
+     * The value MUST be an instance of {@link java.util.concurrent.Executor}.
+     * If the property is absent the executor of the Jetty {@link org.eclipse.jetty.client.HttpClient} is used.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CALLBACK_EXECUTOR =
+            "jersey.config.jetty.client.callbackDispatch.executor";
+
+    /**
+     * Average execution time in milliseconds above which the {@link CallbackDispatch#ADAPTIVE} dispatch mode offloads
+     * the callbacks of a destination.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 5}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String CALLBACK_TIME_BUDGET =
+            "jersey.config.jetty.client.callbackDispatch.timeBudget";
+
+    /**
+     * A value of {@code true} lets the thread pool of the Jetty client adjust its minimum and maximum number of
+     * threads from the observed queue latency and utilization, within the {@link #THREADPOOL_MIN_THREADS} and
+     * {@link #THREADPOOL_MAX_THREADS} bounds. The pool and its decisions are reported by
+     * {@link JettyConnector#getThreadPoolStatistics()}.
+     * {@link org.glassfish.jersey.client.ClientProperties#ASYNC_THREADPOOL_SIZE} is ignored, and cannot be
+     * reconfigured, when the pool is tuned. {@link #VIRTUAL_THREADS} takes precedence.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Boolean}.
+     * If the property is absent the default value is {@code false}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String THREADPOOL_AUTO_TUNING =
+            "jersey.config.jetty.client.threadPool.autoTuning";
+
+    /**
+     * Lower bound of the minimum and maximum number of threads of the {@link #THREADPOOL_AUTO_TUNING tuned}
+     * thread pool.
+     * <p/>
+     * The value MUST be a positive {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 8}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String THREADPOOL_MIN_THREADS =
+            "jersey.config.jetty.client.threadPool.minThreads";
+
+    /**
+     * Upper bound of the maximum number of threads of the {@link #THREADPOOL_AUTO_TUNING tuned} thread pool.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer} not lower than {@link #THREADPOOL_MIN_THREADS}.
+     * If the property is absent the default value is {@code 200}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String THREADPOOL_MAX_THREADS =
+            "jersey.config.jetty.client.threadPool.maxThreads";
+
+    /**
+     * Mean time in milliseconds a job may wait for a thread of the {@link #THREADPOOL_AUTO_TUNING tuned} thread
+     * pool before the pool grows.
+     * <p/>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent the default value is {@code 5}.
+     * <p/>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     */
+    public static final String THREADPOOL_TARGET_QUEUE_LATENCY =
+            "jersey.config.jetty.client.threadPool.targetQueueLatency";
+
 }
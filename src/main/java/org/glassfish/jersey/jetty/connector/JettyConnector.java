@@ -41,19 +41,25 @@ package org.glassfish.jersey.jetty.connector;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpContentResponse;
 import org.eclipse.jetty.client.api.*;
 import org.eclipse.jetty.client.util.BasicAuthentication;
 import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.FutureResponseListener;
 import org.eclipse.jetty.client.util.OutputStreamContentProvider;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.util.HttpCookieStore;
 import org.eclipse.jetty.util.Jetty;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.glassfish.jersey.SslConfigurator;
 import org.glassfish.jersey.client.*;
 import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
@@ -72,24 +78,40 @@ import java.net.CookieStore;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
 
 /**
  * A {@link Connector} that utilizes the Jetty HTTP Client to send and receive
  * HTTP request and responses.
  * <p/>
- * The following properties are only supported at construction of this class:
+ * The following properties are only supported at construction of this class, those marked with a {@code *} can
+ * also be changed on the running connector with {@link #reconfigure(Map)}:
  * <ul>
- * <li>{@link ClientProperties#ASYNC_THREADPOOL_SIZE}</li>
- * <li>{@link ClientProperties#CONNECT_TIMEOUT}</li>
+ * <li>{@link ClientProperties#ASYNC_THREADPOOL_SIZE} {@code *}</li>
+ * <li>{@link ClientProperties#CONNECT_TIMEOUT} {@code *}</li>
  * <li>{@link ClientProperties#FOLLOW_REDIRECTS}</li>
  * <li>{@link ClientProperties#PROXY_URI}</li>
  * <li>{@link ClientProperties#PROXY_USERNAME}</li>
@@ -98,6 +120,34 @@ import java.util.logging.Logger;
  * <li>{@link JettyClientProperties#SSL_CONFIG}</li>
  * <li>{@link JettyClientProperties#PREEMPTIVE_BASIC_AUTHENTICATION}</li>
  * <li>{@link JettyClientProperties#DISABLE_COOKIES}</li>
+ * <li>{@link JettyClientProperties#MAX_CONNECTIONS_PER_DESTINATION} {@code *}</li>
+ * <li>{@link JettyClientProperties#RATE_LIMIT} {@code *}</li>
+ * <li>{@link JettyClientProperties#RATE_LIMIT_BURST} {@code *}</li>
+ * <li>{@link JettyClientProperties#RATE_LIMIT_MAX_WAIT} {@code *}</li>
+ * <li>{@link JettyClientProperties#RATE_LIMIT_DESTINATIONS} {@code *}</li>
+ * <li>{@link JettyClientProperties#COALESCE_REQUESTS}</li>
+ * <li>{@link JettyClientProperties#COALESCE_VARY_HEADERS}</li>
+ * <li>{@link JettyClientProperties#PRIORITY_SCHEDULING}</li>
+ * <li>{@link JettyClientProperties#PRIORITY_RESERVED_SHARE} {@code *}</li>
+ * <li>{@link JettyClientProperties#BULKHEAD_MAX_CONCURRENT}</li>
+ * <li>{@link JettyClientProperties#BULKHEAD_THREADS}</li>
+ * <li>{@link JettyClientProperties#BULKHEAD_GROUPS}</li>
+ * <li>{@link JettyClientProperties#BULKHEAD_LIMITS}</li>
+ * <li>{@link JettyClientProperties#CACHE_MAX_SIZE}</li>
+ * <li>{@link JettyClientProperties#CACHE_DIRECTORY}</li>
+ * <li>{@link JettyClientProperties#CACHE_DISK_MAX_SIZE}</li>
+ * <li>{@link JettyClientProperties#CACHE_DISK_SEGMENT_SIZE}</li>
+ * <li>{@link JettyClientProperties#CACHE_STALE_WHILE_REVALIDATE}</li>
+ * <li>{@link JettyClientProperties#CACHE_STALE_IF_ERROR}</li>
+ * <li>{@link JettyClientProperties#START_MODE}</li>
+ * <li>{@link JettyClientProperties#VIRTUAL_THREADS}</li>
+ * <li>{@link JettyClientProperties#CALLBACK_DISPATCH}</li>
+ * <li>{@link JettyClientProperties#CALLBACK_EXECUTOR}</li>
+ * <li>{@link JettyClientProperties#CALLBACK_TIME_BUDGET}</li>
+ * <li>{@link JettyClientProperties#THREADPOOL_AUTO_TUNING}</li>
+ * <li>{@link JettyClientProperties#THREADPOOL_MIN_THREADS}</li>
+ * <li>{@link JettyClientProperties#THREADPOOL_MAX_THREADS}</li>
+ * <li>{@link JettyClientProperties#THREADPOOL_TARGET_QUEUE_LATENCY}</li>
  * </ul>
  * <p/>
  * This transport supports both synchronous and asynchronous processing of client requests.
@@ -130,8 +180,43 @@ public class JettyConnector implements Connector {
 
     private static final Logger LOGGER = Logger.getLogger(JettyConnector.class.getName());
 
+    private static final Set<String> RECONFIGURABLE = new HashSet<String>(Arrays.asList(
+            ClientProperties.CONNECT_TIMEOUT,
+            ClientProperties.READ_TIMEOUT,
+            ClientProperties.ASYNC_THREADPOOL_SIZE,
+            JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION,
+            JettyClientProperties.PRIORITY_RESERVED_SHARE,
+            JettyClientProperties.RATE_LIMIT,
+            JettyClientProperties.RATE_LIMIT_BURST,
+            JettyClientProperties.RATE_LIMIT_MAX_WAIT,
+            JettyClientProperties.RATE_LIMIT_DESTINATIONS));
+
     private final HttpClient client;
-    private final CookieStore cookieStore;
+    // executor of the client when its size is tuned, null otherwise
+    private final TunedThreadPool tunedThreadPool;
+    // starts the client once, see JettyClientProperties.START_MODE
+    private final FutureTask<Void> start;
+    // held while the client is being started, so that close() waits for a start in progress
+    private final ReentrantLock starting = new ReentrantLock();
+    // serializes the reconfigurations, the requests read the reconfigured fields without locking
+    private final ReentrantLock reconfiguration = new ReentrantLock();
+    // current values of the reconfigurable properties, guarded by reconfiguration
+    private final Map<String, Object> settings = new HashMap<String, Object>();
+    private volatile RateLimiter rateLimiter;
+    // overrides the read timeout of the client configuration once reconfigured
+    private volatile Integer readTimeout;
+    private final RequestCoalescer coalescer;
+    private final PriorityDispatcher priorityDispatcher;
+    private final Bulkheads bulkheads;
+    private final CallbackDispatcher callbackDispatcher;
+    private final ResponseCache cache;
+    private final ContentDecoders contentDecoders;
+    private final RequestCompressor compressor;
+    private final ConnectorMetrics metrics;
+    private final boolean requestTimings;
+    private final DiagnosticRecorder diagnostics;
+    private final ResourceAccounting accounting;
+    private final ConnectorListener[] listeners;
 
     /**
      * Create the new Jetty client connector.
@@ -143,9 +228,16 @@ public class JettyConnector implements Connector {
         if (config != null) {
             sslConfig = PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.SSL_CONFIG, SslConfigurator.class);
         }
-        if (sslConfig != null) {
-            final SslContextFactory sslContextFactory = new SslContextFactory();
-            sslContextFactory.setSslContext(sslConfig.createSSLContext());
+        this.diagnostics = createDiagnostics(config);
+        this.listeners = getListeners(config, diagnostics);
+        final StartMode startMode = getStartMode(config);
+        final boolean virtualThreads = useVirtualThreads(config);
+        this.tunedThreadPool = virtualThreads ? null : createTunedThreadPool(config);
+        // the SSL context is created when the client is started
+        final SslContextFactory sslContextFactory = sslConfig != null ? new SslContextFactory() : null;
+        if (listeners != null) {
+            this.client = ListenerDispatcher.newHttpClient(sslContextFactory, listeners);
+        } else if (sslContextFactory != null) {
             this.client = new HttpClient(sslContextFactory);
         } else {
             this.client = new HttpClient();
@@ -157,12 +249,21 @@ public class JettyConnector implements Connector {
                 client.setConnectTimeout((Integer) connectTimeout);
             }
             final Object threadPoolSize = config.getProperties().get(ClientProperties.ASYNC_THREADPOOL_SIZE);
-            if (threadPoolSize != null && threadPoolSize instanceof Integer && (Integer) threadPoolSize > 0) {
+            if (virtualThreads) {
+                client.setExecutor(VirtualThreads.newExecutor(HttpClient.class.getSimpleName() + "@" + hashCode() + "-"));
+            } else if (tunedThreadPool != null) {
+                tunedThreadPool.setName(HttpClient.class.getSimpleName() + "@" + hashCode());
+                client.setExecutor(tunedThreadPool);
+            } else if (threadPoolSize != null && threadPoolSize instanceof Integer && (Integer) threadPoolSize > 0) {
                 final String name = HttpClient.class.getSimpleName() + "@" + hashCode();
                 final QueuedThreadPool threadPool = new QueuedThreadPool((Integer) threadPoolSize);
                 threadPool.setName(name);
                 client.setExecutor(threadPool);
             }
+            final Object maxConnections = config.getProperties().get(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION);
+            if (maxConnections != null && maxConnections instanceof Integer && (Integer) maxConnections > 0) {
+                client.setMaxConnectionsPerDestination((Integer) maxConnections);
+            }
             Boolean disableCookies = (Boolean) config.getProperties().get(JettyClientProperties.DISABLE_COOKIES);
             disableCookies = (disableCookies != null) ? disableCookies : false;
 
@@ -185,12 +286,374 @@ public class JettyConnector implements Connector {
 
         }
 
+        this.compressor = createCompressor(config);
+        this.cache = createCache(config);
+        this.contentDecoders = createContentDecoders(config);
+        final SslConfigurator ssl = sslConfig;
+        this.start = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                startClient(sslContextFactory, ssl);
+                return null;
+            }
+        });
+        if (startMode == StartMode.EAGER) {
+            try {
+                ensureStarted();
+            } catch (ProcessingException e) {
+                if (cache != null) {
+                    cache.close();
+                }
+                if (contentDecoders != null) {
+                    contentDecoders.close();
+                }
+                throw e;
+            }
+        }
+        if (config != null) {
+            for (String name : RECONFIGURABLE) {
+                if (config.getProperty(name) != null) {
+                    settings.put(name, config.getProperty(name));
+                }
+            }
+        }
+        this.rateLimiter = createRateLimiter(settings);
+        this.coalescer = createCoalescer(config);
+        this.priorityDispatcher = createPriorityDispatcher(config, client.getMaxConnectionsPerDestination());
+        this.bulkheads = createBulkheads(config, virtualThreads);
+        this.callbackDispatcher = createCallbackDispatcher(config);
+        this.accounting = config != null
+                && PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.ACCOUNTING, false, Boolean.class)
+                ? new ResourceAccounting() : null;
+        this.metrics = createMetrics(config);
+        this.requestTimings = config != null
+                && PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.REQUEST_TIMINGS, false, Boolean.class);
+        if (startMode == StartMode.BACKGROUND) {
+            final Thread thread = new Thread(start, JettyConnector.class.getSimpleName() + "@"
+                    + Integer.toHexString(hashCode()) + "-start");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private static boolean useVirtualThreads(final Configuration config) {
+        if (config == null
+                || !PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.VIRTUAL_THREADS, false, Boolean.class)) {
+            return false;
+        }
+        if (!VirtualThreads.isAvailable()) {
+            LOGGER.warning("Virtual threads are not available on Java " + System.getProperty("java.version")
+                    + ", falling back to the thread pool.");
+            return false;
+        }
+        return true;
+    }
+
+    private static TunedThreadPool createTunedThreadPool(final Configuration config) {
+        if (config == null || !PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.THREADPOOL_AUTO_TUNING, false, Boolean.class)) {
+            return null;
+        }
+        final Map<String, Object> properties = config.getProperties();
+        final int minThreads = getInteger(properties, JettyClientProperties.THREADPOOL_MIN_THREADS, 8, 1);
+        final int maxThreads = getInteger(properties, JettyClientProperties.THREADPOOL_MAX_THREADS, 200, minThreads);
+        final int target = getInteger(properties, JettyClientProperties.THREADPOOL_TARGET_QUEUE_LATENCY, 5, 0);
+        return new TunedThreadPool(minThreads, maxThreads, target);
+    }
+
+    private static int getInteger(final Map<String, ?> properties, final String name, final int defaultValue,
+                                  final int min) {
+        final Integer value = getInteger(properties, name, min);
+        return value != null ? value : defaultValue;
+    }
+
+    private static StartMode getStartMode(final Configuration config) {
+        final Object mode = config != null ? config.getProperty(JettyClientProperties.START_MODE) : null;
+        if (mode == null) {
+            return StartMode.EAGER;
+        } else if (mode instanceof StartMode) {
+            return (StartMode) mode;
+        } else if (mode instanceof String) {
+            try {
+                return StartMode.valueOf(((String) mode).trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                // reported below
+            }
+        }
+        throw new ProcessingException(LocalizationMessages.WRONG_START_MODE(mode));
+    }
+
+    private void startClient(final SslContextFactory sslContextFactory, final SslConfigurator sslConfig)
+            throws Exception {
+        starting.lock();
         try {
+            if (start.isCancelled()) {
+                // closed before the start began
+                return;
+            }
+            final long started = System.nanoTime();
+            if (sslContextFactory != null) {
+                sslContextFactory.setSslContext(sslConfig.createSSLContext());
+            }
             client.start();
-        } catch (Exception e) {
-            throw new ProcessingException("Failed to start the client.", e);
+            if (contentDecoders != null) {
+                ContentDecoders.disableClientDecoding(client);
+            }
+            if (tunedThreadPool != null) {
+                tunedThreadPool.scheduleTuning(client.getScheduler());
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Started " + getName() + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms.");
+            }
+        } finally {
+            starting.unlock();
+        }
+    }
+
+    /**
+     * Start the client unless it is already started, or wait for a start in progress.
+     *
+     * @throws ProcessingException if the client failed to start or the connector is closed.
+     */
+    private void ensureStarted() throws ProcessingException {
+        // no-op once the start has completed or while another thread runs it
+        start.run();
+        try {
+            start.get();
+        } catch (ExecutionException e) {
+            throw new ProcessingException("Failed to start the client.", e.getCause());
+        } catch (CancellationException e) {
+            throw new ProcessingException(LocalizationMessages.CONNECTOR_CLOSED());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        }
+    }
+
+    private static RateLimiter createRateLimiter(final Map<String, Object> properties) {
+        final Object rateLimit = properties.get(JettyClientProperties.RATE_LIMIT);
+        final double rate = rateLimit instanceof Number ? ((Number) rateLimit).doubleValue() : 0;
+        final Map<String, Double> destinationRates = new HashMap<String, Double>();
+        final Object rates = properties.get(JettyClientProperties.RATE_LIMIT_DESTINATIONS);
+        if (rates instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) rates).entrySet()) {
+                if (e.getValue() instanceof Number) {
+                    destinationRates.put(getDestination(URI.create(e.getKey().toString())),
+                            ((Number) e.getValue()).doubleValue());
+                }
+            }
+        }
+        if (rate <= 0 && destinationRates.isEmpty()) {
+            return null;
+        }
+        final int burst = PropertiesHelper.getValue(properties, JettyClientProperties.RATE_LIMIT_BURST, 1, Integer.class);
+        final int maxWait = PropertiesHelper.getValue(properties, JettyClientProperties.RATE_LIMIT_MAX_WAIT, -1, Integer.class);
+        return new RateLimiter(rate, burst, maxWait, destinationRates);
+    }
+
+    private static RequestCoalescer createCoalescer(final Configuration config) {
+        if (config == null || !PropertiesHelper.isProperty(config.getProperties(), JettyClientProperties.COALESCE_REQUESTS)) {
+            return null;
+        }
+        final Object varyHeaders = config.getProperty(JettyClientProperties.COALESCE_VARY_HEADERS);
+        if (varyHeaders instanceof Collection) {
+            final List<String> headers = new ArrayList<String>();
+            for (Object header : (Collection<?>) varyHeaders) {
+                headers.add(header.toString());
+            }
+            return new RequestCoalescer(headers);
+        } else if (varyHeaders instanceof String) {
+            return new RequestCoalescer(Arrays.asList(((String) varyHeaders).split(",")));
+        }
+        return new RequestCoalescer(RequestCoalescer.DEFAULT_VARY_HEADERS);
+    }
+
+    private static PriorityDispatcher createPriorityDispatcher(final Configuration config, final int permits) {
+        if (config == null || !PropertiesHelper.isProperty(config.getProperties(), JettyClientProperties.PRIORITY_SCHEDULING)) {
+            return null;
+        }
+        final Object share = config.getProperty(JettyClientProperties.PRIORITY_RESERVED_SHARE);
+        return new PriorityDispatcher(permits, share instanceof Number ? ((Number) share).doubleValue() : 0.2);
+    }
+
+    private static Bulkheads createBulkheads(final Configuration config, final boolean virtualThreads) {
+        if (config == null) {
+            return null;
+        }
+        final Map<String, Object> properties = config.getProperties();
+        final int maxConcurrent = PropertiesHelper.getValue(properties, JettyClientProperties.BULKHEAD_MAX_CONCURRENT, 0, Integer.class);
+        if (maxConcurrent <= 0) {
+            return null;
+        }
+        final int threads = PropertiesHelper.getValue(properties, JettyClientProperties.BULKHEAD_THREADS, 0, Integer.class);
+        final Map<String, String> groups = new HashMap<String, String>();
+        final Object groupsValue = properties.get(JettyClientProperties.BULKHEAD_GROUPS);
+        if (groupsValue instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) groupsValue).entrySet()) {
+                groups.put(getDestination(URI.create(e.getKey().toString())), e.getValue().toString());
+            }
+        }
+        final Map<String, Integer> limits = new HashMap<String, Integer>();
+        final Object limitsValue = properties.get(JettyClientProperties.BULKHEAD_LIMITS);
+        if (limitsValue instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) limitsValue).entrySet()) {
+                if (e.getValue() instanceof Number) {
+                    final String key = e.getKey().toString();
+                    limits.put(key.contains("://") ? getDestination(URI.create(key)) : key, ((Number) e.getValue()).intValue());
+                }
+            }
+        }
+        return new Bulkheads(maxConcurrent, threads, virtualThreads, groups, limits);
+    }
+
+    private CallbackDispatcher createCallbackDispatcher(final Configuration config) {
+        final Object executor = config != null ? config.getProperty(JettyClientProperties.CALLBACK_EXECUTOR) : null;
+        final int budget = config != null ? PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.CALLBACK_TIME_BUDGET, 5, Integer.class) : 5;
+        return new CallbackDispatcher(getCallbackDispatch(config), executor instanceof Executor ? (Executor) executor : new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                // the executor of the client is created when it starts
+                client.getExecutor().execute(command);
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(budget));
+    }
+
+    private static CallbackDispatch getCallbackDispatch(final Configuration config) {
+        final Object dispatch = config != null ? config.getProperty(JettyClientProperties.CALLBACK_DISPATCH) : null;
+        if (dispatch == null) {
+            return CallbackDispatch.INLINE;
+        } else if (dispatch instanceof CallbackDispatch) {
+            return (CallbackDispatch) dispatch;
+        } else if (dispatch instanceof String) {
+            try {
+                return CallbackDispatch.valueOf(((String) dispatch).trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                // reported below
+            }
+        }
+        throw new ProcessingException(LocalizationMessages.WRONG_CALLBACK_DISPATCH(dispatch));
+    }
+
+    private static ResponseCache createCache(final Configuration config) {
+        if (config == null) {
+            return null;
+        }
+        final Object maxSize = config.getProperty(JettyClientProperties.CACHE_MAX_SIZE);
+        final long memorySize = maxSize instanceof Number ? Math.max(0, ((Number) maxSize).longValue()) : 0;
+        final Object directory = config.getProperty(JettyClientProperties.CACHE_DIRECTORY);
+        DiskCache disk = null;
+        if (directory != null) {
+            final File dir = directory instanceof File ? (File) directory : new File(directory.toString());
+            final Object diskSize = config.getProperty(JettyClientProperties.CACHE_DISK_MAX_SIZE);
+            final Object segmentSize = config.getProperty(JettyClientProperties.CACHE_DISK_SEGMENT_SIZE);
+            try {
+                disk = new DiskCache(dir,
+                        diskSize instanceof Number ? ((Number) diskSize).longValue() : 1024L * 1024 * 1024,
+                        segmentSize instanceof Number
+                                ? (int) Math.min(Integer.MAX_VALUE, ((Number) segmentSize).longValue()) : 64 * 1024 * 1024,
+                        ContentDecoders.getDecodedCodings(PropertiesHelper.getValue(config.getProperties(),
+                                JettyClientProperties.DECODE_CONTENT, false, Boolean.class)));
+            } catch (IOException e) {
+                throw new ProcessingException(LocalizationMessages.CACHE_DIRECTORY_FAILED(dir), e);
+            }
+        }
+        if (memorySize == 0 && disk == null) {
+            return null;
+        }
+        final int staleWhileRevalidate = PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.CACHE_STALE_WHILE_REVALIDATE, 0, Integer.class);
+        final int staleIfError = PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.CACHE_STALE_IF_ERROR, 0, Integer.class);
+        return new ResponseCache(memorySize, disk,
+                TimeUnit.SECONDS.toMillis(staleWhileRevalidate), TimeUnit.SECONDS.toMillis(staleIfError));
+    }
+
+    private static ContentDecoders createContentDecoders(final Configuration config) {
+        if (config == null
+                || !PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.DECODE_CONTENT, false, Boolean.class)) {
+            return null;
+        }
+        final Object maxSize = config.getProperty(JettyClientProperties.DECODE_CONTENT_MAX_SIZE);
+        return new ContentDecoders(
+                maxSize instanceof Number ? ((Number) maxSize).longValue() : ContentDecoders.DEFAULT_MAX_SIZE);
+    }
+
+    private static RequestCompressor createCompressor(final Configuration config) {
+        if (config == null) {
+            return null;
+        }
+        final Object threshold = config.getProperty(JettyClientProperties.REQUEST_COMPRESSION_THRESHOLD);
+        if (!(threshold instanceof Number) || ((Number) threshold).intValue() < 0) {
+            return null;
+        }
+        final int level = PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.REQUEST_COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION, Integer.class);
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new ProcessingException(LocalizationMessages.WRONG_COMPRESSION_LEVEL(level));
+        }
+        return new RequestCompressor(((Number) threshold).intValue(), level);
+    }
+
+    private static DiagnosticRecorder createDiagnostics(final Configuration config) {
+        if (config == null) {
+            return null;
+        }
+        final int capacity = PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.DIAGNOSTICS_CAPACITY,
+                0, Integer.class);
+        if (capacity <= 0) {
+            return null;
+        }
+        final int bodyBytes = PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.DIAGNOSTICS_BODY_BYTES,
+                256, Integer.class);
+        final int threshold = PropertiesHelper.getValue(config.getProperties(),
+                JettyClientProperties.DIAGNOSTICS_SLOW_THRESHOLD, 1000, Integer.class);
+        final int sampling = PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.DIAGNOSTICS_SAMPLING,
+                1, Integer.class);
+        final Object sensitiveHeaders = config.getProperty(JettyClientProperties.DIAGNOSTICS_SENSITIVE_HEADERS);
+        final List<String> headers = new ArrayList<String>(DiagnosticRecorder.SENSITIVE_HEADERS);
+        if (sensitiveHeaders instanceof Collection) {
+            for (Object header : (Collection<?>) sensitiveHeaders) {
+                headers.add(header.toString());
+            }
+        } else if (sensitiveHeaders instanceof String) {
+            headers.addAll(Arrays.asList(((String) sensitiveHeaders).split(",")));
         }
-        this.cookieStore = client.getCookieStore();
+        return new DiagnosticRecorder(capacity, Math.max(0, bodyBytes), TimeUnit.MILLISECONDS.toNanos(threshold), sampling,
+                headers);
+    }
+
+    private static ConnectorListener[] getListeners(final Configuration config, final DiagnosticRecorder diagnostics) {
+        final Object value = config != null ? config.getProperties().get(JettyClientProperties.LISTENERS) : null;
+        final List<ConnectorListener> listeners = new ArrayList<ConnectorListener>();
+        if (value instanceof ConnectorListener) {
+            listeners.add((ConnectorListener) value);
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            final Collection<?> values = value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+            for (Object listener : values) {
+                if (!(listener instanceof ConnectorListener)) {
+                    throw new ProcessingException(LocalizationMessages.WRONG_LISTENER(listener));
+                }
+                listeners.add((ConnectorListener) listener);
+            }
+        } else if (value != null) {
+            throw new ProcessingException(LocalizationMessages.WRONG_LISTENER(value));
+        }
+        if (diagnostics != null) {
+            listeners.add(diagnostics);
+        }
+        return listeners.isEmpty() ? null : listeners.toArray(new ConnectorListener[listeners.size()]);
+    }
+
+    private ConnectorMetrics createMetrics(final Configuration config) {
+        if (config == null
+                || !PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.METRICS, false, Boolean.class)) {
+            return null;
+        }
+        final String name = PropertiesHelper.getValue(config.getProperties(), JettyClientProperties.METRICS_NAME,
+                JettyConnector.class.getSimpleName() + "@" + Integer.toHexString(hashCode()), String.class);
+        return new ConnectorMetrics(client, name, accounting, callbackDispatcher);
     }
 
     private static URI getProxyUri(final Object proxy) {
@@ -204,7 +667,126 @@ public class JettyConnector implements Connector {
     }
 
     /**
-     * Get the {@link HttpClient}.
+     * Get the key identifying the destination of a request URI, e.g. {@code http://localhost:8080}.
+     *
+     * @param uri request URI.
+     * @return destination key.
+     */
+    static String getDestination(final URI uri) {
+        final String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equals(scheme) ? 443 : 80;
+        }
+        return scheme + "://" + (uri.getHost() == null ? "" : uri.getHost().toLowerCase()) + ":" + port;
+    }
+
+    /**
+     * Apply new values of connector properties to the running connector, keeping its pooled connections.
+     * <p/>
+     * The following properties can be reconfigured:
+     * <ul>
+     * <li>{@link ClientProperties#CONNECT_TIMEOUT}, for the connections opened from now on</li>
+     * <li>{@link ClientProperties#READ_TIMEOUT}, for the requests sent from now on, {@code 0} for no timeout</li>
+     * <li>{@link ClientProperties#ASYNC_THREADPOOL_SIZE}, the maximum number of threads of the client executor</li>
+     * <li>{@link JettyClientProperties#MAX_CONNECTIONS_PER_DESTINATION}, also the permits of the priority
+     * scheduling; connections above a lowered maximum stay open until they time out idle</li>
+     * <li>{@link JettyClientProperties#PRIORITY_RESERVED_SHARE}, if priority scheduling is enabled</li>
+     * <li>{@link JettyClientProperties#RATE_LIMIT}, {@link JettyClientProperties#RATE_LIMIT_BURST},
+     * {@link JettyClientProperties#RATE_LIMIT_MAX_WAIT} and {@link JettyClientProperties#RATE_LIMIT_DESTINATIONS},
+     * which enable, change or disable the rate limiting as a whole, with new token buckets</li>
+     * </ul>
+     * All the given values are validated before any is applied, so that a rejected reconfiguration changes nothing.
+     * Properties not given keep their current value, requests already sent keep the settings they were sent with.
+     *
+     * @param properties new property values keyed by property name.
+     * @throws ProcessingException if a property cannot be reconfigured or has an invalid value.
+     */
+    public void reconfigure(final Map<String, ?> properties) throws ProcessingException {
+        ensureStarted();
+        reconfiguration.lock();
+        try {
+            for (Map.Entry<String, ?> e : properties.entrySet()) {
+                if (!RECONFIGURABLE.contains(e.getKey())) {
+                    throw new ProcessingException(LocalizationMessages.PROPERTY_NOT_RECONFIGURABLE(e.getKey()));
+                }
+                if (e.getValue() == null) {
+                    throw new ProcessingException(LocalizationMessages.WRONG_PROPERTY_VALUE(e.getKey(), null));
+                }
+            }
+            final Integer connectTimeout = getInteger(properties, ClientProperties.CONNECT_TIMEOUT, 1);
+            final Integer newReadTimeout = getInteger(properties, ClientProperties.READ_TIMEOUT, 0);
+            final Integer threads = getInteger(properties, ClientProperties.ASYNC_THREADPOOL_SIZE, 1);
+            final Integer maxConnections = getInteger(properties, JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, 1);
+            final Object share = properties.get(JettyClientProperties.PRIORITY_RESERVED_SHARE);
+            if (share != null && !(share instanceof Number && ((Number) share).doubleValue() >= 0
+                    && ((Number) share).doubleValue() <= 1)) {
+                throw new ProcessingException(
+                        LocalizationMessages.WRONG_PROPERTY_VALUE(JettyClientProperties.PRIORITY_RESERVED_SHARE, share));
+            }
+            if (threads != null && (!(client.getExecutor() instanceof QueuedThreadPool) || tunedThreadPool != null)) {
+                throw new ProcessingException(
+                        LocalizationMessages.PROPERTY_NOT_RECONFIGURABLE(ClientProperties.ASYNC_THREADPOOL_SIZE));
+            }
+            final Map<String, Object> merged = new HashMap<String, Object>(settings);
+            merged.putAll(properties);
+            final boolean rateLimits = properties.containsKey(JettyClientProperties.RATE_LIMIT)
+                    || properties.containsKey(JettyClientProperties.RATE_LIMIT_BURST)
+                    || properties.containsKey(JettyClientProperties.RATE_LIMIT_MAX_WAIT)
+                    || properties.containsKey(JettyClientProperties.RATE_LIMIT_DESTINATIONS);
+            RateLimiter limiter = rateLimiter;
+            if (rateLimits) {
+                try {
+                    limiter = createRateLimiter(merged);
+                } catch (IllegalArgumentException e) {
+                    throw new ProcessingException(LocalizationMessages.WRONG_PROPERTY_VALUE(
+                            JettyClientProperties.RATE_LIMIT_DESTINATIONS,
+                            merged.get(JettyClientProperties.RATE_LIMIT_DESTINATIONS)), e);
+                }
+            }
+
+            if (connectTimeout != null) {
+                client.setConnectTimeout(connectTimeout);
+            }
+            if (newReadTimeout != null) {
+                readTimeout = newReadTimeout;
+            }
+            if (threads != null) {
+                final QueuedThreadPool executor = (QueuedThreadPool) client.getExecutor();
+                executor.setMinThreads(Math.min(executor.getMinThreads(), threads));
+                executor.setMaxThreads(threads);
+            }
+            if (maxConnections != null) {
+                client.setMaxConnectionsPerDestination(maxConnections);
+            }
+            if (priorityDispatcher != null && (maxConnections != null || share != null)) {
+                priorityDispatcher.setLimits(client.getMaxConnectionsPerDestination(),
+                        share != null ? ((Number) share).doubleValue() : priorityDispatcher.getReservedShare());
+            }
+            if (rateLimits) {
+                rateLimiter = limiter;
+            }
+            settings.clear();
+            settings.putAll(merged);
+        } finally {
+            reconfiguration.unlock();
+        }
+    }
+
+    private static Integer getInteger(final Map<String, ?> properties, final String name, final int min) {
+        final Object value = properties.get(name);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Integer) || (Integer) value < min) {
+            throw new ProcessingException(LocalizationMessages.WRONG_PROPERTY_VALUE(name, value));
+        }
+        return (Integer) value;
+    }
+
+    /**
+     * Get the {@link HttpClient}. The client is not started yet when the connector starts it
+     * {@link StartMode#LAZY lazily} or in the {@link StartMode#BACKGROUND background}.
      *
      * @return the {@link HttpClient}.
      */
@@ -212,6 +794,113 @@ public class JettyConnector implements Connector {
         return client;
     }
 
+    /**
+     * Get the queueing statistics of each request priority class.
+     *
+     * @return statistics keyed by request priority, or an empty map when
+     *         {@link JettyClientProperties#PRIORITY_SCHEDULING} is not enabled.
+     */
+    public Map<RequestPriority, PriorityQueueStatistics> getPriorityQueueStatistics() {
+        if (priorityDispatcher == null) {
+            return Collections.emptyMap();
+        }
+        return priorityDispatcher.getStatistics();
+    }
+
+    /**
+     * Get the dispatch and execution times of the asynchronous request callbacks.
+     *
+     * @return callback statistics.
+     * @see JettyClientProperties#CALLBACK_DISPATCH
+     */
+    public CallbackStatistics getCallbackStatistics() {
+        return callbackDispatcher.getStatistics();
+    }
+
+    /**
+     * Get the state and the tuning decisions of the thread pool.
+     *
+     * @return thread pool statistics, or {@code null} when {@link JettyClientProperties#THREADPOOL_AUTO_TUNING}
+     *         is not enabled.
+     */
+    public ThreadPoolStatistics getThreadPoolStatistics() {
+        return tunedThreadPool != null ? tunedThreadPool.getStatistics() : null;
+    }
+
+    /**
+     * Get the utilization of each bulkhead.
+     *
+     * @return statistics keyed by bulkhead name, i.e. destination or group name, or an empty map when
+     *         {@link JettyClientProperties#BULKHEAD_MAX_CONCURRENT} is not set.
+     */
+    public Map<String, BulkheadStatistics> getBulkheadStatistics() {
+        if (bulkheads == null) {
+            return Collections.emptyMap();
+        }
+        return bulkheads.getStatistics();
+    }
+
+    /**
+     * Get the hit, miss and eviction counts of the response cache.
+     *
+     * @return cache statistics, or {@code null} when {@link JettyClientProperties#CACHE_MAX_SIZE} is not set.
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache != null ? cache.getStatistics() : null;
+    }
+
+    /**
+     * Get the number of compressed request entities, the network bytes saved and the CPU time spent
+     * compressing them.
+     *
+     * @return compression statistics, or {@code null} when
+     *         {@link JettyClientProperties#REQUEST_COMPRESSION_THRESHOLD} is not set.
+     */
+    public CompressionStatistics getCompressionStatistics() {
+        return compressor != null ? compressor.getStatistics() : null;
+    }
+
+    /**
+     * Get the CPU time and memory allocated by the connector threads for the requests to a destination.
+     *
+     * @param destination destination in the {@code scheme://host:port} form, e.g. {@code http://localhost:8080}.
+     * @return resource usage by {@link JettyClientProperties#REQUEST_ROUTE route}, or {@code null} when
+     *         {@link JettyClientProperties#ACCOUNTING} is not enabled.
+     */
+    public Map<String, ResourceUsageStatistics> getResourceUsage(final String destination) {
+        return accounting != null ? accounting.getStatistics(destination) : null;
+    }
+
+    /**
+     * Get the diagnostic records of the recent requests.
+     *
+     * @return records, oldest first, or {@code null} when {@link JettyClientProperties#DIAGNOSTICS_CAPACITY}
+     *         is not set.
+     */
+    public List<DiagnosticRecord> getDiagnosticRecords() {
+        return diagnostics != null ? diagnostics.getRecords() : null;
+    }
+
+    /**
+     * Get the request and connection metrics of the connector, also exported through JMX.
+     *
+     * @return connector metrics, or {@code null} when {@link JettyClientProperties#METRICS} is not enabled.
+     */
+    public ConnectorMetricsMXBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the latency histograms and the request and connection gauges of a destination.
+     *
+     * @param destination destination in the {@code scheme://host:port} form, e.g. {@code http://localhost:8080}.
+     * @return destination metrics, or {@code null} when {@link JettyClientProperties#METRICS} is not enabled
+     *         or no request was sent to the destination.
+     */
+    public DestinationMetricsMXBean getDestinationMetrics(final String destination) {
+        return metrics != null ? metrics.getDestination(destination) : null;
+    }
+
     /**
      * Get the {@link CookieStore}.
      *
@@ -219,39 +908,327 @@ public class JettyConnector implements Connector {
      *         JettyClientProperties.DISABLE_COOKIES set to true.
      */
     public CookieStore getCookieStore() {
-        return cookieStore;
+        ensureStarted();
+        return client.getCookieStore();
     }
 
     @Override
     public ClientResponse apply(final ClientRequest jerseyRequest) throws ProcessingException {
+        ensureStarted();
+        final ResourceAccounting.Account account = beginAccount(jerseyRequest);
+        try {
+            return execute(jerseyRequest, account);
+        } finally {
+            if (account != null) {
+                account.end();
+            }
+        }
+    }
+
+    private ResourceAccounting.Account beginAccount(final ClientRequest jerseyRequest) {
+        return accounting != null ? accounting.begin(getDestination(jerseyRequest.getUri()),
+                jerseyRequest.resolveProperty(JettyClientProperties.REQUEST_ROUTE, String.class)) : null;
+    }
+
+    private ClientResponse execute(final ClientRequest jerseyRequest, final ResourceAccounting.Account account)
+            throws ProcessingException {
+        final ResponseCache.Entry cached = cache != null ? cache.get(jerseyRequest) : null;
+        if (cached != null) {
+            refresh(jerseyRequest, cached);
+            return translateResponse(jerseyRequest, cached);
+        }
+
+        final String flightKey = coalescer != null ? coalescer.getKey(jerseyRequest) : null;
+        if (flightKey == null) {
+            return translateResponse(jerseyRequest, send(jerseyRequest, account));
+        }
+
+        final RequestCoalescer.Flight flight = coalescer.join(flightKey);
+        if (!flight.isLeader()) {
+            return translateResponse(jerseyRequest, flight.await(getReadTimeout(jerseyRequest)));
+        }
+        try {
+            final ContentResponse jettyResponse = send(jerseyRequest, account);
+            flight.complete(jettyResponse);
+            return translateResponse(jerseyRequest, jettyResponse);
+        } catch (RuntimeException e) {
+            flight.fail(e);
+            throw e;
+        } catch (Error e) {
+            flight.fail(e);
+            throw e;
+        }
+    }
+
+    private ContentResponse send(final ClientRequest jerseyRequest, final ResourceAccounting.Account account)
+            throws ProcessingException {
+        final RequestTimings timings = startTimings(jerseyRequest);
         final Request jettyRequest = translateRequest(jerseyRequest);
-        final ContentProvider entity = getBytesProvider(jerseyRequest);
+        if (timings != null) {
+            timings.attach(jettyRequest);
+        }
+        attachListeners(jerseyRequest, jettyRequest);
+        final ContentProvider entity = getBytesProvider(jerseyRequest, jettyRequest);
         if (entity != null) {
             jettyRequest.content(entity);
         }
+        final ResponseCache.Entry stale = cache != null ? cache.getStale(jerseyRequest) : null;
+        if (stale != null) {
+            cache.addValidators(stale, jettyRequest);
+        }
 
+        final String destination = getDestination(jettyRequest.getURI());
+        final Bulkhead.Permit bulkheadPermit = newBulkheadPermit(jerseyRequest, destination);
+        PriorityDispatcher.Ticket ticket = null;
         try {
-            final ContentResponse jettyResponse = jettyRequest.send();
-            final javax.ws.rs.core.Response.StatusType status = jettyResponse.getReason() == null ?
-                    Statuses.from(jettyResponse.getStatus()) :
-                    Statuses.from(jettyResponse.getStatus(), jettyResponse.getReason());
+            // the bulkhead slot is not held while waiting for the rate limit
+            awaitPermit(destination);
+            acquireBulkhead(bulkheadPermit);
+            ticket = awaitAdmission(jerseyRequest, destination);
+            final long requestTime = System.currentTimeMillis();
+            final DestinationMetrics destinationMetrics =
+                    metrics != null ? metrics.forDestination(destination, jettyRequest.getURI()) : null;
+            final long begin = destinationMetrics != null ? destinationMetrics.begin() : 0;
+            int status = -1;
+            final ContentResponse jettyResponse;
+            try {
+                final FutureResponseListener listener = contentDecoders != null
+                        ? contentDecoders.newResponseListener(jettyRequest) : new FutureResponseListener(jettyRequest);
+                jettyRequest.send(account != null ? account.wrap(listener) : listener);
+                jettyResponse = awaitResponse(jettyRequest, listener);
+                status = jettyResponse.getStatus();
+            } catch (ExecutionException e) {
+                if (stale != null && cache.isUsableOnError(jerseyRequest, stale)) {
+                    return new HttpContentResponse(stale, stale.getBodyBytes(), null);
+                }
+                throw e;
+            } catch (TimeoutException e) {
+                if (stale != null && cache.isUsableOnError(jerseyRequest, stale)) {
+                    return new HttpContentResponse(stale, stale.getBodyBytes(), null);
+                }
+                throw e;
+            } finally {
+                if (destinationMetrics != null) {
+                    destinationMetrics.end(status, begin);
+                }
+            }
+            final RateLimiter limiter = rateLimiter;
+            if (limiter != null) {
+                limiter.onResponse(destination, jettyResponse.getStatus(), jettyResponse.getHeaders());
+            }
+            if (stale != null && jettyResponse.getStatus() == HttpStatus.NOT_MODIFIED_304) {
+                final ResponseCache.Entry revalidated =
+                        cache.revalidate(jerseyRequest, stale, jettyResponse, requestTime, System.currentTimeMillis());
+                return new HttpContentResponse(revalidated, revalidated.getBodyBytes(), null);
+            }
+            if (stale != null && ResponseCache.isServerError(jettyResponse.getStatus())
+                    && cache.isUsableOnError(jerseyRequest, stale)) {
+                return new HttpContentResponse(stale, stale.getBodyBytes(), null);
+            }
+            if (cache != null) {
+                cache.store(jerseyRequest, jettyResponse, jettyResponse.getContent(), requestTime, System.currentTimeMillis());
+            }
+            return jettyResponse;
+        } catch (ProcessingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessingException(e);
+        } finally {
+            if (ticket != null) {
+                ticket.release();
+            }
+            if (bulkheadPermit != null) {
+                bulkheadPermit.release();
+            }
+        }
+    }
+
+    /**
+     * Wait for the response of a request, the counterpart of {@link Request#send()} for a given listener.
+     * Unlike {@link Request#send()}, sending with a listener also schedules the request timeout, which may
+     * expire first and fail the listener: such failures are reported as a timeout as well.
+     */
+    private static ContentResponse awaitResponse(final Request jettyRequest, final FutureResponseListener listener)
+            throws InterruptedException, TimeoutException, ExecutionException {
+        final long timeout = jettyRequest.getTimeout();
+        if (timeout <= 0) {
+            return listener.get();
+        }
+        try {
+            return listener.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            jettyRequest.abort(e);
+            throw e;
+        } catch (TimeoutException e) {
+            jettyRequest.abort(e);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private RequestTimings startTimings(final ClientRequest jerseyRequest) {
+        if (!requestTimings) {
+            return null;
+        }
+        final RequestTimings timings = new RequestTimings();
+        jerseyRequest.setProperty(RequestTimings.PROPERTY, timings);
+        return timings;
+    }
+
+    private void attachListeners(final ClientRequest jerseyRequest, final Request jettyRequest) {
+        if (listeners != null) {
+            new ListenerDispatcher(listeners, jerseyRequest).attach(jettyRequest);
+        }
+    }
+
+    /**
+     * Refresh a stale cached response in the background, unless another refresh of it is running.
+     */
+    private void refresh(final ClientRequest jerseyRequest, final ResponseCache.Entry cached) {
+        if (!cache.startRefresh(jerseyRequest, cached)) {
+            return;
+        }
+        // the application owns its request, the conditional request is sent on a snapshot of it
+        final ClientRequest refreshRequest = new ClientRequest(jerseyRequest);
+        final ListenableFuture<?> refreshed;
+        try {
+            refreshed = submit(refreshRequest, new AsyncConnectorCallback() {
+                @Override
+                public void response(ClientResponse response) {
+                    // the body is buffered by the response listener for the cache
+                    response.close();
+                }
+
+                @Override
+                public void failure(Throwable failure) {
+                    LOGGER.log(Level.FINE, "Failed to refresh " + refreshRequest.getUri() + ".", failure);
+                }
+            }, null, false);
+        } catch (RuntimeException e) {
+            // the cached response is served anyway
+            LOGGER.log(Level.FINE, "Failed to refresh " + refreshRequest.getUri() + ".", e);
+            cache.endRefresh(refreshRequest);
+            return;
+        }
+        Futures.addCallback(refreshed, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                cache.endRefresh(refreshRequest);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                cache.endRefresh(refreshRequest);
+            }
+        });
+    }
+
+    private ClientResponse translateResponse(final ClientRequest jerseyRequest, final ContentResponse jettyResponse) {
+        final javax.ws.rs.core.Response.StatusType status = jettyResponse.getReason() == null ?
+                Statuses.from(jettyResponse.getStatus()) :
+                Statuses.from(jettyResponse.getStatus(), jettyResponse.getReason());
+
+        final ClientResponse jerseyResponse = new ClientResponse(status, jerseyRequest);
+        processResponseHeaders(jettyResponse.getHeaders(), jerseyResponse);
+        try {
+            jerseyResponse.setEntityStream(new HttpClientResponseInputStream(jettyResponse));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, null, e);
+        }
+
+        return jerseyResponse;
+    }
+
+    private ClientResponse translateResponse(final ClientRequest jerseyRequest, final ResponseCache.Entry cached) {
+        final javax.ws.rs.core.Response.StatusType status = cached.getReason() == null ?
+                Statuses.from(cached.getStatus()) :
+                Statuses.from(cached.getStatus(), cached.getReason());
+
+        final ClientResponse jerseyResponse = new ClientResponse(status, jerseyRequest);
+        processResponseHeaders(cached.getHeaders(), jerseyResponse);
+        jerseyResponse.getHeaders().putSingle(HttpHeader.AGE.asString(),
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(cached.getAge(System.currentTimeMillis()))));
+        jerseyResponse.setEntityStream(cached.getEntityStream());
+        return jerseyResponse;
+    }
+
+    private Bulkhead.Permit newBulkheadPermit(final ClientRequest jerseyRequest, final String destination) {
+        return bulkheads != null ? bulkheads.get(jerseyRequest, destination).newPermit() : null;
+    }
 
-            final ClientResponse jerseyResponse = new ClientResponse(status, jerseyRequest);
-            processResponseHeaders(jettyResponse.getHeaders(), jerseyResponse);
+    private static void acquireBulkhead(final Bulkhead.Permit permit) {
+        if (permit != null && !permit.acquire()) {
+            throw new ProcessingException(LocalizationMessages.BULKHEAD_FULL(permit.getBulkhead().getName()));
+        }
+    }
+
+    private void awaitPermit(final String destination) {
+        final long delay = reservePermit(destination);
+        if (delay > 0) {
             try {
-                jerseyResponse.setEntityStream(new HttpClientResponseInputStream(jettyResponse));
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, null, e);
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessingException(e);
             }
+        }
+    }
 
-            return jerseyResponse;
-        } catch (Exception e) {
+    private long reservePermit(final String destination) {
+        final RateLimiter limiter = rateLimiter;
+        if (limiter == null) {
+            return 0;
+        }
+        final long delay = limiter.reserve(destination);
+        if (delay < 0) {
+            throw new ProcessingException(LocalizationMessages.RATE_LIMIT_EXCEEDED(destination));
+        }
+        return delay;
+    }
+
+    private PriorityDispatcher.Ticket awaitAdmission(final ClientRequest jerseyRequest, final String destination) {
+        if (priorityDispatcher == null) {
+            return null;
+        }
+        final PriorityDispatcher.Ticket ticket = priorityDispatcher.newTicket(destination, getPriority(jerseyRequest));
+        try {
+            ticket.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new ProcessingException(e);
         }
+        return ticket;
     }
 
-    private void processResponseHeaders(final HttpFields respHeaders, final ClientResponse jerseyResponse) {
+    private static RequestPriority getPriority(final ClientRequest jerseyRequest) {
+        final Object priority = jerseyRequest.resolveProperty(JettyClientProperties.REQUEST_PRIORITY, Object.class);
+        if (priority == null) {
+            return RequestPriority.NORMAL;
+        } else if (priority instanceof RequestPriority) {
+            return (RequestPriority) priority;
+        } else if (priority instanceof String) {
+            try {
+                return RequestPriority.valueOf(((String) priority).trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                // reported below
+            }
+        }
+        throw new ProcessingException(LocalizationMessages.WRONG_REQUEST_PRIORITY(priority));
+    }
+
+    void processResponseHeaders(final HttpFields respHeaders, final ClientResponse jerseyResponse) {
+        // the content was decoded by the connector, its encoding and length no longer apply
+        final boolean decoded = contentDecoders != null
+                && ContentDecoders.isDecoded(respHeaders.get(HttpHeader.CONTENT_ENCODING));
         for (HttpField header : respHeaders) {
+            if (decoded && (header.getHeader() == HttpHeader.CONTENT_ENCODING
+                    || header.getHeader() == HttpHeader.CONTENT_LENGTH)) {
+                continue;
+            }
             final String headerName = header.getName();
             final MultivaluedMap<String, String> headers = jerseyResponse.getHeaders();
             List<String> list = headers.get(headerName);
@@ -278,7 +1255,7 @@ public class JettyConnector implements Connector {
         return new ByteArrayInputStream(response.getContent());
     }
 
-    private Request translateRequest(final ClientRequest clientRequest) {
+    Request translateRequest(final ClientRequest clientRequest) {
         final HttpMethod method = HttpMethod.fromString(clientRequest.getMethod());
         if (method == null) {
             throw new ProcessingException(LocalizationMessages.METHOD_NOT_SUPPORTED(clientRequest.getMethod()));
@@ -288,15 +1265,27 @@ public class JettyConnector implements Connector {
         request.method(method);
 
         request.followRedirects(clientRequest.resolveProperty(ClientProperties.FOLLOW_REDIRECTS, true));
-        final Object readTimeout = clientRequest.getConfiguration().getProperties().get(ClientProperties.READ_TIMEOUT);
-        if (readTimeout != null && readTimeout instanceof Integer && (Integer)readTimeout > 0) {
-            request.timeout((Integer) readTimeout, TimeUnit.MILLISECONDS);
+        final int readTimeout = getReadTimeout(clientRequest);
+        if (readTimeout > 0) {
+            request.timeout(readTimeout, TimeUnit.MILLISECONDS);
         }
         writeOutBoundHeaders(clientRequest.getHeaders(), request);
+        if (contentDecoders != null && !request.getHeaders().containsKey(HttpHeader.ACCEPT_ENCODING.asString())) {
+            request.header(HttpHeader.ACCEPT_ENCODING, ContentDecoders.ACCEPT_ENCODING);
+        }
         return request;
     }
 
-    private static void writeOutBoundHeaders(final MultivaluedMap<String, Object> headers, final Request request) {
+    /**
+     * Get the read timeout of a request in milliseconds, {@code 0} if none.
+     */
+    private int getReadTimeout(final ClientRequest clientRequest) {
+        final Object readTimeout = this.readTimeout != null
+                ? this.readTimeout : clientRequest.getConfiguration().getProperties().get(ClientProperties.READ_TIMEOUT);
+        return readTimeout instanceof Integer && (Integer) readTimeout > 0 ? (Integer) readTimeout : 0;
+    }
+
+    static void writeOutBoundHeaders(final MultivaluedMap<String, Object> headers, final Request request) {
         for (Map.Entry<String, List<Object>> e : headers.entrySet()) {
             List<Object> vs = e.getValue();
             if (vs.size() == 1) {
@@ -314,7 +1303,7 @@ public class JettyConnector implements Connector {
         }
     }
 
-    private ContentProvider getBytesProvider(final ClientRequest clientRequest) {
+    ContentProvider getBytesProvider(final ClientRequest clientRequest, final Request request) {
         final Object entity = clientRequest.getEntity();
 
         if (entity == null) {
@@ -322,22 +1311,21 @@ public class JettyConnector implements Connector {
         }
 
         final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final AtomicReference<OutputStream> entityStream = new AtomicReference<OutputStream>();
         clientRequest.setStreamProvider(new OutboundMessageContext.StreamProvider() {
             @Override
             public OutputStream getOutputStream(int contentLength) throws IOException {
-                return outputStream;
+                entityStream.set(compressor != null
+                        ? compressor.wrap(outputStream, clientRequest, request, contentLength) : outputStream);
+                return entityStream.get();
             }
         });
 
-        try {
-            clientRequest.writeEntity();
-        } catch (IOException e) {
-            throw new ProcessingException("Failed to write request entity.", e);
-        }
+        writeEntity(clientRequest, entityStream);
         return new BytesContentProvider(outputStream.toByteArray());
     }
 
-    private ContentProvider getStreamProvider(final ClientRequest clientRequest) {
+    ContentProvider getStreamProvider(final ClientRequest clientRequest, final Request request) {
         final Object entity = clientRequest.getEntity();
 
         if (entity == null) {
@@ -345,31 +1333,113 @@ public class JettyConnector implements Connector {
         }
 
         final OutputStreamContentProvider streamContentProvider = new OutputStreamContentProvider();
+        final AtomicReference<OutputStream> entityStream = new AtomicReference<OutputStream>();
         clientRequest.setStreamProvider(new OutboundMessageContext.StreamProvider() {
             @Override
             public OutputStream getOutputStream(int contentLength) throws IOException {
-                return streamContentProvider.getOutputStream();
+                final OutputStream outputStream = new FilterOutputStream(streamContentProvider.getOutputStream()) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        // the provider queues the written array itself, which entity writers and compressors reuse
+                        out.write(Arrays.copyOfRange(b, off, off + len), 0, len);
+                    }
+                };
+                entityStream.set(compressor != null
+                        ? compressor.wrap(outputStream, clientRequest, request, contentLength) : outputStream);
+                return entityStream.get();
             }
         });
 
+        writeEntity(clientRequest, entityStream);
+        return streamContentProvider;
+    }
+
+    private void writeEntity(final ClientRequest clientRequest, final AtomicReference<OutputStream> entityStream) {
+        boolean written = false;
         try {
             clientRequest.writeEntity();
+            written = true;
         } catch (IOException e) {
             throw new ProcessingException("Failed to write request entity.", e);
+        } finally {
+            if (!written && compressor != null) {
+                // the compressing stream is not closed when the entity provider fails
+                compressor.abort(entityStream.get());
+            }
         }
-        return streamContentProvider;
     }
 
     @Override
     public Future<?> apply(final ClientRequest jerseyRequest, final AsyncConnectorCallback callback) {
+        ensureStarted();
+        final ResourceAccounting.Account account = beginAccount(jerseyRequest);
+        try {
+            return submit(jerseyRequest, callback, account, true);
+        } finally {
+            if (account != null) {
+                account.end();
+            }
+        }
+    }
+
+    /**
+     * Send a request asynchronously.
+     *
+     * @param jerseyRequest request to be sent.
+     * @param callback      response callback.
+     * @param account       resource account of the request, {@code null} if not accounted.
+     * @param lookup        whether the response may be served from the cache; a background refresh of a cached
+     *                      response is sent as a conditional request without looking the response up.
+     * @return response future completed once the response is complete.
+     */
+    private ListenableFuture<?> submit(final ClientRequest jerseyRequest,
+                                       final AsyncConnectorCallback callback,
+                                       final ResourceAccounting.Account account,
+                                       final boolean lookup) {
+        final ResponseCache.Entry cached = cache != null && lookup ? cache.get(jerseyRequest) : null;
+        if (cached != null) {
+            refresh(jerseyRequest, cached);
+            final ClientResponse response = translateResponse(jerseyRequest, cached);
+            ResourceAccounting.runUnaccounted(new Runnable() {
+                @Override
+                public void run() {
+                    callback.response(response);
+                }
+            });
+            return Futures.immediateFuture(response);
+        }
+
+        final String flightKey = coalescer != null ? coalescer.getKey(jerseyRequest) : null;
+        final RequestCoalescer.Flight flight = flightKey != null ? coalescer.join(flightKey) : null;
+        if (flight != null && !flight.isLeader()) {
+            return awaitFlight(jerseyRequest, flight, callback);
+        }
+
+        final RequestTimings timings = startTimings(jerseyRequest);
         final Request jettyRequest = translateRequest(jerseyRequest);
-        final ContentProvider entity = getStreamProvider(jerseyRequest);
+        final ContentProvider entity = getStreamProvider(jerseyRequest, jettyRequest);
         if (entity != null) {
             jettyRequest.content(entity);
         }
+        final ResponseCache.Entry stale = cache != null ? cache.getStale(jerseyRequest) : null;
+        if (stale != null) {
+            cache.addValidators(stale, jettyRequest);
+        }
         final AtomicBoolean callbackInvoked = new AtomicBoolean(false);
+        Bulkhead.Permit bulkheadPermit = null;
         Throwable failure;
         try {
+            final String destination = getDestination(jettyRequest.getURI());
+            bulkheadPermit = newBulkheadPermit(jerseyRequest, destination);
+            final Bulkhead.Permit permit = bulkheadPermit;
+            final Bulkhead bulkhead = permit != null ? permit.getBulkhead() : null;
+            final long delay = reservePermit(destination);
+            if (delay == 0) {
+                acquireBulkhead(permit);
+            }
+            final PriorityDispatcher.Ticket ticket = priorityDispatcher != null
+                    ? priorityDispatcher.newTicket(destination, getPriority(jerseyRequest)) : null;
+            final Request asyncRequest = buildAsyncRequest(jettyRequest);
             final SettableFuture<ClientResponse> responseFuture = SettableFuture.create();
             Futures.addCallback(responseFuture, new FutureCallback<ClientResponse>() {
                 @Override
@@ -380,69 +1450,354 @@ public class JettyConnector implements Connector {
                 public void onFailure(Throwable t) {
                     if (t instanceof CancellationException) {
                         // take care of future cancellation
-                        jettyRequest.abort(t);
+                        if (flight != null) {
+                            // the followers must not wait for an exchange which may never be sent
+                            flight.fail(t);
+                        }
+                        // the listener releases the ticket and the bulkhead permit once the aborted exchange
+                        // completes, unless the request is withdrawn before being admitted and thus never sent
+                        asyncRequest.abort(t);
+                        if (ticket != null && ticket.withdraw()) {
+                            if (permit != null) {
+                                permit.release();
+                            }
+                            if (account != null) {
+                                account.abandon();
+                            }
+                        }
                     }
                 }
             });
             final AtomicReference<ClientResponse> jerseyResponse = new AtomicReference<ClientResponse>();
             final ByteBufferInputStream entityStream = new ByteBufferInputStream();
-            buildAsyncRequest(jettyRequest)
-                    .send(new Response.Listener.Empty() {
+            final long requestTime = System.currentTimeMillis();
+            final DestinationMetrics destinationMetrics =
+                    metrics != null ? metrics.forDestination(destination, jettyRequest.getURI()) : null;
+            final AtomicLong sendTime = new AtomicLong();
+            if (timings != null) {
+                timings.attach(asyncRequest);
+            }
+            attachListeners(jerseyRequest, asyncRequest);
+            final Response.Listener listener = new Response.Listener.Empty() {
 
+                // body buffered for the coalesced requests and the response cache
+                private ByteArrayOutputStream content;
+                // stored response used instead of the received one, i.e. revalidated or stale if error
+                private ResponseCache.Entry revalidated;
+                private ContentDecoders.Decoder decoder;
+
+                @Override
+                public void onHeaders(Response jettyResponse) {
+                    if (contentDecoders != null) {
+                        decoder = contentDecoders.newDecoder(jettyResponse.getHeaders().get(HttpHeader.CONTENT_ENCODING));
+                    }
+                    if (stale != null && jettyResponse.getStatus() == HttpStatus.NOT_MODIFIED_304) {
+                        revalidated = cache.revalidate(jerseyRequest, stale, jettyResponse, requestTime, System.currentTimeMillis());
+                    } else if (stale != null && ResponseCache.isServerError(jettyResponse.getStatus())
+                            && cache.isUsableOnError(jerseyRequest, stale)) {
+                        revalidated = stale;
+                    } else if (flight != null || (cache != null && cache.isStorable(jerseyRequest, jettyResponse))) {
+                        content = new ByteArrayOutputStream();
+                    }
+                    if (responseFuture.isDone())
+                        if (!callbackInvoked.compareAndSet(false, true)) {
+                            return;
+                        }
+                    final RateLimiter limiter = rateLimiter;
+                    if (limiter != null) {
+                        limiter.onResponse(destination, jettyResponse.getStatus(), jettyResponse.getHeaders());
+                    }
+                    final ClientResponse response = revalidated != null
+                            ? translateResponse(jerseyRequest, revalidated)
+                            : translateResponse(jerseyRequest, jettyResponse, entityStream);
+                    jerseyResponse.set(response);
+                    callbackDispatcher.dispatch(destination, bulkhead, new Runnable() {
                         @Override
-                        public void onHeaders(Response jettyResponse) {
-                            if (responseFuture.isDone())
-                                if (!callbackInvoked.compareAndSet(false, true)) {
-                                    return;
-                                }
-                            final ClientResponse response = translateResponse(jerseyRequest, jettyResponse, entityStream);
-                            jerseyResponse.set(response);
+                        public void run() {
                             callback.response(response);
                         }
+                    });
+                }
 
-                        @Override
-                        public void onContent(Response jettyResponse, ByteBuffer content) {
-                            try {
-                                entityStream.put(content);
-                            } catch (InterruptedException ex) {
-                                final ProcessingException pe = new ProcessingException(ex);
-                                entityStream.closeQueue(pe);
-                                // try to complete the future with an exception
-                                responseFuture.setException(pe);
-                                Thread.currentThread().interrupt();
-                            }
+                @Override
+                public void onContent(Response jettyResponse, ByteBuffer content) {
+                    if (decoder != null) {
+                        try {
+                            content = decoder.decode(content);
+                        } catch (ProcessingException e) {
+                            jettyResponse.abort(e);
+                            return;
                         }
+                    } else {
+                        // the buffer is reused by Jetty once this method returns, the entity stream is read later
+                        content = copy(content);
+                    }
+                    if (this.content != null) {
+                        bufferContent(content, this.content);
+                    }
+                    try {
+                        entityStream.put(content);
+                    } catch (InterruptedException ex) {
+                        final ProcessingException pe = new ProcessingException(ex);
+                        entityStream.closeQueue(pe);
+                        // try to complete the future with an exception
+                        responseFuture.setException(pe);
+                        Thread.currentThread().interrupt();
+                    }
+                }
 
-                        @Override
-                        public void onComplete(Result result) {
-                            entityStream.closeQueue();
-                            // try to complete the future with the response only once truly done
-                            responseFuture.set(jerseyResponse.get());
+                @Override
+                public void onComplete(Result result) {
+                    if (decoder != null) {
+                        try {
+                            // returns the inflater to the pool, whatever the outcome
+                            decoder.end(result.isSucceeded());
+                        } catch (ProcessingException e) {
+                            onFailure(result.getResponse(), e);
+                            result = new Result(result.getRequest(), result.getResponse(), e);
                         }
+                    }
+                    if (destinationMetrics != null) {
+                        destinationMetrics.end(result.isFailed() ? -1 : result.getResponse().getStatus(), sendTime.get());
+                    }
+                    if (result.isSucceeded() && revalidated != null) {
+                        if (flight != null) {
+                            flight.complete(new HttpContentResponse(revalidated, revalidated.getBodyBytes(), null));
+                        }
+                    } else if (result.isSucceeded()) {
+                        final byte[] body = content != null ? content.toByteArray() : null;
+                        if (cache != null) {
+                            cache.store(jerseyRequest, result.getResponse(), body, requestTime, System.currentTimeMillis());
+                        }
+                        if (flight != null) {
+                            flight.complete(new HttpContentResponse(result.getResponse(), body, null));
+                        }
+                    }
+                    if (ticket != null) {
+                        ticket.release();
+                    }
+                    if (permit != null) {
+                        permit.release();
+                    }
+                    entityStream.closeQueue();
+                    // try to complete the future with the response only once truly done
+                    responseFuture.set(jerseyResponse.get());
+                }
 
-                        @Override
-                        public void onFailure(Response response, Throwable t) {
-                            entityStream.closeQueue(t);
-                            // try to complete the future with an exception
-                            responseFuture.setException(t);
-                            if (callbackInvoked.compareAndSet(false, true)) {
+                @Override
+                public void onFailure(Response response, final Throwable t) {
+                    if (stale != null && jerseyResponse.get() == null && !responseFuture.isDone()
+                            && cache.isUsableOnError(jerseyRequest, stale) && callbackInvoked.compareAndSet(false, true)) {
+                        // the origin server failed before responding, the stale response is used instead
+                        final ClientResponse staleResponse = translateResponse(jerseyRequest, stale);
+                        if (flight != null) {
+                            flight.complete(new HttpContentResponse(stale, stale.getBodyBytes(), null));
+                        }
+                        if (ticket != null) {
+                            ticket.release();
+                        }
+                        if (permit != null) {
+                            permit.release();
+                        }
+                        entityStream.closeQueue();
+                        responseFuture.set(staleResponse);
+                        callbackDispatcher.dispatch(destination, bulkhead, new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.response(staleResponse);
+                            }
+                        });
+                        return;
+                    }
+                    if (flight != null) {
+                        flight.fail(t);
+                    }
+                    if (ticket != null) {
+                        ticket.release();
+                    }
+                    if (permit != null) {
+                        permit.release();
+                    }
+                    entityStream.closeQueue(t);
+                    // try to complete the future with an exception
+                    responseFuture.setException(t);
+                    if (callbackInvoked.compareAndSet(false, true)) {
+                        callbackDispatcher.dispatch(destination, bulkhead, new Runnable() {
+                            @Override
+                            public void run() {
                                 callback.failure(t);
                             }
+                        });
+                    }
+                }
+            };
+            final Response.Listener sentListener = account != null ? account.wrap(listener) : listener;
+            final Runnable send = new Runnable() {
+                @Override
+                public void run() {
+                    if (responseFuture.isDone()) {
+                        if (flight != null) {
+                            flight.fail(new CancellationException());
                         }
-                    });
+                        if (account != null) {
+                            // the wrapped listener is never notified
+                            account.abandon();
+                        }
+                        if (ticket != null) {
+                            ticket.release();
+                        }
+                        if (permit != null) {
+                            permit.release();
+                        }
+                        return;
+                    }
+                    if (destinationMetrics != null) {
+                        sendTime.set(destinationMetrics.begin());
+                    }
+                    try {
+                        asyncRequest.send(sentListener);
+                    } catch (Throwable t) {
+                        if (destinationMetrics != null) {
+                            destinationMetrics.end(-1, sendTime.get());
+                        }
+                        if (account != null) {
+                            account.abandon();
+                        }
+                        listener.onFailure(null, t);
+                    }
+                }
+            };
+            final Runnable admit = ticket == null ? send : new Runnable() {
+                @Override
+                public void run() {
+                    ticket.enqueue(send);
+                }
+            };
+            if (delay > 0) {
+                // wait for the rate limit permit without blocking any thread nor holding the bulkhead slot
+                client.getScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!responseFuture.isDone()) {
+                            try {
+                                acquireBulkhead(permit);
+                            } catch (ProcessingException e) {
+                                if (account != null) {
+                                    // the wrapped listener is never notified
+                                    account.abandon();
+                                }
+                                listener.onFailure(null, e);
+                                return;
+                            }
+                        }
+                        admit.run();
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } else {
+                admit.run();
+            }
             return responseFuture;
         } catch (Throwable t) {
             failure = t;
         }
 
+        if (flight != null) {
+            flight.fail(failure);
+        }
+        if (bulkheadPermit != null) {
+            bulkheadPermit.release();
+        }
         if (callbackInvoked.compareAndSet(false, true)) {
-            callback.failure(failure);
+            final Throwable t = failure;
+            ResourceAccounting.runUnaccounted(new Runnable() {
+                @Override
+                public void run() {
+                    callback.failure(t);
+                }
+            });
         }
         return Futures.immediateFailedFuture(failure);
     }
 
+    private ListenableFuture<?> awaitFlight(final ClientRequest jerseyRequest,
+                                            final RequestCoalescer.Flight flight,
+                                            final AsyncConnectorCallback callback) {
+        final SettableFuture<ClientResponse> responseFuture = SettableFuture.create();
+        final String destination = getDestination(jerseyRequest.getUri());
+        final int timeout = getReadTimeout(jerseyRequest);
+        // the follower waits no longer than it would wait for its own response
+        final Scheduler.Task timeoutTask = timeout <= 0 ? null : client.getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                final TimeoutException failure = new TimeoutException("Total timeout " + timeout + " ms elapsed");
+                if (responseFuture.setException(failure)) {
+                    callbackDispatcher.dispatch(destination, null, new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.failure(failure);
+                        }
+                    });
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        Futures.addCallback(flight.getResponse(), new FutureCallback<ContentResponse>() {
+            @Override
+            public void onSuccess(ContentResponse result) {
+                if (timeoutTask != null) {
+                    timeoutTask.cancel();
+                }
+                final ClientResponse response = translateResponse(jerseyRequest, result);
+                // a cancelled waiter must not be notified
+                if (responseFuture.set(response)) {
+                    callbackDispatcher.dispatch(destination, null, new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.response(response);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                if (timeoutTask != null) {
+                    timeoutTask.cancel();
+                }
+                if (responseFuture.setException(t)) {
+                    callbackDispatcher.dispatch(destination, null, new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.failure(t);
+                        }
+                    });
+                }
+            }
+        });
+        return responseFuture;
+    }
+
+    private static ByteBuffer copy(final ByteBuffer content) {
+        final ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+        copy.put(content.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    private static void bufferContent(final ByteBuffer content, final ByteArrayOutputStream buffer) {
+        if (content.hasArray()) {
+            buffer.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            final byte[] bytes = new byte[content.remaining()];
+            content.duplicate().get(bytes);
+            buffer.write(bytes, 0, bytes.length);
+        }
+    }
+
     private Request buildAsyncRequest(final Request jettyRequest) {
         final Request request = client.newRequest(jettyRequest.getURI()).method(jettyRequest.method()).content(jettyRequest.getContent()).followRedirects(jettyRequest.isFollowRedirects());
+        if (jettyRequest.getTimeout() > 0) {
+            request.timeout(jettyRequest.getTimeout(), TimeUnit.MILLISECONDS);
+        }
         for (HttpField header : jettyRequest.getHeaders()) {
             request.getHeaders().add(header.getName(), header.getValue());
         }
@@ -465,10 +1820,30 @@ public class JettyConnector implements Connector {
 
     @Override
     public void close() {
+        // prevents a later start, and waits for a start in progress before stopping the client
+        start.cancel(false);
+        starting.lock();
+        starting.unlock();
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (bulkheads != null) {
+            bulkheads.close();
+        }
+        if (cache != null) {
+            cache.close();
+        }
         try {
             client.stop();
         } catch (Exception e) {
             throw new ProcessingException("Failed to stop the client.", e);
+        } finally {
+            if (contentDecoders != null) {
+                contentDecoders.close();
+            }
+            if (compressor != null) {
+                compressor.close();
+            }
         }
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of a latency histogram. All latencies are in microseconds, percentiles are accurate to about 6 %.
+ *
+ * @see DestinationMetricsMXBean#getLatencies()
+ */
+public final class LatencyStatistics {
+
+    private final long count;
+    private final double mean;
+    private final long max;
+    private final long median;
+    private final long percentile90;
+    private final long percentile99;
+    private final long percentile999;
+
+    LatencyStatistics(final long count,
+                      final double mean,
+                      final long max,
+                      final long median,
+                      final long percentile90,
+                      final long percentile99,
+                      final long percentile999) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.median = median;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+        this.percentile999 = percentile999;
+    }
+
+    /**
+     * Get the number of recorded requests.
+     *
+     * @return request count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the mean latency.
+     *
+     * @return mean latency in microseconds.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Get the maximum latency.
+     *
+     * @return maximum latency in microseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the median latency.
+     *
+     * @return 50th percentile in microseconds.
+     */
+    public long getMedian() {
+        return median;
+    }
+
+    /**
+     * Get the 90th percentile of the latency.
+     *
+     * @return 90th percentile in microseconds.
+     */
+    public long getPercentile90() {
+        return percentile90;
+    }
+
+    /**
+     * Get the 99th percentile of the latency.
+     *
+     * @return 99th percentile in microseconds.
+     */
+    public long getPercentile99() {
+        return percentile99;
+    }
+
+    /**
+     * Get the 99.9th percentile of the latency.
+     *
+     * @return 99.9th percentile in microseconds.
+     */
+    public long getPercentile999() {
+        return percentile999;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyStatistics{count=" + count + ", mean=" + mean + ", max=" + max + ", median=" + median
+                + ", p90=" + percentile90 + ", p99=" + percentile99 + ", p999=" + percentile999 + "}";
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.glassfish.jersey.client.ClientRequest;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dispatcher of the Jetty events of a single request to the {@link ConnectorListener}s.
+ * <p/>
+ * The dispatcher is the only Jetty listener registered for the request, so that dispatching allocates a single
+ * object per request. No dispatcher is created when no connector listener is registered.
+ */
+final class ListenerDispatcher extends Request.Listener.Empty
+        implements Response.HeadersListener, Response.ContentListener, Response.CompleteListener {
+
+    private static final Logger LOGGER = Logger.getLogger(ListenerDispatcher.class.getName());
+
+    private final ConnectorListener[] listeners;
+    private final ClientRequest request;
+
+    ListenerDispatcher(final ConnectorListener[] listeners, final ClientRequest request) {
+        this.listeners = listeners;
+        this.request = request;
+    }
+
+    /**
+     * Start dispatching the events of a request.
+     *
+     * @param jettyRequest Jetty request.
+     */
+    void attach(final Request jettyRequest) {
+        jettyRequest.listener(this);
+        // a single registration, response listeners are notified of every event type they implement
+        jettyRequest.onResponseHeaders(this);
+    }
+
+    @Override
+    public void onQueued(final Request jettyRequest) {
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onQueued(request);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onBegin(final Request jettyRequest) {
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onConnectionAcquired(request);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onCommit(final Request jettyRequest) {
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onCommitted(request);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onContent(final Request jettyRequest, final ByteBuffer content) {
+        final int position = content.position();
+        final int limit = content.limit();
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onRequestContent(request, content);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+            content.limit(limit).position(position);
+        }
+    }
+
+    @Override
+    public void onHeaders(final Response response) {
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onHeaders(request, response);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onContent(final Response response, final ByteBuffer content) {
+        final int position = content.position();
+        final int limit = content.limit();
+        for (ConnectorListener listener : listeners) {
+            try {
+                listener.onContent(request, content);
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+            // guard the other listeners and the connector against a consumed chunk
+            content.limit(limit).position(position);
+        }
+    }
+
+    @Override
+    public void onComplete(final Result result) {
+        for (ConnectorListener listener : listeners) {
+            try {
+                if (result.isFailed()) {
+                    listener.onFailure(request, result.getFailure());
+                } else {
+                    listener.onComplete(request, result.getResponse());
+                }
+            } catch (RuntimeException e) {
+                listenerFailed(listener, e);
+            }
+        }
+    }
+
+    private static void listenerFailed(final ConnectorListener listener, final RuntimeException e) {
+        LOGGER.log(Level.WARNING, LocalizationMessages.LISTENER_FAILED(listener), e);
+    }
+
+    /**
+     * Create a client notifying the listeners of the connections it opens.
+     *
+     * @param sslContextFactory SSL context factory, may be {@code null}.
+     * @param listeners         connector listeners.
+     * @return new client.
+     */
+    static HttpClient newHttpClient(final SslContextFactory sslContextFactory, final ConnectorListener[] listeners) {
+        return new HttpClient(sslContextFactory) {
+            @Override
+            protected void newConnection(final HttpDestination destination, final Promise<Connection> promise) {
+                final long begin = System.nanoTime();
+                super.newConnection(destination, new Promise<Connection>() {
+                    @Override
+                    public void succeeded(final Connection connection) {
+                        final long connectNanos = System.nanoTime() - begin;
+                        final String name = destination.getScheme() + "://" + destination.getHost() + ":" + destination.getPort();
+                        for (ConnectorListener listener : listeners) {
+                            try {
+                                listener.onConnectionCreated(name, connectNanos);
+                            } catch (RuntimeException e) {
+                                listenerFailed(listener, e);
+                            }
+                        }
+                        promise.succeeded(connection);
+                    }
+
+                    @Override
+                    public void failed(final Throwable failure) {
+                        promise.failed(failure);
+                    }
+                });
+            }
+        };
+    }
+}
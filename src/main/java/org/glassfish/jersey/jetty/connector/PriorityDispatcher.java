@@ -0,0 +1,378 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority-aware admission queue in front of each destination.
+ * <p/>
+ * At most {@code permits} requests per destination are handed over to Jetty at a time, so that requests
+ * wait here rather than in the FIFO queue of the Jetty destination. Waiting requests are admitted strictly
+ * by priority and a share of the permits is reserved for {@link RequestPriority#HIGH high priority}
+ * requests.
+ *
+ * @see JettyClientProperties#PRIORITY_SCHEDULING
+ */
+final class PriorityDispatcher {
+
+    private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+    private volatile Limits limits;
+    private final ConcurrentMap<String, DestinationQueue> queues = new ConcurrentHashMap<String, DestinationQueue>();
+    private final AtomicLongArray admitted = new AtomicLongArray(PRIORITIES.length);
+    private final AtomicLongArray totalWait = new AtomicLongArray(PRIORITIES.length);
+    private final AtomicLong[] maxWait = new AtomicLong[PRIORITIES.length];
+
+    /**
+     * Create new priority dispatcher.
+     *
+     * @param permits       maximum number of requests in flight per destination.
+     * @param reservedShare share of the permits only available to high priority requests.
+     */
+    PriorityDispatcher(final int permits, final double reservedShare) {
+        this.limits = new Limits(permits, reservedShare);
+        for (int i = 0; i < maxWait.length; i++) {
+            maxWait[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Change the permits of every destination. Requests waiting for raised permits are admitted at once,
+     * requests in flight above lowered permits complete normally.
+     *
+     * @param permits       maximum number of requests in flight per destination.
+     * @param reservedShare share of the permits only available to high priority requests.
+     */
+    void setLimits(final int permits, final double reservedShare) {
+        limits = new Limits(permits, reservedShare);
+        for (DestinationQueue queue : queues.values()) {
+            queue.admit();
+        }
+    }
+
+    /**
+     * Get the share of the permits only available to high priority requests.
+     *
+     * @return reserved share.
+     */
+    double getReservedShare() {
+        return limits.reservedShare;
+    }
+
+    /**
+     * Create a ticket for a request to be sent to the given destination.
+     *
+     * @param destination destination key.
+     * @param priority    request priority.
+     * @return new ticket.
+     */
+    Ticket newTicket(final String destination, final RequestPriority priority) {
+        DestinationQueue queue = queues.get(destination);
+        if (queue == null) {
+            queue = new DestinationQueue();
+            final DestinationQueue previous = queues.putIfAbsent(destination, queue);
+            if (previous != null) {
+                queue = previous;
+            }
+        }
+        return new Ticket(queue, priority);
+    }
+
+    /**
+     * Get the queueing statistics of each priority class.
+     *
+     * @return statistics snapshot keyed by priority.
+     */
+    Map<RequestPriority, PriorityQueueStatistics> getStatistics() {
+        final int[] queued = new int[PRIORITIES.length];
+        for (DestinationQueue queue : queues.values()) {
+            queue.countWaiting(queued);
+        }
+        final Map<RequestPriority, PriorityQueueStatistics> statistics =
+                new EnumMap<RequestPriority, PriorityQueueStatistics>(RequestPriority.class);
+        for (RequestPriority priority : PRIORITIES) {
+            final int i = priority.ordinal();
+            statistics.put(priority, new PriorityQueueStatistics(priority, queued[i], admitted.get(i),
+                    totalWait.get(i), maxWait[i].get()));
+        }
+        return statistics;
+    }
+
+    private void recordAdmission(final RequestPriority priority, final long waitNanos) {
+        final int i = priority.ordinal();
+        admitted.incrementAndGet(i);
+        totalWait.addAndGet(i, waitNanos);
+        final AtomicLong max = maxWait[i];
+        long current;
+        while (waitNanos > (current = max.get()) && !max.compareAndSet(current, waitNanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Admission state of a single request.
+     */
+    final class Ticket {
+
+        private static final int NEW = 0;
+        private static final int QUEUED = 1;
+        private static final int ADMITTED = 2;
+        private static final int DONE = 3;
+
+        private final DestinationQueue queue;
+        private final RequestPriority priority;
+        // guarded by queue.lock
+        private int state = NEW;
+        private long enqueuedAt;
+        private Runnable onAdmitted;
+
+        private Ticket(final DestinationQueue queue, final RequestPriority priority) {
+            this.queue = queue;
+            this.priority = priority;
+        }
+
+        /**
+         * Request admission. The given task is run as soon as the request is admitted, either
+         * by the calling thread or by the thread releasing a permit.
+         *
+         * @param task task sending the request.
+         */
+        void enqueue(final Runnable task) {
+            if (queue.enqueue(this, task)) {
+                task.run();
+            }
+        }
+
+        /**
+         * Request admission and block the calling thread until admitted.
+         *
+         * @throws InterruptedException if interrupted while waiting; the ticket is released.
+         */
+        void await() throws InterruptedException {
+            final CountDownLatch latch = new CountDownLatch(1);
+            enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                release();
+                throw e;
+            }
+        }
+
+        /**
+         * Release the permit held by the request, or withdraw the request from the queue if it has
+         * not been admitted yet. Releasing a ticket more than once has no effect.
+         */
+        void release() {
+            queue.release(this);
+        }
+
+        /**
+         * Withdraw the request if it has not been admitted yet, its task is then never run. An admitted
+         * request keeps its permit until {@link #release() released}, since its exchange may be in flight.
+         *
+         * @return {@code true} if the request was withdrawn.
+         */
+        boolean withdraw() {
+            return queue.withdraw(this);
+        }
+    }
+
+    /**
+     * Waiting requests and in-flight count of a single destination.
+     */
+    private final class DestinationQueue {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<ArrayDeque<Ticket>> waiting = new ArrayList<ArrayDeque<Ticket>>(PRIORITIES.length);
+        private int inFlight;
+
+        DestinationQueue() {
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                waiting.add(new ArrayDeque<Ticket>());
+            }
+        }
+
+        private boolean canAdmit(final RequestPriority priority) {
+            final Limits current = limits;
+            return inFlight < (priority == RequestPriority.HIGH ? current.permits : current.permits - current.reserved);
+        }
+
+        boolean enqueue(final Ticket ticket, final Runnable task) {
+            lock.lock();
+            try {
+                if (ticket.state != Ticket.NEW) {
+                    return false;
+                }
+                boolean ahead = false;
+                for (int i = 0; i <= ticket.priority.ordinal(); i++) {
+                    ahead |= !waiting.get(i).isEmpty();
+                }
+                if (!ahead && canAdmit(ticket.priority)) {
+                    inFlight++;
+                    ticket.state = Ticket.ADMITTED;
+                    recordAdmission(ticket.priority, 0);
+                    return true;
+                }
+                ticket.state = Ticket.QUEUED;
+                ticket.enqueuedAt = System.nanoTime();
+                ticket.onAdmitted = task;
+                waiting.get(ticket.priority.ordinal()).add(ticket);
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean withdraw(final Ticket ticket) {
+            lock.lock();
+            try {
+                if (ticket.state == Ticket.QUEUED) {
+                    waiting.get(ticket.priority.ordinal()).remove(ticket);
+                } else if (ticket.state != Ticket.NEW) {
+                    return false;
+                }
+                ticket.state = Ticket.DONE;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(final Ticket ticket) {
+            List<Runnable> admittedTasks = null;
+            lock.lock();
+            try {
+                if (ticket.state == Ticket.QUEUED) {
+                    waiting.get(ticket.priority.ordinal()).remove(ticket);
+                } else if (ticket.state == Ticket.ADMITTED) {
+                    inFlight--;
+                    admittedTasks = admitWaiting();
+                }
+                ticket.state = Ticket.DONE;
+            } finally {
+                lock.unlock();
+            }
+            if (admittedTasks != null) {
+                for (Runnable task : admittedTasks) {
+                    task.run();
+                }
+            }
+        }
+
+        void admit() {
+            final List<Runnable> admittedTasks;
+            lock.lock();
+            try {
+                admittedTasks = admitWaiting();
+            } finally {
+                lock.unlock();
+            }
+            if (admittedTasks != null) {
+                for (Runnable task : admittedTasks) {
+                    task.run();
+                }
+            }
+        }
+
+        private List<Runnable> admitWaiting() {
+            List<Runnable> tasks = null;
+            final long now = System.nanoTime();
+            for (RequestPriority priority : PRIORITIES) {
+                final ArrayDeque<Ticket> queue = waiting.get(priority.ordinal());
+                while (!queue.isEmpty() && canAdmit(priority)) {
+                    final Ticket next = queue.poll();
+                    inFlight++;
+                    next.state = Ticket.ADMITTED;
+                    recordAdmission(priority, now - next.enqueuedAt);
+                    if (tasks == null) {
+                        tasks = new ArrayList<Runnable>(2);
+                    }
+                    tasks.add(next.onAdmitted);
+                    next.onAdmitted = null;
+                }
+            }
+            return tasks;
+        }
+
+        void countWaiting(final int[] counts) {
+            lock.lock();
+            try {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += waiting.get(i).size();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Permits of each destination, replaced as a whole on reconfiguration.
+     */
+    private static final class Limits {
+
+        final int permits;
+        final int reserved;
+        final double reservedShare;
+
+        Limits(final int permits, final double reservedShare) {
+            this.permits = Math.max(1, permits);
+            this.reservedShare = Math.max(0, Math.min(1, reservedShare));
+            this.reserved = Math.min((int) Math.ceil(this.permits * this.reservedShare), this.permits - 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the queueing statistics of a single {@link RequestPriority request priority} class.
+ *
+ * @see JettyConnector#getPriorityQueueStatistics()
+ */
+public final class PriorityQueueStatistics {
+
+    private final RequestPriority priority;
+    private final int queued;
+    private final long admitted;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    PriorityQueueStatistics(final RequestPriority priority,
+                            final int queued,
+                            final long admitted,
+                            final long totalWaitNanos,
+                            final long maxWaitNanos) {
+        this.priority = priority;
+        this.queued = queued;
+        this.admitted = admitted;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * Get the priority class the statistics belong to.
+     *
+     * @return request priority.
+     */
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Get the number of requests currently waiting for a connection.
+     *
+     * @return number of queued requests.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Get the total number of requests admitted to their destination.
+     *
+     * @return number of admitted requests.
+     */
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Get the average time admitted requests spent waiting for a connection.
+     *
+     * @param unit time unit of the result.
+     * @return average queue wait time.
+     */
+    public long getAverageWait(final TimeUnit unit) {
+        return admitted == 0 ? 0 : unit.convert(totalWaitNanos / admitted, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the longest time an admitted request spent waiting for a connection.
+     *
+     * @param unit time unit of the result.
+     * @return maximum queue wait time.
+     */
+    public long getMaxWait(final TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return priority + "{queued=" + queued + ", admitted=" + admitted
+                + ", averageWait=" + getAverageWait(TimeUnit.MILLISECONDS) + "ms"
+                + ", maxWait=" + getMaxWait(TimeUnit.MILLISECONDS) + "ms}";
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side rate limiter keeping one token bucket per destination.
+ * <p/>
+ * Buckets are implemented using the generic cell rate algorithm, so reserving a permit is a single
+ * lock-free compare-and-set and never blocks the calling thread. The caller decides how to wait
+ * for the returned delay.
+ *
+ * @see JettyClientProperties#RATE_LIMIT
+ */
+final class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double defaultRate;
+    private final int burst;
+    private final long maxWaitNanos;
+    private final Map<String, Double> destinationRates;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    /**
+     * Create new rate limiter.
+     *
+     * @param defaultRate      permits per second for destinations without an explicit rate; {@code 0} means unlimited.
+     * @param burst            number of permits that may be taken at once.
+     * @param maxWaitMillis    maximum time a request may wait for a permit; negative value means no limit.
+     * @param destinationRates explicit permits per second keyed by destination.
+     */
+    RateLimiter(final double defaultRate, final int burst, final long maxWaitMillis, final Map<String, Double> destinationRates) {
+        this.defaultRate = defaultRate;
+        this.burst = Math.max(1, burst);
+        this.maxWaitNanos = maxWaitMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.destinationRates = destinationRates;
+    }
+
+    /**
+     * Reserve a permit for the given destination.
+     *
+     * @param destination destination key.
+     * @return number of nanoseconds the caller has to wait before sending the request, or {@code -1}
+     *         if the wait would exceed the configured maximum and no permit has been reserved.
+     */
+    long reserve(final String destination) {
+        final TokenBucket bucket = getBucket(destination);
+        return bucket == null ? 0 : bucket.reserve(System.nanoTime(), maxWaitNanos);
+    }
+
+    /**
+     * Inspect the response for a {@code Retry-After} hint and slow down the destination accordingly.
+     *
+     * @param destination destination key.
+     * @param status      response status code.
+     * @param headers     response headers.
+     */
+    void onResponse(final String destination, final int status, final HttpFields headers) {
+        if (status != 429 && status != 503) {
+            return;
+        }
+        final long delay = getRetryAfter(headers);
+        if (delay > 0) {
+            final TokenBucket bucket = getBucket(destination);
+            if (bucket != null) {
+                bucket.pause(System.nanoTime(), delay);
+            }
+        }
+    }
+
+    private TokenBucket getBucket(final String destination) {
+        TokenBucket bucket = buckets.get(destination);
+        if (bucket == null) {
+            final Double explicitRate = destinationRates.get(destination);
+            final double rate = explicitRate != null ? explicitRate : defaultRate;
+            if (rate <= 0) {
+                return null;
+            }
+            bucket = new TokenBucket(rate, burst);
+            final TokenBucket previous = buckets.putIfAbsent(destination, bucket);
+            if (previous != null) {
+                bucket = previous;
+            }
+        }
+        return bucket;
+    }
+
+    private static long getRetryAfter(final HttpFields headers) {
+        final String value = headers.get(HttpHeader.RETRY_AFTER);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            final long date = HttpFields.parseDate(value);
+            return date > 0 ? TimeUnit.MILLISECONDS.toNanos(date - System.currentTimeMillis()) : 0;
+        }
+    }
+
+    /**
+     * Token bucket driven by a theoretical arrival time of the next permit.
+     */
+    private static final class TokenBucket {
+
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong theoreticalArrival;
+        private final AtomicLong slowDownUntil;
+
+        TokenBucket(final double rate, final int burst) {
+            this.interval = Math.max(1, (long) (NANOS_PER_SECOND / rate));
+            this.tolerance = interval * (burst - 1);
+            final long now = System.nanoTime();
+            this.theoreticalArrival = new AtomicLong(now);
+            this.slowDownUntil = new AtomicLong(now);
+        }
+
+        long reserve(final long now, final long maxWait) {
+            // halve the rate while recovering from a Retry-After response
+            final long emission = now - slowDownUntil.get() < 0 ? interval * 2 : interval;
+            while (true) {
+                final long arrival = theoreticalArrival.get();
+                final long start = arrival - now > 0 ? arrival : now;
+                final long wait = start - tolerance - now;
+                if (maxWait >= 0 && wait > maxWait) {
+                    return -1;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, start + emission)) {
+                    return wait > 0 ? wait : 0;
+                }
+            }
+        }
+
+        void pause(final long now, final long delay) {
+            final long resumeAt = now + delay + tolerance;
+            while (true) {
+                final long arrival = theoreticalArrival.get();
+                if (arrival - resumeAt >= 0 || theoreticalArrival.compareAndSet(arrival, resumeAt)) {
+                    break;
+                }
+            }
+            // concurrent responses may only extend the slow down
+            final long slowDownEnd = now + 2 * delay;
+            while (true) {
+                final long current = slowDownUntil.get();
+                if (current - slowDownEnd >= 0 || slowDownUntil.compareAndSet(current, slowDownEnd)) {
+                    break;
+                }
+            }
+        }
+    }
+}
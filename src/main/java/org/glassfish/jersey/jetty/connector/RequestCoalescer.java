@@ -0,0 +1,201 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.glassfish.jersey.client.ClientRequest;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces identical concurrent {@code GET} requests into a single in-flight exchange.
+ * <p/>
+ * The first request for a key becomes the leader of a flight and performs the exchange. Requests
+ * arriving while the flight is in progress wait for the leader's buffered response and receive
+ * their own copy of it.
+ *
+ * @see JettyClientProperties#COALESCE_REQUESTS
+ */
+final class RequestCoalescer {
+
+    /**
+     * Request headers distinguishing coalesced requests when {@link JettyClientProperties#COALESCE_VARY_HEADERS}
+     * is not set.
+     */
+    static final List<String> DEFAULT_VARY_HEADERS =
+            Arrays.asList("Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cookie");
+
+    private final String[] varyHeaders;
+    private final ConcurrentMap<String, SettableFuture<ContentResponse>> flights =
+            new ConcurrentHashMap<String, SettableFuture<ContentResponse>>();
+
+    /**
+     * Create new request coalescer.
+     *
+     * @param varyHeaders names of request headers whose values must match for requests to be coalesced.
+     */
+    RequestCoalescer(final Collection<String> varyHeaders) {
+        this.varyHeaders = new String[varyHeaders.size()];
+        int i = 0;
+        for (String header : varyHeaders) {
+            this.varyHeaders[i++] = header.trim();
+        }
+        Arrays.sort(this.varyHeaders, String.CASE_INSENSITIVE_ORDER);
+    }
+
+    /**
+     * Get the flight key of a request.
+     *
+     * @param request client request.
+     * @return flight key or {@code null} if the request cannot be coalesced.
+     */
+    String getKey(final ClientRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod()) || request.hasEntity()) {
+            return null;
+        }
+        final StringBuilder key = new StringBuilder(request.getUri().toString());
+        for (String header : varyHeaders) {
+            key.append('\n').append(header.toLowerCase(Locale.ENGLISH)).append(':');
+            final String value = request.getHeaderString(header);
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Join the flight for the given key, starting a new one if none is in progress.
+     *
+     * @param key flight key.
+     * @return the joined flight.
+     */
+    Flight join(final String key) {
+        final SettableFuture<ContentResponse> response = SettableFuture.create();
+        final SettableFuture<ContentResponse> inFlight = flights.putIfAbsent(key, response);
+        return inFlight == null ? new Flight(key, response, true) : new Flight(key, inFlight, false);
+    }
+
+    /**
+     * Single in-flight exchange shared by all requests with the same key.
+     */
+    final class Flight {
+
+        private final String key;
+        private final SettableFuture<ContentResponse> response;
+        private final boolean leader;
+
+        private Flight(final String key, final SettableFuture<ContentResponse> response, final boolean leader) {
+            this.key = key;
+            this.response = response;
+            this.leader = leader;
+        }
+
+        /**
+         * Check whether the owner of this flight instance has to perform the exchange.
+         *
+         * @return {@code true} if the owner leads the flight.
+         */
+        boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Get the future completed with the buffered response of the flight.
+         *
+         * @return buffered response future.
+         */
+        SettableFuture<ContentResponse> getResponse() {
+            return response;
+        }
+
+        /**
+         * Wait for the buffered response of the flight.
+         *
+         * @param timeout maximum time to wait in milliseconds, {@code 0} to wait until the flight completes.
+         * @return buffered response.
+         * @throws ProcessingException if the leader failed, the timeout elapsed or the waiting thread was
+         *                             interrupted.
+         */
+        ContentResponse await(final long timeout) throws ProcessingException {
+            try {
+                return timeout > 0 ? response.get(timeout, TimeUnit.MILLISECONDS) : response.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessingException(e);
+            } catch (ExecutionException e) {
+                throw new ProcessingException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new ProcessingException(e);
+            }
+        }
+
+        /**
+         * Complete the flight, releasing all waiting requests. Requests arriving afterwards start a new flight.
+         *
+         * @param contentResponse buffered response.
+         */
+        void complete(final ContentResponse contentResponse) {
+            flights.remove(key, response);
+            response.set(contentResponse);
+        }
+
+        /**
+         * Fail the flight, propagating the failure to all waiting requests.
+         *
+         * @param failure failure cause.
+         */
+        void fail(final Throwable failure) {
+            flights.remove(key, response);
+            response.setException(failure);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.http.HttpHeader;
+import org.glassfish.jersey.client.ClientRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * {@code gzip} compression of request entities larger than a threshold.
+ * <p/>
+ * The entity is compressed while it is written: the first bytes are held back until the entity grows past
+ * the threshold, the compression then starts and the {@code Content-Encoding} header of the request is set.
+ * Entities not larger than the threshold are sent as is. The raw {@link Deflater deflaters} are taken from
+ * a pool and the {@code gzip} header and trailer are written by the compressing stream.
+ *
+ * @see JettyClientProperties#REQUEST_COMPRESSION_THRESHOLD
+ */
+final class RequestCompressor {
+
+    private static final String GZIP = "gzip";
+    private static final byte[] GZIP_HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int threshold;
+    private final DeflaterPool deflaters;
+    private final boolean cpuTime;
+
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong uncompressedRequests = new AtomicLong();
+    private final AtomicLong entityBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+
+    /**
+     * Create new request compressor.
+     *
+     * @param threshold size in bytes above which the request entities are compressed.
+     * @param level     compression level, from {@code 1} to {@code 9} or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    RequestCompressor(final int threshold, final int level) {
+        this.threshold = threshold;
+        this.deflaters = new DeflaterPool(level, 2 * Runtime.getRuntime().availableProcessors());
+        this.cpuTime = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Wrap the entity stream of a request into a compressing stream.
+     *
+     * @param out           entity stream sending the entity to the network.
+     * @param clientRequest Jersey client request.
+     * @param request       Jetty request, its headers are updated when the entity is compressed.
+     * @param contentLength entity size if known in advance, {@code -1} otherwise.
+     * @return stream to write the entity to.
+     */
+    OutputStream wrap(final OutputStream out, final ClientRequest clientRequest, final Request request,
+                      final int contentLength) {
+        if (clientRequest.getHeaders().containsKey(HttpHeader.CONTENT_ENCODING.asString())) {
+            // already encoded, e.g. by a WriterInterceptor
+            return out;
+        }
+        if (contentLength >= 0 && contentLength <= threshold) {
+            uncompressedRequests.incrementAndGet();
+            return out;
+        }
+        return new CompressingOutputStream(out, request);
+    }
+
+    /**
+     * Release the deflater of a stream returned by {@link #wrap(OutputStream, ClientRequest, Request, int)}
+     * whose entity failed to be written and which is thus never closed.
+     *
+     * @param stream wrapped entity stream, may be {@code null}.
+     */
+    void abort(final OutputStream stream) {
+        if (stream instanceof CompressingOutputStream) {
+            ((CompressingOutputStream) stream).abort();
+        }
+    }
+
+    /**
+     * Get the number of deflaters used by the entities being written.
+     *
+     * @return deflaters in use.
+     */
+    int getDeflatersInUse() {
+        return deflaters.getInUse();
+    }
+
+    /**
+     * Get the compression statistics.
+     *
+     * @return statistics snapshot.
+     */
+    CompressionStatistics getStatistics() {
+        return new CompressionStatistics(compressedRequests.get(), uncompressedRequests.get(),
+                entityBytes.get(), compressedBytes.get(), compressionNanos.get());
+    }
+
+    /**
+     * Release the pooled deflaters.
+     */
+    void close() {
+        deflaters.close();
+    }
+
+    private long time() {
+        return cpuTime ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private final class CompressingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final Request request;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer;
+        private int count;
+        private byte[] output;
+        private Deflater deflater;
+        private long written;
+        private long length;
+        private boolean closed;
+
+        CompressingOutputStream(final OutputStream out, final Request request) {
+            this.out = out;
+            this.request = request;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException(LocalizationMessages.REQUEST_ENTITY_STREAM_CLOSED());
+            }
+            if (deflater == null) {
+                if (count + len <= threshold) {
+                    hold(b, off, len);
+                    return;
+                }
+                start();
+            }
+            deflate(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (deflater != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (deflater == null) {
+                    uncompressedRequests.incrementAndGet();
+                    if (count > 0) {
+                        out.write(buffer, 0, count);
+                    }
+                } else {
+                    finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflaters.release(deflater);
+                    deflater = null;
+                }
+                out.close();
+            }
+        }
+
+        void abort() {
+            closed = true;
+            if (deflater != null) {
+                deflaters.release(deflater);
+                deflater = null;
+            }
+        }
+
+        private void hold(final byte[] b, final int off, final int len) {
+            if (buffer == null) {
+                buffer = new byte[Math.max(len, Math.min(threshold, 8192))];
+            } else if (count + len > buffer.length) {
+                final byte[] grown = new byte[Math.min(threshold, Math.max(count + len, 2 * buffer.length))];
+                System.arraycopy(buffer, 0, grown, 0, count);
+                buffer = grown;
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        private void start() throws IOException {
+            request.getHeaders().remove(HttpHeader.CONTENT_LENGTH);
+            request.header(HttpHeader.CONTENT_ENCODING, GZIP);
+            deflater = deflaters.acquire();
+            output = new byte[8192];
+            out.write(GZIP_HEADER);
+            written = GZIP_HEADER.length;
+            if (count > 0) {
+                deflate(buffer, 0, count);
+            }
+            buffer = null;
+            count = 0;
+        }
+
+        private void deflate(final byte[] b, final int off, final int len) throws IOException {
+            final long start = time();
+            crc.update(b, off, len);
+            length += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain();
+            }
+            compressionNanos.addAndGet(time() - start);
+        }
+
+        private void finish() throws IOException {
+            final long start = time();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            final int value = (int) crc.getValue();
+            final byte[] trailer = {
+                    (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24),
+                    (byte) length, (byte) (length >> 8), (byte) (length >> 16), (byte) (length >> 24)};
+            out.write(trailer);
+            written += trailer.length;
+            compressionNanos.addAndGet(time() - start);
+            compressedRequests.incrementAndGet();
+            entityBytes.addAndGet(length);
+            compressedBytes.addAndGet(written);
+        }
+
+        private void drain() throws IOException {
+            final int n = deflater.deflate(output, 0, output.length);
+            if (n > 0) {
+                // the entity stream may queue the written array without copying it
+                out.write(Arrays.copyOf(output, n));
+                written += n;
+            }
+        }
+    }
+}
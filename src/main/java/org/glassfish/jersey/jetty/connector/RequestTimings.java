@@ -0,0 +1,303 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic timestamps of the phases of a request sent by the {@link JettyConnector}.
+ * <p/>
+ * When {@link JettyClientProperties#REQUEST_TIMINGS} is enabled, the timings of each request sent to the network
+ * are stored in the {@link #PROPERTY} property of the request, available to {@code ClientResponseFilter}s and
+ * through {@code ClientResponse.getRequestContext()}. The timestamps are recorded with {@link System#nanoTime()}
+ * by the Jetty request and response listeners, this object being the only listener, so that no other object is
+ * allocated per request, and are kept as offsets from the {@link Phase#START start} of the request. Phases not
+ * reached yet, e.g. the end of the response of an asynchronous request whose entity is still being received,
+ * have no timestamp.
+ * <p/>
+ * Jetty does not report the connection establishment steps: the DNS lookup, TCP connect and TLS handshake of
+ * a new connection are part of the {@link #getConnectionTime(TimeUnit) connection time}, together with the wait
+ * for a pooled connection.
+ */
+public final class RequestTimings extends Request.Listener.Empty
+        implements Response.BeginListener, Response.HeadersListener, Response.CompleteListener {
+
+    /**
+     * Name of the request property holding the timings.
+     */
+    public static final String PROPERTY = RequestTimings.class.getName();
+
+    /**
+     * Request phases, in chronological order.
+     */
+    public enum Phase {
+        /**
+         * The connector started processing the request, before the rate limit, priority and bulkhead admission.
+         */
+        START,
+        /**
+         * The request was queued by Jetty, waiting for a connection.
+         */
+        QUEUED,
+        /**
+         * A connection was acquired and the request started.
+         */
+        REQUEST_BEGIN,
+        /**
+         * The request headers were written to the network.
+         */
+        REQUEST_COMMIT,
+        /**
+         * The request, including its entity, was sent.
+         */
+        REQUEST_END,
+        /**
+         * The first byte of the response, i.e. its status line, was received.
+         */
+        RESPONSE_BEGIN,
+        /**
+         * The response headers were received.
+         */
+        RESPONSE_HEADERS,
+        /**
+         * The response, including its entity, was received, or the request failed.
+         */
+        RESPONSE_END
+    }
+
+    private final long start;
+    private volatile long queued = -1;
+    private volatile long requestBegin = -1;
+    private volatile long requestCommit = -1;
+    private volatile long requestEnd = -1;
+    private volatile long responseBegin = -1;
+    private volatile long responseHeaders = -1;
+    private volatile long responseEnd = -1;
+
+    RequestTimings() {
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Start recording the timings of a request.
+     *
+     * @param request Jetty request.
+     */
+    void attach(final Request request) {
+        request.listener(this);
+        // a single registration, response listeners are notified of every event type they implement
+        request.onResponseBegin(this);
+    }
+
+    /**
+     * Get the {@link System#nanoTime()} value of the start of the request.
+     *
+     * @return start timestamp.
+     */
+    public long getStartTime() {
+        return start;
+    }
+
+    /**
+     * Get the timestamp of a phase, relative to the start of the request.
+     *
+     * @param phase request phase.
+     * @param unit  time unit of the result.
+     * @return time elapsed since the start of the request, or {@code -1} if the phase was not reached.
+     */
+    public long getTimestamp(final Phase phase, final TimeUnit unit) {
+        final long offset = getOffset(phase);
+        return offset < 0 ? -1 : unit.convert(offset, TimeUnit.NANOSECONDS);
+    }
+
+    private long getOffset(final Phase phase) {
+        switch (phase) {
+            case START:
+                return 0;
+            case QUEUED:
+                return queued;
+            case REQUEST_BEGIN:
+                return requestBegin;
+            case REQUEST_COMMIT:
+                return requestCommit;
+            case REQUEST_END:
+                return requestEnd;
+            case RESPONSE_BEGIN:
+                return responseBegin;
+            case RESPONSE_HEADERS:
+                return responseHeaders;
+            default:
+                return responseEnd;
+        }
+    }
+
+    /**
+     * Get the time between two phases.
+     *
+     * @param from first phase.
+     * @param to   second phase.
+     * @param unit time unit of the result.
+     * @return elapsed time, or {@code -1} if either phase was not reached.
+     */
+    public long getTime(final Phase from, final Phase to, final TimeUnit unit) {
+        final long begin = getOffset(from);
+        final long end = getOffset(to);
+        return begin < 0 || end < 0 ? -1 : unit.convert(end - begin, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the time spent in the connector before the request was handed to Jetty, waiting for a rate limit
+     * permit, its priority turn or a bulkhead slot.
+     *
+     * @param unit time unit of the result.
+     * @return admission time, or {@code -1} if not reached.
+     */
+    public long getAdmissionTime(final TimeUnit unit) {
+        return getTime(Phase.START, Phase.QUEUED, unit);
+    }
+
+    /**
+     * Get the time spent waiting for a connection, including the DNS lookup, TCP connect and TLS handshake when
+     * a new connection is opened.
+     *
+     * @param unit time unit of the result.
+     * @return connection time, or {@code -1} if not reached.
+     */
+    public long getConnectionTime(final TimeUnit unit) {
+        return getTime(Phase.QUEUED, Phase.REQUEST_BEGIN, unit);
+    }
+
+    /**
+     * Get the time spent sending the request headers and entity.
+     *
+     * @param unit time unit of the result.
+     * @return send time, or {@code -1} if not reached.
+     */
+    public long getSendTime(final TimeUnit unit) {
+        return getTime(Phase.REQUEST_BEGIN, Phase.REQUEST_END, unit);
+    }
+
+    /**
+     * Get the time between the end of the request and the first byte of the response, i.e. the server
+     * processing time and the network round trip.
+     *
+     * @param unit time unit of the result.
+     * @return time to first byte, or {@code -1} if not reached.
+     */
+    public long getTimeToFirstByte(final TimeUnit unit) {
+        return getTime(Phase.REQUEST_END, Phase.RESPONSE_BEGIN, unit);
+    }
+
+    /**
+     * Get the time spent receiving the response headers and entity.
+     *
+     * @param unit time unit of the result.
+     * @return download time, or {@code -1} if not reached.
+     */
+    public long getDownloadTime(final TimeUnit unit) {
+        return getTime(Phase.RESPONSE_BEGIN, Phase.RESPONSE_END, unit);
+    }
+
+    /**
+     * Get the total time of the request.
+     *
+     * @param unit time unit of the result.
+     * @return total time, or {@code -1} if the request is not complete.
+     */
+    public long getTotalTime(final TimeUnit unit) {
+        return getTime(Phase.START, Phase.RESPONSE_END, unit);
+    }
+
+    /**
+     * Check whether the request is complete, i.e. all the timestamps are recorded.
+     *
+     * @return {@code true} if the response was received or the request failed.
+     */
+    public boolean isComplete() {
+        return responseEnd >= 0;
+    }
+
+    @Override
+    public void onQueued(final Request request) {
+        queued = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onBegin(final Request request) {
+        requestBegin = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onCommit(final Request request) {
+        requestCommit = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onSuccess(final Request request) {
+        requestEnd = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onBegin(final Response response) {
+        responseBegin = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onHeaders(final Response response) {
+        responseHeaders = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onComplete(final Result result) {
+        responseEnd = System.nanoTime() - start;
+    }
+
+    @Override
+    public String toString() {
+        final TimeUnit unit = TimeUnit.MICROSECONDS;
+        return "RequestTimings{admission=" + getAdmissionTime(unit) + "us, connection=" + getConnectionTime(unit)
+                + "us, send=" + getSendTime(unit) + "us, timeToFirstByte=" + getTimeToFirstByte(unit)
+                + "us, download=" + getDownloadTime(unit) + "us, total=" + getTotalTime(unit) + "us}";
+    }
+}
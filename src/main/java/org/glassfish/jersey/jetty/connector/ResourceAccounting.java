@@ -0,0 +1,395 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpField;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Accounting of the CPU time and memory allocated by the connector threads for each request, aggregated
+ * by destination and route.
+ * <p/>
+ * A request is accounted while the calling thread is in the connector, and while the Jetty threads notify its
+ * response listener, i.e. translate the response headers, decode and buffer the response content. The work done
+ * by the Jetty client itself, e.g. parsing the response, is not attributed to requests, nor is the user code run by
+ * these threads, e.g. the callbacks of the asynchronous requests, see {@link #runUnaccounted(Runnable)}. The CPU time and
+ * allocated bytes of the current thread are read from the {@link ThreadMXBean}, allocations only on JVMs
+ * providing {@code com.sun.management.ThreadMXBean}.
+ *
+ * @see JettyClientProperties#ACCOUNTING
+ */
+final class ResourceAccounting {
+
+    /**
+     * Route of the requests without a {@link JettyClientProperties#REQUEST_ROUTE route}.
+     */
+    static final String DEFAULT_ROUTE = "default";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = getAllocations();
+    private static final AtomicLongFieldUpdater<Account> CPU_NANOS =
+            AtomicLongFieldUpdater.newUpdater(Account.class, "cpuNanos");
+    private static final AtomicLongFieldUpdater<Account> ALLOCATED =
+            AtomicLongFieldUpdater.newUpdater(Account.class, "allocated");
+    private static final AtomicIntegerFieldUpdater<Account> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(Account.class, "pending");
+    // account measured by the current thread
+    private static final ThreadLocal<Account> CURRENT = new ThreadLocal<Account>();
+
+    private final boolean cpuTime = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private final boolean allocatedBytes = ALLOCATIONS != null;
+    private final ConcurrentMap<String, ConcurrentMap<String, Usage>> destinations =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Usage>>();
+
+    private static com.sun.management.ThreadMXBean getAllocations() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    return threads;
+                }
+            }
+        } catch (LinkageError e) {
+            // not a HotSpot based JVM
+        }
+        return null;
+    }
+
+    /**
+     * Start accounting a request, from the calling thread.
+     *
+     * @param destination request destination.
+     * @param route       request route, may be {@code null}.
+     * @return request account, to be {@link Account#end() ended} when the calling thread leaves the connector.
+     */
+    Account begin(final String destination, final String route) {
+        return new Account(getUsage(destination, route != null ? route : DEFAULT_ROUTE));
+    }
+
+    /**
+     * Run user code, e.g. a callback of an asynchronous request, without charging its resource usage to the
+     * request accounted by the calling thread, if any.
+     *
+     * @param task user code.
+     */
+    static void runUnaccounted(final Runnable task) {
+        final Account account = CURRENT.get();
+        if (account == null) {
+            task.run();
+        } else {
+            account.exclude(task);
+        }
+    }
+
+    private static void restore(final Account previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private Usage getUsage(final String destination, final String route) {
+        ConcurrentMap<String, Usage> routes = destinations.get(destination);
+        if (routes == null) {
+            final ConcurrentMap<String, Usage> created = new ConcurrentHashMap<String, Usage>();
+            routes = destinations.putIfAbsent(destination, created);
+            if (routes == null) {
+                routes = created;
+            }
+        }
+        Usage usage = routes.get(route);
+        if (usage == null) {
+            final Usage created = new Usage();
+            usage = routes.putIfAbsent(route, created);
+            if (usage == null) {
+                usage = created;
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Get the resource usage of a destination.
+     *
+     * @param destination destination in the {@code scheme://host:port} form.
+     * @return statistics by route, empty if no request to the destination was accounted.
+     */
+    Map<String, ResourceUsageStatistics> getStatistics(final String destination) {
+        final ConcurrentMap<String, Usage> routes = destinations.get(destination);
+        if (routes == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, ResourceUsageStatistics> statistics = new LinkedHashMap<String, ResourceUsageStatistics>();
+        for (Map.Entry<String, Usage> route : routes.entrySet()) {
+            statistics.put(route.getKey(), route.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    private long threadCpuTime() {
+        return cpuTime ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long threadAllocatedBytes() {
+        return allocatedBytes ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Aggregated resource usage of a destination and route.
+     */
+    private static final class Usage {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+        private final AtomicLong maxAllocatedBytes = new AtomicLong();
+        // the CPU time histogram also provides its total and maximum
+        private final LatencyHistogram cpuTimes = new LatencyHistogram();
+
+        void record(final long cpuNanos, final long allocated) {
+            count.incrementAndGet();
+            cpuTimes.record(TimeUnit.NANOSECONDS.toMicros(cpuNanos));
+            allocatedBytes.addAndGet(allocated);
+            long current = maxAllocatedBytes.get();
+            while (allocated > current && !maxAllocatedBytes.compareAndSet(current, allocated)) {
+                current = maxAllocatedBytes.get();
+            }
+        }
+
+        ResourceUsageStatistics getStatistics() {
+            final LatencyStatistics cpu = cpuTimes.getStatistics();
+            return new ResourceUsageStatistics(count.get(), Math.round(cpu.getMean() * cpu.getCount()), cpu.getMax(),
+                    cpu.getPercentile99(), allocatedBytes.get(), maxAllocatedBytes.get());
+        }
+    }
+
+    /**
+     * Resources used by a single request. The request is recorded once the calling thread has left the connector
+     * and the response listeners are complete.
+     */
+    final class Account {
+
+        private static final int CALLER = 1;
+
+        private final Usage usage;
+        private final long callerCpuTime;
+        private final long callerAllocatedBytes;
+        private final Account callerPrevious;
+        // not private, for the field updaters
+        volatile long cpuNanos;
+        volatile long allocated;
+        volatile int pending = CALLER;
+
+        private Account(final Usage usage) {
+            this.usage = usage;
+            this.callerCpuTime = threadCpuTime();
+            this.callerAllocatedBytes = threadAllocatedBytes();
+            this.callerPrevious = enter();
+        }
+
+        /**
+         * End the accounting of the calling thread.
+         */
+        void end() {
+            restore(callerPrevious);
+            add(callerCpuTime, callerAllocatedBytes);
+            done();
+        }
+
+        /**
+         * End the accounting of a {@link #wrap(Response.Listener) wrapped} listener that will never be notified,
+         * e.g. because its request was cancelled before being sent.
+         */
+        void abandon() {
+            done();
+        }
+
+        /**
+         * Account the notifications of a response listener. The listener must be wrapped before {@link #end()}
+         * is invoked.
+         *
+         * @param listener response listener.
+         * @return accounted listener.
+         */
+        Response.Listener wrap(final Response.Listener listener) {
+            PENDING.incrementAndGet(this);
+            return new AccountedListener(listener);
+        }
+
+        private void add(final long cpuTime, final long allocatedBytes) {
+            CPU_NANOS.addAndGet(this, threadCpuTime() - cpuTime);
+            ALLOCATED.addAndGet(this, threadAllocatedBytes() - allocatedBytes);
+        }
+
+        private Account enter() {
+            final Account previous = CURRENT.get();
+            CURRENT.set(this);
+            return previous;
+        }
+
+        private void exclude(final Runnable task) {
+            final long cpuTime = threadCpuTime();
+            final long allocatedBytes = threadAllocatedBytes();
+            // a request sent by the task is accounted on its own
+            CURRENT.remove();
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(this);
+                CPU_NANOS.addAndGet(this, cpuTime - threadCpuTime());
+                ALLOCATED.addAndGet(this, allocatedBytes - threadAllocatedBytes());
+            }
+        }
+
+        private void done() {
+            if (PENDING.decrementAndGet(this) == 0) {
+                usage.record(cpuNanos, allocated);
+            }
+        }
+
+        private final class AccountedListener implements Response.Listener {
+
+            private final Response.Listener listener;
+
+            AccountedListener(final Response.Listener listener) {
+                this.listener = listener;
+            }
+
+            @Override
+            public void onBegin(final Response response) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onBegin(response);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public boolean onHeader(final Response response, final HttpField field) {
+                // a header at a time, too fine grained to be measured
+                return listener.onHeader(response, field);
+            }
+
+            @Override
+            public void onHeaders(final Response response) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onHeaders(response);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public void onContent(final Response response, final ByteBuffer content) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onContent(response, content);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public void onSuccess(final Response response) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onSuccess(response);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public void onFailure(final Response response, final Throwable failure) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onFailure(response, failure);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                }
+            }
+
+            @Override
+            public void onComplete(final Result result) {
+                final Account previous = enter();
+                final long cpuTime = threadCpuTime();
+                final long allocatedBytes = threadAllocatedBytes();
+                try {
+                    listener.onComplete(result);
+                } finally {
+                    add(cpuTime, allocatedBytes);
+                    restore(previous);
+                    done();
+                }
+            }
+        }
+    }
+}
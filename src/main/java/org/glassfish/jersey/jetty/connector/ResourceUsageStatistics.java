@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of the CPU time and memory allocated by the connector for the requests of a destination and route.
+ * CPU times are in microseconds. The CPU time is {@code 0} if the JVM does not support measuring the CPU time
+ * of threads, and the allocated bytes are {@code 0} if it does not support measuring their allocations.
+ *
+ * @see JettyClientProperties#ACCOUNTING
+ * @see DestinationMetricsMXBean#getResourceUsage()
+ */
+public final class ResourceUsageStatistics {
+
+    private final long count;
+    private final long cpuTime;
+    private final long maxCpuTime;
+    private final long cpuTime99;
+    private final long allocatedBytes;
+    private final long maxAllocatedBytes;
+
+    ResourceUsageStatistics(final long count,
+                            final long cpuTime,
+                            final long maxCpuTime,
+                            final long cpuTime99,
+                            final long allocatedBytes,
+                            final long maxAllocatedBytes) {
+        this.count = count;
+        this.cpuTime = cpuTime;
+        this.maxCpuTime = maxCpuTime;
+        this.cpuTime99 = cpuTime99;
+        this.allocatedBytes = allocatedBytes;
+        this.maxAllocatedBytes = maxAllocatedBytes;
+    }
+
+    /**
+     * Get the number of accounted requests.
+     *
+     * @return request count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the total CPU time spent by the connector threads on the requests.
+     *
+     * @return total CPU time.
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Get the mean CPU time spent by the connector threads on a request.
+     *
+     * @return mean CPU time.
+     */
+    public double getMeanCpuTime() {
+        return count > 0 ? (double) cpuTime / count : 0;
+    }
+
+    /**
+     * Get the 99th percentile of the CPU time spent by the connector threads on a request.
+     *
+     * @return 99th percentile CPU time.
+     */
+    public long getCpuTime99() {
+        return cpuTime99;
+    }
+
+    /**
+     * Get the maximum CPU time spent by the connector threads on a request.
+     *
+     * @return maximum CPU time.
+     */
+    public long getMaxCpuTime() {
+        return maxCpuTime;
+    }
+
+    /**
+     * Get the total number of bytes allocated by the connector threads for the requests.
+     *
+     * @return total allocated bytes.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Get the mean number of bytes allocated by the connector threads for a request.
+     *
+     * @return mean allocated bytes.
+     */
+    public double getMeanAllocatedBytes() {
+        return count > 0 ? (double) allocatedBytes / count : 0;
+    }
+
+    /**
+     * Get the maximum number of bytes allocated by the connector threads for a request.
+     *
+     * @return maximum allocated bytes.
+     */
+    public long getMaxAllocatedBytes() {
+        return maxAllocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceUsageStatistics{count=" + count
+                + ", cpuTime=" + cpuTime
+                + ", maxCpuTime=" + maxCpuTime
+                + ", cpuTime99=" + cpuTime99
+                + ", allocatedBytes=" + allocatedBytes
+                + ", maxAllocatedBytes=" + maxAllocatedBytes + '}';
+    }
+}
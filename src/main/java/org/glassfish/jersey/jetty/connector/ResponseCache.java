@@ -0,0 +1,821 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.glassfish.jersey.client.ClientRequest;
+
+import javax.ws.rs.HttpMethod;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory private HTTP cache of {@code GET} responses following the freshness model of RFC 7234.
+ * <p/>
+ * Responses are stored if they carry an explicit freshness lifetime ({@code Cache-Control: max-age}
+ * or {@code Expires}) or a validator ({@code ETag} or {@code Last-Modified}). Fresh responses are served
+ * from the cache, stale responses with a validator are revalidated using a conditional request and
+ * rebuilt from the stored body when the origin server answers {@code 304 Not Modified}. Request headers
+ * nominated by the {@code Vary} response header must match for a stored response to be used. The cache
+ * is bounded by the total size of the stored bodies and evicts the least recently used responses first.
+ * <p/>
+ * Stale responses may also be served within the {@code stale-while-revalidate} window of RFC 5861, while
+ * a single background request per key refreshes them, and within the {@code stale-if-error} window when
+ * the origin server fails.
+ * <p/>
+ * If a {@link DiskCache disk tier} is configured, stored responses are written through to it and responses
+ * missing in memory are served from it.
+ *
+ * @see JettyClientProperties#CACHE_MAX_SIZE
+ * @see JettyClientProperties#CACHE_DIRECTORY
+ */
+final class ResponseCache {
+
+    /**
+     * Status codes that are cacheable by default (RFC 7231, section 6.1).
+     */
+    private static final Set<Integer> CACHEABLE_STATUSES =
+            new HashSet<Integer>(Arrays.asList(200, 203, 204, 300, 301, 404, 405, 410, 414, 501));
+
+    private static final Set<String> UNSAFE_METHODS =
+            new HashSet<String>(Arrays.asList(HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE, "PATCH"));
+
+    private static final String[] CONDITIONAL_HEADERS = {
+            HttpHeader.IF_MATCH.asString(), HttpHeader.IF_NONE_MATCH.asString(),
+            HttpHeader.IF_MODIFIED_SINCE.asString(), HttpHeader.IF_UNMODIFIED_SINCE.asString(),
+            HttpHeader.IF_RANGE.asString()};
+
+    /**
+     * Headers of a {@code 304} response that do not update the stored response.
+     */
+    private static final Set<String> NOT_UPDATED_HEADERS = new HashSet<String>(Arrays.asList(
+            HttpHeader.CONTENT_LENGTH.asString().toLowerCase(Locale.ENGLISH),
+            HttpHeader.TRANSFER_ENCODING.asString().toLowerCase(Locale.ENGLISH)));
+
+    private final long maxSize;
+    private final DiskCache disk;
+    private final long staleWhileRevalidate;
+    private final long staleIfError;
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long size;
+    private long evictions;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong staleIfErrorHits = new AtomicLong();
+
+    /**
+     * Create new response cache.
+     *
+     * @param maxSize              maximum total size of the response bodies cached in memory in bytes.
+     * @param disk                 disk tier, {@code null} if responses are cached in memory only.
+     * @param staleWhileRevalidate {@code stale-while-revalidate} window in milliseconds of responses
+     *                             without the directive.
+     * @param staleIfError         {@code stale-if-error} window in milliseconds of responses without the directive.
+     */
+    ResponseCache(final long maxSize, final DiskCache disk, final long staleWhileRevalidate, final long staleIfError) {
+        this.maxSize = maxSize;
+        this.disk = disk;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.staleIfError = staleIfError;
+    }
+
+    /**
+     * Get a fresh cached response for the request, or a stale one within its {@code stale-while-revalidate}
+     * window. A stale response should be refreshed in the background, see {@link #startRefresh}.
+     *
+     * @param request client request.
+     * @return cached response or {@code null} if the request has to be sent.
+     */
+    Entry get(final ClientRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod()) || request.hasEntity()) {
+            return null;
+        }
+        final Map<String, String> directives = getRequestDirectives(request);
+        if (directives.containsKey("no-store") || directives.containsKey("no-cache")) {
+            misses.incrementAndGet();
+            return null;
+        }
+        final String key = getKey(request);
+        Entry entry = getFromMemory(key);
+        boolean fromDisk = false;
+        if (entry == null && disk != null) {
+            entry = disk.get(key);
+            fromDisk = entry != null;
+        }
+        if (entry == null || !entry.matches(request)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        if (!entry.isFresh(now, directives)) {
+            // the request does not accept a response older than it asks for
+            if (directives.containsKey("max-age") || directives.containsKey("min-fresh")
+                    || !entry.isStaleUsable(now, entry.staleWhileRevalidate >= 0 ? entry.staleWhileRevalidate : staleWhileRevalidate)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            staleHits.incrementAndGet();
+        }
+        hits.incrementAndGet();
+        if (fromDisk) {
+            diskHits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private Entry getFromMemory(final String key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start the background refresh of a stale response served by {@link #get(ClientRequest)}.
+     *
+     * @param request request the response was served for.
+     * @param entry   served response.
+     * @return {@code true} if the response is stale and no other refresh of it is running, in which case the
+     *         caller has to refresh it and call {@link #endRefresh(ClientRequest)} afterwards.
+     */
+    boolean startRefresh(final ClientRequest request, final Entry entry) {
+        return !entry.isFresh(System.currentTimeMillis(), Collections.<String, String>emptyMap())
+                && refreshing.add(getKey(request));
+    }
+
+    /**
+     * End the background refresh started by {@link #startRefresh}.
+     *
+     * @param request refreshed request.
+     */
+    void endRefresh(final ClientRequest request) {
+        refreshing.remove(getKey(request));
+    }
+
+    /**
+     * Get the stored response for a request that has to be sent to the origin server. The response can be
+     * revalidated with a conditional request and may be used if the origin server fails.
+     * Must be called after {@link #get(ClientRequest)} did not return a response.
+     *
+     * @param request client request.
+     * @return stored response, or {@code null} if the request has to be sent unconditionally.
+     */
+    Entry getStale(final ClientRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod()) || request.hasEntity()
+                || getRequestDirectives(request).containsKey("no-store")) {
+            return null;
+        }
+        for (String header : CONDITIONAL_HEADERS) {
+            if (request.getHeaderString(header) != null) {
+                // the application validates its own representation
+                return null;
+            }
+        }
+        final String key = getKey(request);
+        Entry entry = getFromMemory(key);
+        if (entry == null && disk != null) {
+            entry = disk.get(key);
+        }
+        return entry == null || !entry.matches(request) ? null : entry;
+    }
+
+    /**
+     * Turn a request into a conditional request revalidating a stored response.
+     *
+     * @param entry   stored response returned by {@link #getStale(ClientRequest)}.
+     * @param request request to be sent.
+     */
+    void addValidators(final Entry entry, final org.eclipse.jetty.client.api.Request request) {
+        if (entry.addValidators(request)) {
+            revalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Check whether a stored response may be used because the origin server failed, i.e. the request
+     * failed or was answered by a {@code 500}, {@code 502}, {@code 503} or {@code 504} response.
+     *
+     * @param request client request.
+     * @param entry   stored response returned by {@link #getStale(ClientRequest)}.
+     * @return {@code true} if the response is within its {@code stale-if-error} window.
+     */
+    boolean isUsableOnError(final ClientRequest request, final Entry entry) {
+        long window = getSeconds(getRequestDirectives(request), "stale-if-error");
+        window = window >= 0 ? TimeUnit.SECONDS.toMillis(window) : entry.staleIfError >= 0 ? entry.staleIfError : staleIfError;
+        if (window > 0 && entry.isStaleUsable(System.currentTimeMillis(), window)) {
+            staleIfErrorHits.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a response status is an error allowing the use of a stale response (RFC 5861, section 4).
+     *
+     * @param status response status code.
+     * @return {@code true} for {@code 500}, {@code 502}, {@code 503} and {@code 504}.
+     */
+    static boolean isServerError(final int status) {
+        return status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Update a stale response with the headers of the {@code 304 Not Modified} response received
+     * for its revalidation (RFC 7234, section 4.3.4).
+     *
+     * @param request      revalidation request.
+     * @param stale        revalidated stale response.
+     * @param response     {@code 304} response.
+     * @param requestTime  time in milliseconds the conditional request was sent.
+     * @param responseTime time in milliseconds the response was received.
+     * @return updated response, carrying the stored body.
+     */
+    Entry revalidate(final ClientRequest request,
+                     final Entry stale,
+                     final Response response,
+                     final long requestTime,
+                     final long responseTime) {
+        final Set<String> updated = new HashSet<String>();
+        for (HttpField field : response.getHeaders()) {
+            updated.add(field.getName().toLowerCase(Locale.ENGLISH));
+        }
+        updated.removeAll(NOT_UPDATED_HEADERS);
+        final HttpFields headers = new HttpFields();
+        for (HttpField field : stale.headers) {
+            if (!updated.contains(field.getName().toLowerCase(Locale.ENGLISH))) {
+                headers.add(field);
+            }
+        }
+        for (HttpField field : response.getHeaders()) {
+            if (updated.contains(field.getName().toLowerCase(Locale.ENGLISH))) {
+                headers.add(field);
+            }
+        }
+        final Entry entry = new Entry(stale.varyValues, stale.status, stale.reason, stale.version, stale.conversationId,
+                headers, stale.body, requestTime, responseTime);
+        final String key = getKey(request);
+        notModified.incrementAndGet();
+        lock.lock();
+        try {
+            if (entries.get(key) == stale) {
+                entries.put(key, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (disk != null) {
+            disk.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Check whether a response to the request may be stored, i.e. whether its body has to be buffered.
+     *
+     * @param request  client request.
+     * @param response response received for the request.
+     * @return {@code true} if the response is storable.
+     */
+    boolean isStorable(final ClientRequest request, final Response response) {
+        if (!HttpMethod.GET.equals(request.getMethod()) || request.hasEntity()
+                || !CACHEABLE_STATUSES.contains(response.getStatus())
+                || getRequestDirectives(request).containsKey("no-store")) {
+            return false;
+        }
+        final HttpFields headers = response.getHeaders();
+        final Map<String, String> directives = parseCacheControl(headers.getValuesCollection(HttpHeader.CACHE_CONTROL.asString()));
+        if (directives.containsKey("no-store")) {
+            return false;
+        }
+        final String vary = headers.get(HttpHeader.VARY);
+        if (vary != null && vary.contains("*")) {
+            return false;
+        }
+        return headers.containsKey(HttpHeader.ETAG.asString()) || headers.containsKey(HttpHeader.LAST_MODIFIED.asString())
+                || (!directives.containsKey("no-cache") && getFreshnessLifetime(headers, directives, System.currentTimeMillis()) > 0);
+    }
+
+    /**
+     * Update the cache with a response received from the network. A storable response is cached, a successful
+     * response to an unsafe request invalidates the cached response of the request URI.
+     *
+     * @param request      client request.
+     * @param response     response received for the request.
+     * @param body         buffered response body, {@code null} if the body was not buffered.
+     * @param requestTime  time in milliseconds the request was sent.
+     * @param responseTime time in milliseconds the response was received.
+     */
+    void store(final ClientRequest request,
+               final Response response,
+               final byte[] body,
+               final long requestTime,
+               final long responseTime) {
+        if (UNSAFE_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+            invalidate(getKey(request));
+            return;
+        }
+        if (body == null || !isStorable(request, response)) {
+            return;
+        }
+        final HttpFields headers = new HttpFields();
+        for (HttpField field : response.getHeaders()) {
+            headers.add(field);
+        }
+        final Entry entry = new Entry(getVaryValues(headers, request), response.getStatus(), response.getReason(),
+                response.getVersion(), response.getConversationID(), headers, ByteBuffer.wrap(body), requestTime, responseTime);
+        final String key = getKey(request);
+        lock.lock();
+        try {
+            final Entry previous = body.length <= maxSize ? entries.put(key, entry) : entries.remove(key);
+            if (previous != null) {
+                size -= previous.getBodySize();
+            }
+            if (body.length <= maxSize) {
+                size += body.length;
+            }
+            final Iterator<Entry> lru = entries.values().iterator();
+            while (size > maxSize && lru.hasNext()) {
+                size -= lru.next().getBodySize();
+                lru.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (disk != null) {
+            disk.put(key, entry);
+        }
+    }
+
+    private void invalidate(final String key) {
+        lock.lock();
+        try {
+            final Entry entry = entries.remove(key);
+            if (entry != null) {
+                size -= entry.getBodySize();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (disk != null) {
+            disk.remove(key);
+        }
+    }
+
+    /**
+     * Get a snapshot of the cache statistics.
+     *
+     * @return cache statistics.
+     */
+    CacheStatistics getStatistics() {
+        final int diskEntries = disk != null ? disk.getEntries() : 0;
+        final long diskSize = disk != null ? disk.getSize() : 0;
+        lock.lock();
+        try {
+            return new CacheStatistics(hits.get(), diskHits.get(), staleHits.get(), staleIfErrorHits.get(), misses.get(),
+                    evictions, revalidations.get(), notModified.get(), entries.size(), size, maxSize, diskEntries, diskSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush and release the disk tier.
+     */
+    void close() {
+        if (disk != null) {
+            disk.close();
+        }
+    }
+
+    private static String getKey(final ClientRequest request) {
+        return request.getUri().toString();
+    }
+
+    private static Map<String, String> getVaryValues(final HttpFields headers, final ClientRequest request) {
+        final String vary = headers.get(HttpHeader.VARY);
+        if (vary == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> varyValues = new HashMap<String, String>();
+        for (String name : vary.split(",")) {
+            if (name.trim().length() > 0) {
+                varyValues.put(name.trim(), request.getHeaderString(name.trim()));
+            }
+        }
+        return varyValues;
+    }
+
+    private static Map<String, String> getRequestDirectives(final ClientRequest request) {
+        final String cacheControl = request.getHeaderString(HttpHeader.CACHE_CONTROL.asString());
+        if (cacheControl == null) {
+            final String pragma = request.getHeaderString(HttpHeader.PRAGMA.asString());
+            return pragma != null && pragma.toLowerCase(Locale.ENGLISH).contains("no-cache")
+                    ? Collections.singletonMap("no-cache", (String) null)
+                    : Collections.<String, String>emptyMap();
+        }
+        return parseCacheControl(Collections.singleton(cacheControl));
+    }
+
+    /**
+     * Parse {@code Cache-Control} header values into a map of lower case directive names to their arguments.
+     *
+     * @param values header values.
+     * @return directives, a directive without argument is mapped to {@code null}.
+     */
+    static Map<String, String> parseCacheControl(final Iterable<String> values) {
+        final Map<String, String> directives = new HashMap<String, String>();
+        for (String value : values) {
+            for (String directive : value.split(",")) {
+                final int eq = directive.indexOf('=');
+                final String name = (eq < 0 ? directive : directive.substring(0, eq)).trim().toLowerCase(Locale.ENGLISH);
+                if (name.length() == 0) {
+                    continue;
+                }
+                String argument = eq < 0 ? null : directive.substring(eq + 1).trim();
+                if (argument != null && argument.length() > 1 && argument.startsWith("\"") && argument.endsWith("\"")) {
+                    argument = argument.substring(1, argument.length() - 1);
+                }
+                directives.put(name, argument);
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * Get the delta-seconds argument of a directive.
+     *
+     * @param directives parsed directives.
+     * @param name       directive name.
+     * @return directive argument or {@code -1} if the directive is absent or invalid.
+     */
+    static long getSeconds(final Map<String, String> directives, final String name) {
+        final String value = directives.get(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long getFreshnessLifetime(final HttpFields headers, final Map<String, String> directives, final long date) {
+        final long maxAge = getSeconds(directives, "max-age");
+        if (maxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(maxAge);
+        }
+        final String expires = headers.get(HttpHeader.EXPIRES);
+        if (expires == null) {
+            return 0;
+        }
+        // an invalid Expires value represents a time in the past
+        final long expiresTime = HttpFields.parseDate(expires);
+        final long dateValue = getDate(headers, HttpHeader.DATE);
+        return expiresTime < 0 ? 0 : expiresTime - (dateValue < 0 ? date : dateValue);
+    }
+
+    /**
+     * Get the value of a date header.
+     *
+     * @param headers response headers.
+     * @param header  date header.
+     * @return date in milliseconds or {@code -1} if the header is absent or invalid.
+     */
+    static long getDate(final HttpFields headers, final HttpHeader header) {
+        final String value = headers.get(header);
+        return value == null ? -1 : HttpFields.parseDate(value);
+    }
+
+    /**
+     * Stored response.
+     */
+    static final class Entry implements Response {
+
+        private final int status;
+        private final String reason;
+        private final HttpVersion version;
+        private final long conversationId;
+        private final HttpFields headers;
+        private final ByteBuffer body;
+        private final String etag;
+        private final String lastModified;
+        private final Map<String, String> varyValues;
+        private final long requestTime;
+        private final long responseTime;
+        private final long correctedInitialAge;
+        private final long freshnessLifetime;
+        private final boolean mustRevalidate;
+        private final long staleWhileRevalidate;
+        private final long staleIfError;
+
+        /**
+         * Create new stored response.
+         *
+         * @param varyValues     values of the request headers nominated by the {@code Vary} response header.
+         * @param status         response status code.
+         * @param reason         response reason phrase.
+         * @param version        response HTTP version.
+         * @param conversationId Jetty conversation the response was received in.
+         * @param headers        response headers.
+         * @param body           response body, not modified by the cache.
+         * @param requestTime    time in milliseconds the request was sent.
+         * @param responseTime   time in milliseconds the response was received.
+         */
+        Entry(final Map<String, String> varyValues,
+              final int status,
+              final String reason,
+              final HttpVersion version,
+              final long conversationId,
+              final HttpFields headers,
+              final ByteBuffer body,
+              final long requestTime,
+              final long responseTime) {
+            this.varyValues = varyValues;
+            this.status = status;
+            this.reason = reason;
+            this.version = version;
+            this.conversationId = conversationId;
+            this.headers = headers;
+            this.body = body;
+            this.etag = headers.get(HttpHeader.ETAG);
+            this.lastModified = headers.get(HttpHeader.LAST_MODIFIED);
+            this.requestTime = requestTime;
+            this.responseTime = responseTime;
+
+            // age calculation of RFC 7234, section 4.2.3
+            final long dateValue = getDate(headers, HttpHeader.DATE);
+            final long apparentAge = dateValue < 0 ? 0 : Math.max(0, responseTime - dateValue);
+            long ageValue = 0;
+            try {
+                final String age = headers.get(HttpHeader.AGE);
+                ageValue = age == null ? 0 : TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(age.trim())));
+            } catch (NumberFormatException e) {
+                // ignored, age value is 0
+            }
+            this.correctedInitialAge = Math.max(apparentAge, ageValue + (responseTime - requestTime));
+            final Map<String, String> directives = parseCacheControl(headers.getValuesCollection(HttpHeader.CACHE_CONTROL.asString()));
+            // a no-cache response must be revalidated before each use
+            this.freshnessLifetime = directives.containsKey("no-cache") ? 0 : getFreshnessLifetime(headers, directives, responseTime);
+            this.mustRevalidate = directives.containsKey("no-cache") || directives.containsKey("must-revalidate");
+            final long swr = getSeconds(directives, "stale-while-revalidate");
+            this.staleWhileRevalidate = swr >= 0 ? TimeUnit.SECONDS.toMillis(swr) : -1;
+            final long sie = getSeconds(directives, "stale-if-error");
+            this.staleIfError = sie >= 0 ? TimeUnit.SECONDS.toMillis(sie) : -1;
+        }
+
+        private boolean isStaleUsable(final long now, final long window) {
+            return !mustRevalidate && getAge(now) - freshnessLifetime <= window;
+        }
+
+        /**
+         * Add the validators of this response to a conditional request.
+         *
+         * @param request request revalidating this response.
+         */
+        private boolean addValidators(final org.eclipse.jetty.client.api.Request request) {
+            if (etag != null) {
+                request.header(HttpHeader.IF_NONE_MATCH.asString(), etag);
+            }
+            if (lastModified != null) {
+                request.header(HttpHeader.IF_MODIFIED_SINCE.asString(), lastModified);
+            }
+            return etag != null || lastModified != null;
+        }
+
+        private boolean matches(final ClientRequest request) {
+            for (Map.Entry<String, String> e : varyValues.entrySet()) {
+                final String value = request.getHeaderString(e.getKey());
+                if (value == null ? e.getValue() != null : !value.equals(e.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isFresh(final long now, final Map<String, String> requestDirectives) {
+            final long age = getAge(now);
+            final long maxAge = getSeconds(requestDirectives, "max-age");
+            if (maxAge >= 0 && age > TimeUnit.SECONDS.toMillis(maxAge)) {
+                return false;
+            }
+            final long minFresh = Math.max(0, getSeconds(requestDirectives, "min-fresh"));
+            return freshnessLifetime - age > TimeUnit.SECONDS.toMillis(minFresh);
+        }
+
+        /**
+         * Get the current age of the response.
+         *
+         * @param now current time in milliseconds.
+         * @return age in milliseconds.
+         */
+        long getAge(final long now) {
+            return correctedInitialAge + (now - responseTime);
+        }
+
+        @Override
+        public long getConversationID() {
+            return conversationId;
+        }
+
+        @Override
+        public <T extends ResponseListener> List<T> getListeners(final Class<T> listenerClass) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public HttpVersion getVersion() {
+            return version;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public HttpFields getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean abort(final Throwable cause) {
+            return false;
+        }
+
+        /**
+         * Get the values of the request headers nominated by the {@code Vary} response header.
+         *
+         * @return header values keyed by header name.
+         */
+        Map<String, String> getVaryValues() {
+            return varyValues;
+        }
+
+        /**
+         * Get the time the request was sent.
+         *
+         * @return time in milliseconds.
+         */
+        long getRequestTime() {
+            return requestTime;
+        }
+
+        /**
+         * Get the time the response was received.
+         *
+         * @return time in milliseconds.
+         */
+        long getResponseTime() {
+            return responseTime;
+        }
+
+        /**
+         * Get the response body. The returned buffer is an independent view of the stored body.
+         *
+         * @return response body.
+         */
+        ByteBuffer getBody() {
+            return body.duplicate();
+        }
+
+        /**
+         * Get the size of the response body.
+         *
+         * @return size in bytes.
+         */
+        int getBodySize() {
+            return body.remaining();
+        }
+
+        /**
+         * Get a copy of the response body.
+         *
+         * @return response body bytes.
+         */
+        byte[] getBodyBytes() {
+            final byte[] bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Open a stream reading the response body directly from the stored buffer.
+         *
+         * @return entity stream.
+         */
+        InputStream getEntityStream() {
+            return new BufferInputStream(body.duplicate());
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
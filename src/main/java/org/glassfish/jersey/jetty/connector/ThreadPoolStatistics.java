@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+/**
+ * Snapshot of the state and the tuning decisions of the self-tuning thread pool.
+ *
+ * @see JettyConnector#getThreadPoolStatistics()
+ * @see JettyClientProperties#THREADPOOL_AUTO_TUNING
+ */
+public final class ThreadPoolStatistics {
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int threads;
+    private final int idleThreads;
+    private final int queuedJobs;
+    private final LatencyStatistics queueLatencies;
+    private final long increases;
+    private final long decreases;
+    private final String lastDecision;
+
+    ThreadPoolStatistics(final int minThreads,
+                         final int maxThreads,
+                         final int threads,
+                         final int idleThreads,
+                         final int queuedJobs,
+                         final LatencyStatistics queueLatencies,
+                         final long increases,
+                         final long decreases,
+                         final String lastDecision) {
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.threads = threads;
+        this.idleThreads = idleThreads;
+        this.queuedJobs = queuedJobs;
+        this.queueLatencies = queueLatencies;
+        this.increases = increases;
+        this.decreases = decreases;
+        this.lastDecision = lastDecision;
+    }
+
+    /**
+     * Get the current minimum number of threads.
+     *
+     * @return minimum threads.
+     */
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    /**
+     * Get the current maximum number of threads.
+     *
+     * @return maximum threads.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Get the number of threads of the pool.
+     *
+     * @return pool threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the number of threads waiting for a job.
+     *
+     * @return idle threads.
+     */
+    public int getIdleThreads() {
+        return idleThreads;
+    }
+
+    /**
+     * Get the number of jobs waiting for a thread.
+     *
+     * @return queued jobs.
+     */
+    public int getQueuedJobs() {
+        return queuedJobs;
+    }
+
+    /**
+     * Get the times the jobs waited for a thread.
+     *
+     * @return queue latencies in microseconds.
+     */
+    public LatencyStatistics getQueueLatencies() {
+        return queueLatencies;
+    }
+
+    /**
+     * Get the number of times the maximum number of threads was increased.
+     *
+     * @return increases.
+     */
+    public long getIncreases() {
+        return increases;
+    }
+
+    /**
+     * Get the number of times the maximum number of threads was decreased.
+     *
+     * @return decreases.
+     */
+    public long getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * Get a description of the last change of the maximum number of threads and its reason.
+     *
+     * @return last decision, {@code none} if the pool was not resized yet.
+     */
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadPoolStatistics{minThreads=" + minThreads + ", maxThreads=" + maxThreads + ", threads=" + threads
+                + ", idleThreads=" + idleThreads + ", queuedJobs=" + queuedJobs + ", queueLatencies=" + queueLatencies
+                + ", increases=" + increases + ", decreases=" + decreases + ", lastDecision=" + lastDecision + "}";
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread pool of the Jetty client adjusting its minimum and maximum number of threads from the observed queue
+ * latency and utilization, within configured bounds.
+ * <p/>
+ * Each job is timed from its dispatch until a thread runs it. Every {@value #TUNING_INTERVAL} ms the pool compares
+ * the mean queue latency of the interval, or the wait of the oldest queued job if longer, with the target: above
+ * the target, or with jobs queued while every thread was busy, the maximum grows by half and threads are started
+ * for the queued jobs. Within the target and with less than half of the maximum busy at the
+ * peak, the maximum shrinks by a quarter, never below twice the peak. The minimum follows the peak number of busy
+ * threads, smoothed over intervals, so that a steady load keeps its threads warm while idle threads above the
+ * minimum expire.
+ *
+ * @see JettyClientProperties#THREADPOOL_AUTO_TUNING
+ */
+final class TunedThreadPool extends QueuedThreadPool {
+
+    private static final Logger LOGGER = Logger.getLogger(TunedThreadPool.class.getName());
+
+    /**
+     * Tuning interval in milliseconds.
+     */
+    static final long TUNING_INTERVAL = 1000;
+
+    private final int lowerBound;
+    private final int upperBound;
+    private final long targetMicros;
+    private final LatencyHistogram queueLatencies = new LatencyHistogram();
+    // queue latency of the current interval
+    private final AtomicLong intervalJobs = new AtomicLong();
+    private final AtomicLong intervalLatency = new AtomicLong();
+    // jobs running, including the selector loops, and their peak in the current interval
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private final AtomicLong increases = new AtomicLong();
+    private final AtomicLong decreases = new AtomicLong();
+    private volatile String lastDecision = "none";
+
+    /**
+     * Create new tuned thread pool.
+     *
+     * @param lowerBound   lower bound of the minimum and maximum number of threads.
+     * @param upperBound   upper bound of the maximum number of threads.
+     * @param targetMillis target mean queue latency in milliseconds.
+     */
+    TunedThreadPool(final int lowerBound, final int upperBound, final int targetMillis) {
+        // starts with a quarter of the upper bound, queueing makes it grow
+        super(Math.max(lowerBound, upperBound / 4), lowerBound);
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.targetMicros = TimeUnit.MILLISECONDS.toMicros(targetMillis);
+    }
+
+    @Override
+    public boolean dispatch(final Runnable job) {
+        return super.dispatch(new QueuedJob(job));
+    }
+
+    @Override
+    protected void runJob(final Runnable job) {
+        if (job instanceof QueuedJob) {
+            final long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - ((QueuedJob) job).queued);
+            queueLatencies.record(latency);
+            intervalJobs.incrementAndGet();
+            intervalLatency.addAndGet(latency);
+        }
+        final int current = running.incrementAndGet();
+        int peak = peakRunning.get();
+        while (current > peak && !peakRunning.compareAndSet(peak, current)) {
+            peak = peakRunning.get();
+        }
+        try {
+            super.runJob(job instanceof QueuedJob ? ((QueuedJob) job).job : job);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tune the pool every {@link #TUNING_INTERVAL} ms until it is stopped.
+     *
+     * @param scheduler scheduler of the Jetty client.
+     */
+    void scheduleTuning(final Scheduler scheduler) {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!isRunning()) {
+                    return;
+                }
+                try {
+                    tune();
+                } finally {
+                    try {
+                        scheduleTuning(scheduler);
+                    } catch (RuntimeException e) {
+                        // the scheduler is stopped together with the pool
+                        LOGGER.log(Level.FINE, "Thread pool tuning stopped.", e);
+                    }
+                }
+            }
+        }, TUNING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adjust the minimum and maximum number of threads from the queue latency and utilization observed since the
+     * previous call.
+     */
+    void tune() {
+        final long jobs = intervalJobs.getAndSet(0);
+        final long latency = intervalLatency.getAndSet(0);
+        final int peak = peakRunning.getAndSet(running.get());
+        final int queued = getQueue().size();
+        final int max = getMaxThreads();
+        final int min = getMinThreads();
+        // queued jobs are not timed until they run, the oldest one tells how long they have been waiting
+        final Runnable head = getQueue().peek();
+        final long waiting = head instanceof QueuedJob
+                ? TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - ((QueuedJob) head).queued) : 0;
+        final long meanLatency = Math.max(jobs == 0 ? 0 : latency / jobs, waiting);
+        final boolean saturated = queued > 0 && (peak >= max || getIdleThreads() == 0);
+
+        int newMax = max;
+        int newMin = Math.max(lowerBound, (min + peak + 1) / 2);
+        String reason = null;
+        if ((meanLatency > targetMicros || saturated) && max < upperBound) {
+            newMax = Math.min(upperBound, max + Math.max(1, max / 2));
+            // the pool only starts threads on dispatch, the minimum starts them for the jobs already queued
+            newMin = Math.max(newMin, getThreads() + queued);
+            increases.incrementAndGet();
+            reason = "queue latency " + meanLatency + " us, " + queued + " queued, " + peak + " busy";
+        } else if (meanLatency <= targetMicros && peak * 2 < max && max > lowerBound) {
+            newMax = Math.max(lowerBound, Math.max(peak * 2, max - Math.max(1, max / 4)));
+            if (newMax < max) {
+                decreases.incrementAndGet();
+                reason = "queue latency " + meanLatency + " us, " + peak + " busy";
+            }
+        }
+        newMin = Math.min(newMax, newMin);
+        // the minimum never exceeds the maximum, setting the maximum first lowers it if needed
+        setMaxThreads(newMax);
+        setMinThreads(newMin);
+        if (reason != null) {
+            lastDecision = "max threads " + max + " -> " + newMax + ", min threads " + min + " -> " + newMin
+                    + ": " + reason;
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(getName() + " " + lastDecision + ".");
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of the pool statistics.
+     *
+     * @return thread pool statistics.
+     */
+    ThreadPoolStatistics getStatistics() {
+        return new ThreadPoolStatistics(getMinThreads(), getMaxThreads(), getThreads(), getIdleThreads(),
+                getQueue().size(), queueLatencies.getStatistics(), increases.get(), decreases.get(), lastDecision);
+    }
+
+    /**
+     * Job remembering when it was queued.
+     */
+    private static final class QueuedJob implements Runnable {
+
+        private final Runnable job;
+        private final long queued = System.nanoTime();
+
+        QueuedJob(final Runnable job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            job.run();
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to the virtual threads of JDK 21 and later through reflection, the connector being built for older JDKs.
+ *
+ * @see JettyClientProperties#VIRTUAL_THREADS
+ */
+final class VirtualThreads {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+    // Thread.ofVirtual(), Thread.Builder.name(String, long) and Thread.Builder.factory(), null if unavailable
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    // Thread.isVirtual()
+    private static final Method IS_VIRTUAL;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method isVirtual = null;
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            isVirtual = Thread.class.getMethod("isVirtual");
+            // fails if the virtual threads are a preview feature that is not enabled
+            ofVirtual.invoke(null);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Virtual threads are not available.", e);
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private VirtualThreads() {
+        // no instances
+    }
+
+    /**
+     * Check whether the JDK supports virtual threads.
+     *
+     * @return {@code true} if virtual threads can be created.
+     */
+    static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Check whether a thread is a virtual thread.
+     *
+     * @param thread thread.
+     * @return {@code true} if the thread is virtual.
+     */
+    static boolean isVirtual(final Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a factory of virtual threads named by a prefix and a counter, e.g. {@code HttpClient@1b2c3d-42}.
+     *
+     * @param prefix thread name prefix.
+     * @return thread factory.
+     * @throws IllegalStateException if virtual threads are not {@link #isAvailable() available}.
+     */
+    static ThreadFactory newThreadFactory(final String prefix) {
+        if (OF_VIRTUAL == null) {
+            throw new IllegalStateException("Virtual threads are not available.");
+        }
+        try {
+            final Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create an executor running each task on a new virtual thread. Virtual threads are cheap to create and
+     * to block, so they are not pooled.
+     *
+     * @param prefix thread name prefix.
+     * @return executor.
+     * @throws IllegalStateException if virtual threads are not {@link #isAvailable() available}.
+     */
+    static Executor newExecutor(final String prefix) {
+        final ThreadFactory factory = newThreadFactory(prefix);
+        return new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                factory.newThread(command).start();
+            }
+
+            @Override
+            public String toString() {
+                return prefix + "*";
+            }
+        };
+    }
+}
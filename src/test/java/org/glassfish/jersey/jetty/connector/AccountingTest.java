@@ -0,0 +1,221 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the per-request resource accounting.
+ */
+public class AccountingTest extends JerseyTest {
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class AccountingResource {
+        @GET
+        public String get() {
+            final char[] body = new char[64 * 1024];
+            Arrays.fill(body, 'a');
+            return new String(body);
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(AccountingResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.ACCOUNTING, true);
+        config.property(JettyClientProperties.METRICS, true);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testRoutes() throws Exception {
+        target("test").request().get(String.class);
+        target("test").request().property(JettyClientProperties.REQUEST_ROUTE, "orders").get(String.class);
+        target("test").request().property(JettyClientProperties.REQUEST_ROUTE, "orders").async().get(String.class).get();
+
+        final String destination = JettyConnector.getDestination(getBaseUri());
+        // the asynchronous request is recorded once its response listener is complete
+        Map<String, ResourceUsageStatistics> usage = connector.getResourceUsage(destination);
+        for (int i = 0; i < 100 && usage.get("orders").getCount() < 2; i++) {
+            Thread.sleep(10);
+            usage = connector.getResourceUsage(destination);
+        }
+        assertEquals(1, usage.get(ResourceAccounting.DEFAULT_ROUTE).getCount());
+        final ResourceUsageStatistics orders = usage.get("orders");
+        assertEquals(2, orders.getCount());
+        assertTrue(orders.getCpuTime() >= 0);
+        assertTrue(orders.getMaxCpuTime() >= orders.getMeanCpuTime());
+        assertTrue(orders.getMaxAllocatedBytes() >= orders.getMeanAllocatedBytes());
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+            // at least the response body buffered by the connector
+            assertTrue(orders.toString(), orders.getMeanAllocatedBytes() > 64 * 1024);
+        }
+
+        final DestinationMetricsMXBean metrics = connector.getDestinationMetrics(destination);
+        assertNotNull(metrics);
+        assertEquals(2, metrics.getResourceUsage().get("orders").getCount());
+    }
+
+    @Test
+    public void testCallbacksAreNotAccounted() throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled());
+        final CountDownLatch completed = new CountDownLatch(1);
+        // the callback is run inline by the thread notifying the response listener
+        connector.apply(capture("callback"), new NoopCallback() {
+            @Override
+            public void response(ClientResponse response) {
+                final long start = threads.getCurrentThreadCpuTime();
+                while (threads.getCurrentThreadCpuTime() - start < TimeUnit.MILLISECONDS.toNanos(200)) {
+                    Thread.yield();
+                }
+                response.close();
+                completed.countDown();
+            }
+        });
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+
+        final ResourceUsageStatistics usage = awaitUsage("callback");
+        assertEquals(1, usage.getCount());
+        assertTrue(usage.toString(), usage.getMaxCpuTime() < TimeUnit.MILLISECONDS.toMicros(100));
+    }
+
+    @Test
+    public void testUnsentRequestIsRecorded() throws Exception {
+        // the first request takes the only permit, the second one waits for the next one and is cancelled unsent
+        connector.reconfigure(Collections.singletonMap(JettyClientProperties.RATE_LIMIT, 1));
+        connector.apply(capture("sent"), new NoopCallback());
+        final Future<?> cancelled = connector.apply(capture("cancelled"), new NoopCallback());
+        assertTrue(cancelled.cancel(true));
+
+        assertEquals(1, awaitUsage("cancelled").getCount());
+        assertEquals(1, awaitUsage("sent").getCount());
+    }
+
+    private ResourceUsageStatistics awaitUsage(final String route) throws InterruptedException {
+        // the asynchronous requests are recorded once their response listener is complete
+        final String destination = JettyConnector.getDestination(getBaseUri());
+        ResourceUsageStatistics usage = connector.getResourceUsage(destination).get(route);
+        for (int i = 0; i < 300 && (usage == null || usage.getCount() == 0); i++) {
+            Thread.sleep(10);
+            usage = connector.getResourceUsage(destination).get(route);
+        }
+        assertNotNull(route, usage);
+        return usage;
+    }
+
+    private ClientRequest capture(final String route) {
+        // the connector is called directly, the request is captured from the Jersey client
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        target("test").register(new ClientRequestFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext) {
+                request.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request().property(JettyClientProperties.REQUEST_ROUTE, route).get().close();
+        return new ClientRequest(request.get());
+    }
+
+    private static class NoopCallback implements AsyncConnectorCallback {
+
+        @Override
+        public void response(ClientResponse response) {
+            response.close();
+        }
+
+        @Override
+        public void failure(Throwable failure) {
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        final JettyConnector disabled = new JettyConnector(null);
+        try {
+            assertNull(disabled.getResourceUsage(JettyConnector.getDestination(getBaseUri())));
+        } finally {
+            disabled.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests isolation of destinations in bulkheads.
+ */
+public class BulkheadTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkheadTest.class.getName());
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class SlowResource {
+        @GET
+        public String get() throws InterruptedException {
+            Thread.sleep(500);
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(SlowResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.BULKHEAD_MAX_CONCURRENT, 1);
+        config.property(JettyClientProperties.BULKHEAD_THREADS, 1);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Test
+    public void testFullBulkheadRejectsRequest() throws Exception {
+        Future<String> first = target("test").request().async().get(String.class);
+        Thread.sleep(100);
+        try {
+            target("test").request().get(String.class);
+            fail("Bulkhead should be full.");
+        } catch (ProcessingException e) {
+            // expected
+        }
+        assertEquals("GET", first.get());
+
+        Map<String, BulkheadStatistics> statistics = connector.getBulkheadStatistics();
+        assertEquals(1, statistics.size());
+        BulkheadStatistics bulkhead = statistics.values().iterator().next();
+        assertEquals(1, bulkhead.getAdmitted());
+        assertEquals(1, bulkhead.getRejected());
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void testRateLimitedRequestDoesNotHoldPermit() throws Exception {
+        connector.reconfigure(Collections.singletonMap(JettyClientProperties.RATE_LIMIT, 1));
+        Future<String> first = target("test").request().async().get(String.class);
+        // admitted once the rate limit permit is available, the first request is complete by then
+        Future<String> second = target("test").request().async().get(String.class);
+        assertEquals("GET", first.get());
+        assertEquals("GET", second.get());
+
+        BulkheadStatistics bulkhead = connector.getBulkheadStatistics().values().iterator().next();
+        assertEquals(2, bulkhead.getAdmitted());
+        assertEquals(0, bulkhead.getRejected());
+    }
+
+    @Test
+    public void testCancelledRequestHoldsPermitUntilAborted() throws Exception {
+        // the connector is called directly, Jersey does not propagate the cancellation
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        target("test").register(new ClientRequestFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext) {
+                request.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request().get().close();
+
+        final AtomicReference<Object> outcome = new AtomicReference<Object>();
+        final CountDownLatch called = new CountDownLatch(1);
+        final Future<?> future = connector.apply(new ClientRequest(request.get()), new AsyncConnectorCallback() {
+            @Override
+            public void response(ClientResponse response) {
+                outcome.set(response);
+                response.close();
+                called.countDown();
+            }
+
+            @Override
+            public void failure(Throwable failure) {
+                outcome.set(failure);
+                called.countDown();
+            }
+        });
+        Thread.sleep(100);
+        assertTrue(future.cancel(true));
+
+        // the exchange is aborted, it does not run to completion with the permit released
+        assertTrue(called.await(400, TimeUnit.MILLISECONDS));
+        assertTrue(String.valueOf(outcome.get()), outcome.get() instanceof Throwable);
+        assertEquals(0, connector.getBulkheadStatistics().values().iterator().next().getInFlight());
+    }
+
+    @Test
+    public void testNamedBulkheadsAreIsolated() throws Exception {
+        Future<String> first = target("test").request()
+                .property(JettyClientProperties.BULKHEAD, "first").async().get(String.class);
+        Thread.sleep(100);
+        assertEquals("GET", target("test").request().property(JettyClientProperties.BULKHEAD, "second").get(String.class));
+        assertEquals("GET", first.get());
+
+        Map<String, BulkheadStatistics> statistics = connector.getBulkheadStatistics();
+        assertEquals(0, statistics.get("first").getRejected());
+        assertEquals(0, statistics.get("second").getRejected());
+    }
+
+    @Test
+    public void testCallbacksAreOffloaded() throws Exception {
+        final AtomicReference<Response> response = new AtomicReference<Response>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        target("test").request().async().get(new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response r) {
+                response.set(r);
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(200, response.get().getStatus());
+
+        BulkheadStatistics bulkhead = connector.getBulkheadStatistics().values().iterator().next();
+        assertEquals(1, bulkhead.getThreads());
+        assertEquals(0, bulkhead.getRejectedCallbacks());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests the in-memory response cache.
+ */
+public class CacheTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheTest.class.getName());
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class CacheResource {
+        @GET
+        @Path("fresh")
+        public Response fresh() {
+            return Response.ok("fresh" + COUNTER.incrementAndGet()).header("Cache-Control", "max-age=60").build();
+        }
+
+        @POST
+        @Path("fresh")
+        public String post(String entity) {
+            return entity;
+        }
+
+        @GET
+        @Path("nostore")
+        public Response noStore() {
+            return Response.ok("nostore" + COUNTER.incrementAndGet()).header("Cache-Control", "no-store, max-age=60").build();
+        }
+
+        @GET
+        @Path("vary")
+        public Response vary(@HeaderParam("Accept-Language") String language) {
+            return Response.ok(language + COUNTER.incrementAndGet())
+                    .header("Cache-Control", "max-age=60").header("Vary", "Accept-Language").build();
+        }
+
+        @GET
+        @Path("large/{id}")
+        public Response large(@PathParam("id") String id) {
+            final char[] body = new char[600];
+            Arrays.fill(body, id.charAt(0));
+            COUNTER.incrementAndGet();
+            return Response.ok(new String(body)).header("Cache-Control", "max-age=60").build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(CacheResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.CACHE_MAX_SIZE, 1000);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void resetCounter() {
+        COUNTER.set(0);
+    }
+
+    @Test
+    public void testFreshResponseIsCached() throws Exception {
+        assertEquals("fresh1", target("test/fresh").request().get(String.class));
+        final Response cached = target("test/fresh").request().get();
+        assertEquals(200, cached.getStatus());
+        assertEquals("fresh1", cached.readEntity(String.class));
+        assertNotNull(cached.getHeaderString("Age"));
+        assertEquals("fresh1", target("test/fresh").request().async().get(String.class).get());
+        assertEquals(1, COUNTER.get());
+
+        CacheStatistics statistics = connector.getCacheStatistics();
+        assertEquals(2, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(1, statistics.getEntries());
+    }
+
+    @Test
+    public void testRequestNoCacheBypassesCache() {
+        assertEquals("fresh1", target("test/fresh").request().get(String.class));
+        assertEquals("fresh2", target("test/fresh").request().header("Cache-Control", "no-cache").get(String.class));
+        assertEquals("fresh2", target("test/fresh").request().get(String.class));
+    }
+
+    @Test
+    public void testNoStoreIsNotCached() {
+        assertEquals("nostore1", target("test/nostore").request().get(String.class));
+        assertEquals("nostore2", target("test/nostore").request().get(String.class));
+        assertEquals(0, connector.getCacheStatistics().getEntries());
+    }
+
+    @Test
+    public void testVary() {
+        assertEquals("en1", target("test/vary").request().acceptLanguage("en").get(String.class));
+        assertEquals("en1", target("test/vary").request().acceptLanguage("en").get(String.class));
+        assertEquals("de2", target("test/vary").request().acceptLanguage("de").get(String.class));
+    }
+
+    @Test
+    public void testUnsafeRequestInvalidates() {
+        assertEquals("fresh1", target("test/fresh").request().get(String.class));
+        assertEquals("post", target("test/fresh").request().post(Entity.text("post"), String.class));
+        assertEquals("fresh2", target("test/fresh").request().get(String.class));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        target("test/large/a").request().get(String.class);
+        target("test/large/b").request().get(String.class);
+        assertEquals(1, connector.getCacheStatistics().getEvictions());
+        target("test/large/b").request().get(String.class);
+        assertEquals(2, COUNTER.get());
+        target("test/large/a").request().get(String.class);
+        assertEquals(3, COUNTER.get());
+
+        CacheStatistics statistics = connector.getCacheStatistics();
+        assertEquals(1, statistics.getEntries());
+        assertEquals(600, statistics.getSize());
+    }
+}
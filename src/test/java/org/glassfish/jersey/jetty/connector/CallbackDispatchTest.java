@@ -0,0 +1,238 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the dispatch of the asynchronous request callbacks.
+ */
+public class CallbackDispatchTest extends JerseyTest {
+
+    private final List<JettyConnector> connectors = new ArrayList<JettyConnector>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "callback-executor");
+        }
+    });
+
+    @Path("/test")
+    public static class CallbackDispatchResource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(CallbackDispatchResource.class);
+    }
+
+    @After
+    public void closeConnectors() {
+        for (JettyConnector connector : connectors) {
+            connector.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private JettyConnector newConnector(final ClientConfig config) {
+        final JettyConnector connector = new JettyConnector(config);
+        connectors.add(connector);
+        return connector;
+    }
+
+    /**
+     * Send an asynchronous request through the connector, the callback blocking for the given time and reading
+     * the response entity if requested. An inline callback cannot read the entity, which is delivered by the same
+     * thread once the callback returns.
+     *
+     * @return name of the callback thread, followed by the entity if read.
+     */
+    private String call(final JettyConnector connector, final long blockMillis, final boolean readEntity) throws Exception {
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        ClientBuilder.newClient(new ClientConfig().connector(connector)).target(getBaseUri()).path("test")
+                .register(new ClientRequestFilter() {
+                    @Override
+                    public void filter(ClientRequestContext requestContext) {
+                        request.set((ClientRequest) requestContext);
+                        requestContext.abortWith(Response.noContent().build());
+                    }
+                }).request().get().close();
+
+        final AtomicReference<String> result = new AtomicReference<String>();
+        connector.apply(new ClientRequest(request.get()), new AsyncConnectorCallback() {
+            @Override
+            public void response(ClientResponse response) {
+                try {
+                    Thread.sleep(blockMillis);
+                    result.set(Thread.currentThread().getName() + (readEntity ? ":" + read(response.getEntityStream()) : ""));
+                    response.close();
+                } catch (Exception e) {
+                    result.set(e.toString());
+                }
+            }
+
+            @Override
+            public void failure(Throwable failure) {
+                result.set(failure.toString());
+            }
+        }).get(5, TimeUnit.SECONDS);
+        // the response future completes once the entity is received, the callback may still be running
+        for (int i = 0; i < 100 && result.get() == null; i++) {
+            Thread.sleep(50);
+        }
+        return result.get();
+    }
+
+    private static String read(final InputStream entity) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int b; (b = entity.read()) != -1; ) {
+            bytes.write(b);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    @Test
+    public void testInlineDispatch() throws Exception {
+        final JettyConnector connector = newConnector(new ClientConfig());
+        final String result = call(connector, 0, false);
+        assertTrue(result, result.startsWith("HttpClient@"));
+        final CallbackStatistics statistics = connector.getCallbackStatistics();
+        assertEquals(CallbackDispatch.INLINE, statistics.getDispatch());
+        assertEquals(1, statistics.getInline());
+        assertEquals(0, statistics.getOffloaded());
+        assertEquals(1, statistics.getExecutionTimes().getCount());
+    }
+
+    @Test
+    public void testExecutorDispatch() throws Exception {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CALLBACK_DISPATCH, "executor");
+        config.property(JettyClientProperties.CALLBACK_EXECUTOR, executor);
+        final JettyConnector connector = newConnector(config);
+        // the offloaded callback can block on the entity stream
+        assertEquals("callback-executor:GET", call(connector, 0, true));
+        final CallbackStatistics statistics = connector.getCallbackStatistics();
+        assertEquals(0, statistics.getInline());
+        assertEquals(1, statistics.getOffloaded());
+        assertEquals(1, statistics.getQueueTimes().getCount());
+    }
+
+    @Test
+    public void testAdaptiveDispatch() throws Exception {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CALLBACK_DISPATCH, CallbackDispatch.ADAPTIVE);
+        config.property(JettyClientProperties.CALLBACK_EXECUTOR, executor);
+        config.property(JettyClientProperties.CALLBACK_TIME_BUDGET, 5);
+        final JettyConnector connector = newConnector(config);
+        // within the budget
+        assertTrue(call(connector, 0, false).startsWith("HttpClient@"));
+        // over the budget, run inline before the average exceeds it
+        call(connector, 100, false);
+        assertEquals("callback-executor", call(connector, 100, false));
+        // fast again
+        String thread = null;
+        for (int i = 0; i < 30 && (thread == null || !thread.startsWith("HttpClient@")); i++) {
+            thread = call(connector, 0, false);
+        }
+        assertTrue(thread, thread.startsWith("HttpClient@"));
+        final CallbackStatistics statistics = connector.getCallbackStatistics();
+        assertTrue(statistics.toString(), statistics.getOffloaded() > 1);
+        assertTrue(statistics.getExecutionTimes().getMax() >= TimeUnit.MILLISECONDS.toMicros(100));
+    }
+
+    @Test
+    public void testBulkheadThreadsTakePrecedence() throws Exception {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CALLBACK_DISPATCH, CallbackDispatch.EXECUTOR);
+        config.property(JettyClientProperties.CALLBACK_EXECUTOR, executor);
+        config.property(JettyClientProperties.BULKHEAD_MAX_CONCURRENT, 10);
+        config.property(JettyClientProperties.BULKHEAD_THREADS, 1);
+        final JettyConnector connector = newConnector(config);
+        final String result = call(connector, 0, true);
+        assertTrue(result, result.startsWith("jetty-connector-bulkhead-") && result.endsWith(":GET"));
+        assertEquals(1, connector.getCallbackStatistics().getOffloaded());
+    }
+
+    @Test
+    public void testWrongCallbackDispatch() {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CALLBACK_DISPATCH, "sometimes");
+        try {
+            newConnector(config);
+            fail();
+        } catch (ProcessingException expected) {
+            // not a dispatch mode
+        }
+    }
+}
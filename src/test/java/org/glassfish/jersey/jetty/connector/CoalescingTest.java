@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests coalescing of concurrent identical requests.
+ */
+public class CoalescingTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CoalescingTest.class.getName());
+
+    private static final AtomicInteger INVOCATIONS = new AtomicInteger();
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class SlowResource {
+        @GET
+        @Produces({MediaType.TEXT_PLAIN, MediaType.TEXT_HTML})
+        public String get() throws InterruptedException {
+            INVOCATIONS.incrementAndGet();
+            Thread.sleep(1000);
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(SlowResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.COALESCE_REQUESTS, true);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void resetInvocations() {
+        INVOCATIONS.set(0);
+    }
+
+    @Test
+    public void testConcurrentSyncRequestsShareExchange() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return target("test").request(MediaType.TEXT_PLAIN).get(String.class);
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals("GET", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, INVOCATIONS.get());
+    }
+
+    @Test
+    public void testConcurrentAsyncRequestsShareExchange() throws Exception {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 10; i++) {
+            results.add(target("test").request(MediaType.TEXT_PLAIN).async().get(String.class));
+        }
+        for (Future<String> result : results) {
+            assertEquals("GET", result.get());
+        }
+        assertEquals(1, INVOCATIONS.get());
+    }
+
+    @Test
+    public void testVaryingHeadersAreNotCoalesced() throws Exception {
+        Future<String> plain = target("test").request(MediaType.TEXT_PLAIN).async().get(String.class);
+        Future<String> html = target("test").request(MediaType.TEXT_HTML).async().get(String.class);
+        assertEquals("GET", plain.get());
+        assertEquals("GET", html.get());
+        assertEquals(2, INVOCATIONS.get());
+    }
+
+    @Test
+    public void testCancelledLeaderFailsFollowers() throws Exception {
+        // the first request takes the only permit, the leader waits for the next one and is cancelled unsent
+        connector.reconfigure(Collections.singletonMap(JettyClientProperties.RATE_LIMIT, 1));
+        final NoopCallback first = new NoopCallback();
+        connector.apply(capture(MediaType.TEXT_HTML), first);
+        final Future<?> leader = connector.apply(capture(MediaType.TEXT_PLAIN), new NoopCallback());
+        final NoopCallback followerCallback = new NoopCallback();
+        final Future<?> follower = connector.apply(capture(MediaType.TEXT_PLAIN), followerCallback);
+
+        assertTrue(leader.cancel(true));
+        try {
+            follower.get(500, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof CancellationException);
+        }
+        assertTrue(followerCallback.failed.await(5, TimeUnit.SECONDS));
+        assertTrue(first.done.await(5, TimeUnit.SECONDS));
+    }
+
+    private ClientRequest capture(final String mediaType) {
+        // the connector is called directly, the request is captured from the Jersey client
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        target("test").register(new ClientRequestFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext) {
+                request.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request(mediaType).get().close();
+        return new ClientRequest(request.get());
+    }
+
+    private static final class NoopCallback implements AsyncConnectorCallback {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+
+        @Override
+        public void response(ClientResponse response) {
+            response.close();
+            done.countDown();
+        }
+
+        @Override
+        public void failure(Throwable failure) {
+            failed.countDown();
+            done.countDown();
+        }
+    }
+}
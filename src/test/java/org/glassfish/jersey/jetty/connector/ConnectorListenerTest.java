@@ -0,0 +1,186 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the connector listener events.
+ */
+public class ConnectorListenerTest extends JerseyTest {
+
+    private final Queue<String> events = new ConcurrentLinkedQueue<String>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong contentLength = new AtomicLong();
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class ListenerResource {
+        @GET
+        public String get() {
+            return "listened";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(ListenerResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        final ConnectorListener recorder = new ConnectorListener() {
+            @Override
+            public void onQueued(ClientRequest request) {
+                events.add("queued");
+            }
+
+            @Override
+            public void onConnectionCreated(String destination, long connectNanos) {
+                assertTrue(destination.startsWith("http://localhost:"));
+                assertTrue(connectNanos >= 0);
+                connections.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectionAcquired(ClientRequest request) {
+                events.add("acquired");
+            }
+
+            @Override
+            public void onCommitted(ClientRequest request) {
+                events.add("committed");
+            }
+
+            @Override
+            public void onRequestContent(ClientRequest request, ByteBuffer content) {
+            }
+
+            @Override
+            public void onHeaders(ClientRequest request, org.eclipse.jetty.client.api.Response response) {
+                events.add("headers " + response.getStatus());
+            }
+
+            @Override
+            public void onContent(ClientRequest request, ByteBuffer content) {
+                contentLength.addAndGet(content.remaining());
+                // consuming the chunk must not affect the response
+                content.position(content.limit());
+            }
+
+            @Override
+            public void onComplete(ClientRequest request, org.eclipse.jetty.client.api.Response response) {
+                events.add("complete");
+            }
+
+            @Override
+            public void onFailure(ClientRequest request, Throwable failure) {
+                events.add("failure");
+            }
+        };
+        final ConnectorListener failing = new ConnectorListener.Adapter() {
+            @Override
+            public void onHeaders(ClientRequest request, org.eclipse.jetty.client.api.Response response) {
+                throw new IllegalStateException("listener failure");
+            }
+        };
+        config.property(JettyClientProperties.LISTENERS, Arrays.asList(failing, recorder));
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testSyncEvents() throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            events.clear();
+            final Response response = target("test").request().get();
+            assertEquals("listened", response.readEntity(String.class));
+            assertEvents();
+        }
+        assertEquals(1, connections.get());
+        assertEquals(2 * "listened".length(), contentLength.get());
+    }
+
+    @Test
+    public void testAsyncEvents() throws Exception {
+        final Response response = target("test").request().async().get().get();
+        assertEquals("listened", response.readEntity(String.class));
+        assertEvents();
+        assertEquals(1, connections.get());
+        assertEquals("listened".length(), contentLength.get());
+    }
+
+    private void assertEvents() throws InterruptedException {
+        // the completion may be notified after the response is delivered
+        for (int i = 0; i < 100 && !events.contains("complete"); i++) {
+            Thread.sleep(10);
+        }
+        final List<String> received = new ArrayList<String>(events);
+        // the commit is notified once the write completes, possibly after the response headers
+        assertTrue(received.remove("committed"));
+        assertEquals(Arrays.asList("queued", "acquired", "headers 200", "complete"), received);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests streaming decoding of gzip and deflate encoded responses.
+ */
+public class ContentDecodingTest extends JerseyTest {
+
+    private static final String TEXT = createText(200000);
+    private static final int MAX_SIZE = 256 * 1024;
+
+    @Path("/test")
+    public static class EncodingResource {
+        @GET
+        @Path("accept")
+        public String accept(@HeaderParam("Accept-Encoding") String acceptEncoding) {
+            return acceptEncoding;
+        }
+
+        @GET
+        @Path("gzip")
+        public Response gzip() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(TEXT.getBytes("UTF-8"));
+            out.close();
+            return Response.ok(bytes.toByteArray(), "text/plain").header("Content-Encoding", "gzip").build();
+        }
+
+        @GET
+        @Path("gzip-header")
+        public Response gzipWithOptionalHeaderFields() throws IOException {
+            final byte[] text = TEXT.getBytes("UTF-8");
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            // FHCRC, FEXTRA, FNAME and FCOMMENT set
+            bytes.write(new byte[] {0x1F, (byte) 0x8B, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xFF});
+            bytes.write(new byte[] {3, 0, 'a', 'b', 'c'});
+            bytes.write("text.txt\0a comment\0".getBytes("ISO-8859-1"));
+            bytes.write(new byte[] {0, 0});
+            final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            final DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+            out.write(text);
+            out.finish();
+            deflater.end();
+            final CRC32 crc = new CRC32();
+            crc.update(text);
+            writeInt(bytes, (int) crc.getValue());
+            writeInt(bytes, text.length);
+            return Response.ok(bytes.toByteArray(), "text/plain").header("Content-Encoding", "gzip").build();
+        }
+
+        @GET
+        @Path("deflate")
+        public Response deflate() throws IOException {
+            return Response.ok(deflate(false), "text/plain").header("Content-Encoding", "deflate").build();
+        }
+
+        @GET
+        @Path("raw-deflate")
+        public Response rawDeflate() throws IOException {
+            return Response.ok(deflate(true), "text/plain").header("Content-Encoding", "deflate").build();
+        }
+
+        @GET
+        @Path("corrupt")
+        public Response corrupt() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(TEXT.getBytes("UTF-8"));
+            out.close();
+            final byte[] content = bytes.toByteArray();
+            // damage the CRC32 of the trailer
+            content[content.length - 8] ^= 0xFF;
+            return Response.ok(content, "text/plain").header("Content-Encoding", "gzip").build();
+        }
+
+        @GET
+        @Path("truncated")
+        public Response truncated() throws IOException {
+            final byte[] content = gzip(TEXT.getBytes("UTF-8"));
+            // the trailer is missing
+            return Response.ok(Arrays.copyOf(content, content.length - 8), "text/plain")
+                    .header("Content-Encoding", "gzip").build();
+        }
+
+        @GET
+        @Path("bomb")
+        public Response bomb() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(new byte[4 * MAX_SIZE]);
+            out.close();
+            return Response.ok(bytes.toByteArray(), "text/plain").header("Content-Encoding", "gzip").build();
+        }
+
+        private static byte[] gzip(final byte[] content) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(content);
+            out.close();
+            return bytes.toByteArray();
+        }
+
+        private static byte[] deflate(final boolean raw) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+            final DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+            out.write(TEXT.getBytes("UTF-8"));
+            out.close();
+            deflater.end();
+            return bytes.toByteArray();
+        }
+
+        private static void writeInt(final ByteArrayOutputStream out, final int value) {
+            out.write(value);
+            out.write(value >> 8);
+            out.write(value >> 16);
+            out.write(value >> 24);
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(EncodingResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.DECODE_CONTENT, true);
+        config.property(JettyClientProperties.DECODE_CONTENT_MAX_SIZE, MAX_SIZE);
+        config.connector(new JettyConnector(config));
+    }
+
+    @Test
+    public void testAcceptEncoding() {
+        final String acceptEncoding = target("test/accept").request().get(String.class);
+        assertEquals("gzip, deflate", acceptEncoding);
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        assertDecoded("test/gzip");
+        assertDecoded("test/gzip-header");
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        assertDecoded("test/deflate");
+        assertDecoded("test/raw-deflate");
+    }
+
+    @Test
+    public void testInflatersAreReused() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertEquals(TEXT, target("test/gzip").request().get(String.class));
+            assertEquals(TEXT, target("test/deflate").request().async().get(String.class).get());
+        }
+    }
+
+    @Test
+    public void testCorruptContent() throws Exception {
+        assertFails("test/corrupt", LocalizationMessages.CONTENT_DECODING_FAILED("gzip"));
+    }
+
+    @Test
+    public void testDecodedSizeIsBounded() throws Exception {
+        assertFails("test/bomb", LocalizationMessages.DECODED_CONTENT_TOO_LARGE(MAX_SIZE));
+    }
+
+    @Test
+    public void testTruncatedContent() throws Exception {
+        assertFails("test/truncated", LocalizationMessages.DECODED_CONTENT_TRUNCATED("gzip"));
+    }
+
+    @Test
+    public void testInflaterIsReturnedOnFailure() throws Exception {
+        final ContentDecoders decoders = new ContentDecoders(ContentDecoders.DEFAULT_MAX_SIZE);
+        final byte[] content = EncodingResource.gzip(TEXT.getBytes("UTF-8"));
+        try {
+            final ContentDecoders.Decoder aborted = decoders.newDecoder("gzip");
+            aborted.decode(ByteBuffer.wrap(content, 0, content.length / 2));
+            assertEquals(1, decoders.getInflatersInUse());
+            aborted.end(false);
+            assertEquals(0, decoders.getInflatersInUse());
+
+            final ContentDecoders.Decoder truncated = decoders.newDecoder("gzip");
+            truncated.decode(ByteBuffer.wrap(content, 0, content.length - 4));
+            try {
+                truncated.end(true);
+                fail();
+            } catch (ProcessingException expected) {
+                assertEquals(LocalizationMessages.DECODED_CONTENT_TRUNCATED("gzip"), expected.getMessage());
+            }
+            assertEquals(0, decoders.getInflatersInUse());
+
+            // a response without content, e.g. to a HEAD request, is not truncated
+            decoders.newDecoder("gzip").end(true);
+        } finally {
+            decoders.close();
+        }
+    }
+
+    private void assertDecoded(final String path) throws Exception {
+        final Response response = target(path).request().get();
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeaderString("Content-Encoding"));
+        assertEquals(TEXT, response.readEntity(String.class));
+
+        final Response asyncResponse = target(path).request().async().get().get();
+        assertEquals(200, asyncResponse.getStatus());
+        assertNull(asyncResponse.getHeaderString("Content-Encoding"));
+        assertEquals(TEXT, asyncResponse.readEntity(String.class));
+    }
+
+    private void assertFails(final String path, final String message) throws Exception {
+        try {
+            target(path).request().get(String.class);
+            fail();
+        } catch (ProcessingException expected) {
+            assertCause(expected, message);
+        }
+        try {
+            target(path).request().async().get(String.class).get();
+            fail();
+        } catch (ExecutionException expected) {
+            // the failure is reported when reading the entity, the response headers being already delivered
+        }
+    }
+
+    private static void assertCause(final Throwable failure, final String message) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (message.equals(t.getMessage())) {
+                return;
+            }
+        }
+        throw new AssertionError("Unexpected failure: " + failure);
+    }
+
+    private static String createText(final int length) {
+        final Random random = new Random(42);
+        final StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
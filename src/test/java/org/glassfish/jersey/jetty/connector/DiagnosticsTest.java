@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the diagnostic recorder.
+ */
+public class DiagnosticsTest extends JerseyTest {
+
+    private static final long SLOW = 300;
+
+    private final Logger logger = Logger.getLogger(DiagnosticRecorder.class.getName());
+    private final Queue<String> dumps = new ConcurrentLinkedQueue<String>();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            dumps.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class DiagnosticsResource {
+        @GET
+        public String get() {
+            return "fast";
+        }
+
+        @GET
+        @Path("slow")
+        public Response slow() throws InterruptedException {
+            Thread.sleep(SLOW);
+            return Response.ok("slow").header("Set-Cookie", "session=secret-session").build();
+        }
+
+        @POST
+        public String echo(String entity) {
+            return "echo " + entity;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(DiagnosticsResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.DIAGNOSTICS_CAPACITY, 3);
+        config.property(JettyClientProperties.DIAGNOSTICS_BODY_BYTES, 8);
+        config.property(JettyClientProperties.DIAGNOSTICS_SLOW_THRESHOLD, (int) SLOW / 2);
+        config.property(JettyClientProperties.DIAGNOSTICS_SENSITIVE_HEADERS, "X-Api-Key");
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void addHandler() {
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void removeHandler() {
+        logger.removeHandler(handler);
+        connector.close();
+    }
+
+    @Test
+    public void testRecords() {
+        assertEquals("echo 0123456789", target("test").request().post(Entity.text("0123456789"), String.class));
+        final List<DiagnosticRecord> records = connector.getDiagnosticRecords();
+        assertEquals(1, records.size());
+        final DiagnosticRecord record = records.get(0);
+        assertEquals("POST", record.getMethod());
+        assertEquals(200, record.getStatus());
+        assertArrayEquals("01234567".getBytes(), record.getRequestBody());
+        assertArrayEquals("echo 012".getBytes(), record.getResponseBody());
+        assertEquals("text/plain", record.getRequestHeaders().getFirst("Content-Type"));
+        assertTrue(record.getResponseHeaders().containsKey("Content-Type"));
+        assertTrue(dumps.isEmpty());
+    }
+
+    @Test
+    public void testRingCapacity() {
+        for (int i = 0; i < 6; i++) {
+            target("test").request().get(String.class);
+        }
+        // capacity rounded up to a power of two
+        assertEquals(4, connector.getDiagnosticRecords().size());
+    }
+
+    @Test
+    public void testSlowRequestDump() {
+        target("test").request().get(String.class);
+        assertEquals("slow", target("test/slow").request().get(String.class));
+        assertEquals(1, dumps.size());
+        final String dump = dumps.peek();
+        assertTrue(dump, dump.startsWith("Slow request GET"));
+        assertTrue(dump, dump.contains("< fast"));
+        assertTrue(dump, dump.contains("< slow"));
+        final List<DiagnosticRecord> records = connector.getDiagnosticRecords();
+        assertTrue(records.get(1).getDuration(TimeUnit.MILLISECONDS) >= SLOW);
+
+        dumps.clear();
+        target("test/slow").request().get(String.class);
+        // only the requests completed since the previous dump
+        assertEquals(1, dumps.size());
+        assertTrue(dumps.peek(), !dumps.peek().contains("< fast"));
+    }
+
+    @Test
+    public void testSensitiveHeadersAreRedacted() {
+        assertEquals("slow", target("test/slow").request()
+                .header("Authorization", "Bearer secret-token")
+                .header("X-Api-Key", "secret-key")
+                .header("X-Trace", "visible")
+                .get(String.class));
+        assertEquals(1, dumps.size());
+        final String dump = dumps.peek();
+        assertFalse(dump, dump.contains("secret"));
+        assertTrue(dump, dump.contains("> Authorization: <redacted>"));
+        assertTrue(dump, dump.contains("> X-Trace: visible"));
+
+        final DiagnosticRecord record = connector.getDiagnosticRecords().get(0);
+        assertEquals("<redacted>", record.getRequestHeaders().getFirst("Authorization"));
+        assertEquals("<redacted>", record.getRequestHeaders().getFirst("X-Api-Key"));
+        assertEquals("<redacted>", record.getResponseHeaders().getFirst("Set-Cookie"));
+        assertFalse(record.toString(), record.toString().contains("secret"));
+    }
+
+    @Test
+    public void testSampling() {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.DIAGNOSTICS_CAPACITY, 16);
+        config.property(JettyClientProperties.DIAGNOSTICS_SAMPLING, 2);
+        final JettyConnector sampledConnector = new JettyConnector(config);
+        config.connector(sampledConnector);
+        final Client client = ClientBuilder.newClient(config);
+        try {
+            for (int i = 0; i < 4; i++) {
+                client.target(getBaseUri()).path("test").request().get(String.class);
+            }
+            assertEquals(2, sampledConnector.getDiagnosticRecords().size());
+        } finally {
+            client.close();
+            sampledConnector.close();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the memory-mapped disk tier of the response cache.
+ */
+public class DiskCacheTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(DiskCacheTest.class.getName());
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File directory;
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class CacheResource {
+        @GET
+        @Path("{id}/{size}")
+        public Response get(@PathParam("id") String id, @PathParam("size") int size) {
+            final char[] body = new char[size];
+            Arrays.fill(body, id.charAt(0));
+            COUNTER.incrementAndGet();
+            return Response.ok(new String(body)).header("Cache-Control", "max-age=60").build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(CacheResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        try {
+            directory = File.createTempFile("jetty-connector-cache", "");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        directory.delete();
+        config.property(JettyClientProperties.CACHE_DIRECTORY, directory);
+        config.property(JettyClientProperties.CACHE_DISK_SEGMENT_SIZE, SEGMENT_SIZE);
+        config.property(JettyClientProperties.CACHE_DISK_MAX_SIZE, 2 * SEGMENT_SIZE);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void resetCounter() {
+        COUNTER.set(0);
+    }
+
+    @After
+    public void deleteDirectory() {
+        connector.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testResponseIsServedFromDisk() throws Exception {
+        assertEquals(1000, target("test/a/1000").request().get(String.class).length());
+        final String cached = target("test/a/1000").request().get(String.class);
+        assertEquals(1000, cached.length());
+        assertTrue(cached.startsWith("aaa"));
+        assertEquals("aaa", target("test/a/1000").request().async().get(String.class).get().substring(0, 3));
+        assertEquals(1, COUNTER.get());
+
+        CacheStatistics statistics = connector.getCacheStatistics();
+        assertEquals(2, statistics.getDiskHits());
+        assertEquals(1, statistics.getDiskEntries());
+        assertEquals(0, statistics.getEntries());
+    }
+
+    @Test
+    public void testCacheSurvivesRestart() {
+        target("test/a/1000").request().get(String.class);
+        connector.close();
+
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CACHE_DIRECTORY, directory.getPath());
+        config.property(JettyClientProperties.CACHE_DISK_SEGMENT_SIZE, SEGMENT_SIZE);
+        final JettyConnector restarted = new JettyConnector(config);
+        final Client client = ClientBuilder.newClient(config.connector(restarted));
+        try {
+            assertEquals(1, restarted.getCacheStatistics().getDiskEntries());
+            assertEquals(1000, client.target(getBaseUri()).path("test/a/1000").request().get(String.class).length());
+            assertEquals(1, COUNTER.get());
+            assertEquals(1, restarted.getCacheStatistics().getDiskHits());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testDirectoryIsLocked() {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.CACHE_DIRECTORY, directory);
+        try {
+            new JettyConnector(config).close();
+            fail("Cache directory should be locked.");
+        } catch (ProcessingException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSegmentIsEvicted() {
+        // two responses fit into a segment
+        target("test/a/1500").request().get(String.class);
+        target("test/b/1500").request().get(String.class);
+        target("test/c/1500").request().get(String.class);
+        target("test/d/1500").request().get(String.class);
+        // use the first segment again
+        target("test/a/1500").request().get(String.class);
+        target("test/e/1500").request().get(String.class);
+        assertEquals(5, COUNTER.get());
+        assertEquals(2 * SEGMENT_SIZE, connector.getCacheStatistics().getDiskSize());
+
+        // the segment of c and d was evicted
+        target("test/a/1500").request().get(String.class);
+        target("test/e/1500").request().get(String.class);
+        assertEquals(5, COUNTER.get());
+        target("test/c/1500").request().get(String.class);
+        assertEquals(6, COUNTER.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSegmentSurvivesRestart() throws Exception {
+        // two responses fit into a segment
+        target("test/a/1500").request().get(String.class);
+        target("test/b/1500").request().get(String.class);
+        target("test/c/1500").request().get(String.class);
+        target("test/d/1500").request().get(String.class);
+        // the access time is recorded with a resolution of one second
+        Thread.sleep(1100);
+        target("test/a/1500").request().get(String.class);
+        assertEquals(4, COUNTER.get());
+        connector.close();
+
+        final ClientConfig config = new ClientConfig();
+        restart(config);
+        final Client client = ClientBuilder.newClient(config);
+        try {
+            // the segment of c and d is evicted
+            client.target(getBaseUri()).path("test/e/1500").request().get(String.class);
+            client.target(getBaseUri()).path("test/a/1500").request().get(String.class);
+            assertEquals(5, COUNTER.get());
+            client.target(getBaseUri()).path("test/c/1500").request().get(String.class);
+            assertEquals(6, COUNTER.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testResponsesOfOtherDecodingAreDiscarded() {
+        target("test/a/1000").request().get(String.class);
+        connector.close();
+
+        final ClientConfig config = new ClientConfig().property(JettyClientProperties.DECODE_CONTENT, true);
+        final JettyConnector restarted = restart(config);
+        final Client client = ClientBuilder.newClient(config);
+        try {
+            assertEquals(0, restarted.getCacheStatistics().getDiskEntries());
+            assertEquals(1000, client.target(getBaseUri()).path("test/a/1000").request().get(String.class).length());
+            assertEquals(2, COUNTER.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    private JettyConnector restart(final ClientConfig config) {
+        config.property(JettyClientProperties.CACHE_DIRECTORY, directory.getPath());
+        config.property(JettyClientProperties.CACHE_DISK_SEGMENT_SIZE, SEGMENT_SIZE);
+        config.property(JettyClientProperties.CACHE_DISK_MAX_SIZE, 2 * SEGMENT_SIZE);
+        final JettyConnector restarted = new JettyConnector(config);
+        config.connector(restarted);
+        return restarted;
+    }
+
+    @Test
+    public void testResponseLargerThanSegmentIsNotStored() {
+        target("test/a/5000").request().get(String.class);
+        target("test/a/5000").request().get(String.class);
+        assertEquals(2, COUNTER.get());
+        assertEquals(0, connector.getCacheStatistics().getDiskEntries());
+    }
+}
@@ -54,11 +54,14 @@ import javax.ws.rs.core.Application;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 
@@ -85,6 +88,12 @@ public class EntityTest extends JerseyTest {
             return entity;
         }
 
+        @POST
+        @Path("bytes")
+        public byte[] postBytes(byte[] entity) {
+            return entity;
+        }
+
     }
 
     @XmlRootElement
@@ -180,4 +189,17 @@ public class EntityTest extends JerseyTest {
         person = response.readEntity(Person.class);
         assertEquals("John Doe", person.toString());
     }
+
+    @Test
+    public void testPostStreamAsync() throws ExecutionException, InterruptedException {
+        // larger than the buffers of the entity writer and of the client, which are reused
+        final byte[] entity = new byte[1024 * 1024];
+        for (int i = 0; i < entity.length; i++) {
+            entity[i] = (byte) (i % 251);
+        }
+        final InputStream in = new ByteArrayInputStream(entity);
+        final Response response = target(PATH).path("bytes").request(MediaType.APPLICATION_OCTET_STREAM_TYPE).async()
+                .post(Entity.entity(in, MediaType.APPLICATION_OCTET_STREAM_TYPE)).get();
+        assertArrayEquals(entity, response.readEntity(byte[].class));
+    }
 }
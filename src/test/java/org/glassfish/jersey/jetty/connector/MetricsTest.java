@@ -0,0 +1,187 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests latency histograms, gauges and their JMX export.
+ */
+public class MetricsTest extends JerseyTest {
+
+    private static final String NAME = "metrics-test";
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class StatusResource {
+        @GET
+        @Path("{status}")
+        public Response status(@PathParam("status") int status) {
+            return Response.status(status).entity("status").build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(StatusResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.METRICS, true);
+        config.property(JettyClientProperties.METRICS_NAME, NAME);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        // unregisters the MBeans before the next test registers them again
+        connector.close();
+    }
+
+    @Test
+    public void testLatenciesByStatusClass() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, target("test/200").request().get().getStatus());
+        }
+        assertEquals(404, target("test/404").request().async().get().get().getStatus());
+        assertEquals(503, target("test/503").request().get().getStatus());
+
+        final DestinationMetricsMXBean destination =
+                connector.getDestinationMetrics(JettyConnector.getDestination(getBaseUri()));
+        assertNotNull(destination);
+        final Map<String, LatencyStatistics> latencies = destination.getLatencies();
+        assertEquals(3, latencies.size());
+        final LatencyStatistics ok = latencies.get("2xx");
+        assertEquals(10, ok.getCount());
+        assertTrue(ok.getMedian() > 0);
+        assertTrue(ok.getMedian() <= ok.getPercentile99());
+        assertTrue(ok.getPercentile99() <= ok.getMax());
+        assertEquals(1, latencies.get("4xx").getCount());
+        assertEquals(1, latencies.get("5xx").getCount());
+
+        final ConnectorMetricsMXBean metrics = connector.getMetrics();
+        assertEquals(12, metrics.getCompletedRequests());
+        assertEquals(0, metrics.getFailedRequests());
+        assertEquals(0, metrics.getActiveRequests());
+        assertEquals(0, metrics.getQueuedRequests());
+        assertEquals(0, destination.getActiveConnections());
+        assertTrue(destination.getIdleConnections() >= 1);
+        assertEquals(0, destination.getPendingConnections());
+    }
+
+    @Test
+    public void testFailedRequests() throws Exception {
+        try {
+            client().target("http://localhost:1/").request().get();
+            fail();
+        } catch (ProcessingException expected) {
+            // connection refused
+        }
+        assertEquals(1, connector.getMetrics().getFailedRequests());
+        assertEquals(1, connector.getDestinationMetrics("http://localhost:1").getLatencies().get("failed").getCount());
+    }
+
+    @Test
+    public void testJmxExport() throws Exception {
+        target("test/200").request().get();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName connectorName = new ObjectName(ConnectorMetrics.DOMAIN + ":type=JettyConnector,name=\"" + NAME + "\"");
+        final ObjectName destinationName = new ObjectName(ConnectorMetrics.DOMAIN + ":type=JettyConnector,name=\"" + NAME
+                + "\",destination=" + ObjectName.quote(JettyConnector.getDestination(getBaseUri())));
+        assertTrue(server.isRegistered(connectorName));
+        assertTrue(server.isRegistered(destinationName));
+        assertEquals(1L, server.getAttribute(connectorName, "CompletedRequests"));
+
+        final TabularData latencies = (TabularData) server.getAttribute(destinationName, "Latencies");
+        final CompositeData ok = (CompositeData) latencies.get(new Object[] {"2xx"}).get("value");
+        assertEquals(1L, ok.get("count"));
+
+        connector.close();
+        assertFalse(server.isRegistered(connectorName));
+        assertFalse(server.isRegistered(destinationName));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value = 0; value < 1L << 30; value = value * 3 / 2 + 1) {
+            final int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.lowerBound(index) <= value);
+            assertTrue(value < LatencyHistogram.lowerBound(index + 1));
+            assertTrue(LatencyHistogram.lowerBound(index + 1) - LatencyHistogram.lowerBound(index) <= Math.max(1, value / 16));
+        }
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        final LatencyStatistics statistics = histogram.getStatistics();
+        assertEquals(10000, statistics.getCount());
+        assertEquals(5000.5, statistics.getMean(), 0.001);
+        assertEquals(10000, statistics.getMax());
+        assertEquals(5000, statistics.getMedian(), 5000 / 16);
+        assertEquals(9900, statistics.getPercentile99(), 9900 / 16);
+    }
+}
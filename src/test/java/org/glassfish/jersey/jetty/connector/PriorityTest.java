@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Application;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests priority scheduling of requests waiting for a connection.
+ */
+public class PriorityTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PriorityTest.class.getName());
+
+    private static final List<String> ARRIVALS = new CopyOnWriteArrayList<String>();
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class SlowResource {
+        @GET
+        public String get(@QueryParam("id") String id) throws InterruptedException {
+            ARRIVALS.add(id);
+            Thread.sleep(300);
+            return id;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(SlowResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, 1);
+        config.property(JettyClientProperties.PRIORITY_SCHEDULING, true);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Test
+    public void testHighPriorityOvertakesQueuedRequests() throws Exception {
+        ARRIVALS.clear();
+        List<Future<String>> low = new ArrayList<Future<String>>();
+        for (int i = 0; i < 3; i++) {
+            low.add(target("test").queryParam("id", "low" + i).request()
+                    .property(JettyClientProperties.REQUEST_PRIORITY, RequestPriority.LOW).async().get(String.class));
+        }
+        Thread.sleep(150);
+        Future<String> high = target("test").queryParam("id", "high").request()
+                .property(JettyClientProperties.REQUEST_PRIORITY, "high").async().get(String.class);
+
+        assertEquals("high", high.get());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("low" + i, low.get(i).get());
+        }
+        // the first low priority request was in flight when the high priority request arrived
+        assertEquals("high", ARRIVALS.get(1));
+
+        Map<RequestPriority, PriorityQueueStatistics> statistics = connector.getPriorityQueueStatistics();
+        assertEquals(3, statistics.get(RequestPriority.LOW).getAdmitted());
+        assertEquals(1, statistics.get(RequestPriority.HIGH).getAdmitted());
+        assertEquals(0, statistics.get(RequestPriority.LOW).getQueued());
+        assertTrue(statistics.get(RequestPriority.LOW).getMaxWait(TimeUnit.MILLISECONDS) > 0);
+    }
+
+    @Test
+    public void testSyncRequestsAreAdmitted() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("sync" + i, target("test").queryParam("id", "sync" + i).request().get(String.class));
+        }
+    }
+
+    @Test
+    public void testRaisedPermitsAdmitWaitingRequests() {
+        final PriorityDispatcher dispatcher = new PriorityDispatcher(1, 0);
+        final List<String> admitted = new CopyOnWriteArrayList<String>();
+        final PriorityDispatcher.Ticket first = dispatcher.newTicket("http://localhost:80", RequestPriority.NORMAL);
+        first.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                admitted.add("first");
+            }
+        });
+        dispatcher.newTicket("http://localhost:80", RequestPriority.NORMAL).enqueue(new Runnable() {
+            @Override
+            public void run() {
+                admitted.add("second");
+            }
+        });
+        assertEquals(1, admitted.size());
+
+        dispatcher.setLimits(2, 0);
+        assertEquals(2, admitted.size());
+        assertEquals("second", admitted.get(1));
+        first.release();
+    }
+
+    @Test
+    public void testWithdrawOnlyWaitingRequests() {
+        final PriorityDispatcher dispatcher = new PriorityDispatcher(1, 0);
+        final List<String> admitted = new CopyOnWriteArrayList<String>();
+        final PriorityDispatcher.Ticket first = dispatcher.newTicket("http://localhost:80", RequestPriority.NORMAL);
+        first.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                admitted.add("first");
+            }
+        });
+        final PriorityDispatcher.Ticket second = dispatcher.newTicket("http://localhost:80", RequestPriority.NORMAL);
+        second.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                admitted.add("second");
+            }
+        });
+
+        // the admitted request may be on the wire, it keeps its permit
+        assertFalse(first.withdraw());
+        assertTrue(second.withdraw());
+        dispatcher.newTicket("http://localhost:80", RequestPriority.NORMAL).enqueue(new Runnable() {
+            @Override
+            public void run() {
+                admitted.add("third");
+            }
+        });
+        assertEquals(1, admitted.size());
+
+        first.release();
+        assertEquals(2, admitted.size());
+        assertEquals("third", admitted.get(1));
+    }
+}
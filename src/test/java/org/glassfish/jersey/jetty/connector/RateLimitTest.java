@@ -0,0 +1,172 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the client-side rate limiting of {@link JettyConnector}.
+ */
+public class RateLimitTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(RateLimitTest.class.getName());
+
+    @Path("/test")
+    public static class RateLimitResource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+
+        @GET
+        @Path("busy")
+        public Response busy() {
+            return Response.status(429).header("Retry-After", "2").build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(RateLimitResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.connector(new JettyConnector(config));
+    }
+
+    private Client createClient(int rate, Integer maxWait) {
+        ClientConfig config = new ClientConfig().property(JettyClientProperties.RATE_LIMIT, rate);
+        if (maxWait != null) {
+            config.property(JettyClientProperties.RATE_LIMIT_MAX_WAIT, maxWait);
+        }
+        config.connector(new JettyConnector(config));
+        return ClientBuilder.newClient(config);
+    }
+
+    @Test
+    public void testSyncRequestsAreDelayed() {
+        Client client = createClient(10, null);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("GET", client.target(getBaseUri()).path("test").request().get(String.class));
+            }
+            // first request is free, four more need 100 ms each
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 350);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testAsyncRequestsAreDelayed() throws ExecutionException, InterruptedException {
+        Client client = createClient(10, null);
+        try {
+            long start = System.nanoTime();
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(client.target(getBaseUri()).path("test").request().async().get(String.class));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("GET", future.get());
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 350);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testFailFast() {
+        Client client = createClient(1, 0);
+        try {
+            assertEquals("GET", client.target(getBaseUri()).path("test").request().get(String.class));
+            try {
+                client.target(getBaseUri()).path("test").request().get(String.class);
+                fail("Rate limit not enforced.");
+            } catch (ProcessingException e) {
+                // expected
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRetryAfter() throws InterruptedException {
+        Client client = createClient(100, 0);
+        try {
+            assertEquals(429, client.target(getBaseUri()).path("test/busy").request().get().getStatus());
+            try {
+                client.target(getBaseUri()).path("test").request().get(String.class);
+                fail("Retry-After not honored.");
+            } catch (ProcessingException e) {
+                // expected
+            }
+        } finally {
+            client.close();
+        }
+    }
+}
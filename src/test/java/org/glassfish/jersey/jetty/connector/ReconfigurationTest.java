@@ -0,0 +1,186 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Application;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the reconfiguration of a running connector.
+ */
+public class ReconfigurationTest extends JerseyTest {
+
+    private JettyConnector connector;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Path("/test")
+    public static class ReconfigurationResource {
+        @GET
+        public String get(@QueryParam("delay") long delay) throws InterruptedException {
+            Thread.sleep(delay);
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(ReconfigurationResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, 2);
+        config.property(ClientProperties.ASYNC_THREADPOOL_SIZE, 16);
+        config.property(JettyClientProperties.LISTENERS, new ConnectorListener.Adapter() {
+            @Override
+            public void onConnectionCreated(String destination, long connectNanos) {
+                connections.incrementAndGet();
+            }
+        });
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+        assertEquals("GET", target("test").request().get(String.class));
+        assertEquals(1, connections.get());
+
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(ClientProperties.CONNECT_TIMEOUT, 3000);
+        properties.put(ClientProperties.READ_TIMEOUT, 500);
+        properties.put(ClientProperties.ASYNC_THREADPOOL_SIZE, 32);
+        properties.put(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, 8);
+        connector.reconfigure(properties);
+
+        assertEquals(3000, connector.getHttpClient().getConnectTimeout());
+        assertEquals(8, connector.getHttpClient().getMaxConnectionsPerDestination());
+        assertEquals(32, ((QueuedThreadPool) connector.getHttpClient().getExecutor()).getMaxThreads());
+        // the pooled connection is reused
+        assertEquals("GET", target("test").request().get(String.class));
+        assertEquals(1, connections.get());
+
+        try {
+            target("test").queryParam("delay", 2000).request().get();
+            fail();
+        } catch (ProcessingException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        try {
+            target("test").queryParam("delay", 2000).request().async().get().get();
+            fail();
+        } catch (ExecutionException expected) {
+            // the read timeout
+        }
+
+        connector.reconfigure(Collections.singletonMap(ClientProperties.READ_TIMEOUT, 0));
+        assertEquals("GET", target("test").queryParam("delay", 1000).request().get(String.class));
+    }
+
+    @Test
+    public void testRejectedReconfiguration() {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(ClientProperties.CONNECT_TIMEOUT, 3000);
+        properties.put(JettyClientProperties.SSL_CONFIG, SSLContext.class);
+        try {
+            connector.reconfigure(properties);
+            fail();
+        } catch (ProcessingException expected) {
+            // not reconfigurable
+        }
+        properties.remove(JettyClientProperties.SSL_CONFIG);
+        properties.put(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, -1);
+        try {
+            connector.reconfigure(properties);
+            fail();
+        } catch (ProcessingException expected) {
+            // invalid value
+        }
+        // nothing applied
+        assertEquals(2, connector.getHttpClient().getMaxConnectionsPerDestination());
+        assertEquals(15000, connector.getHttpClient().getConnectTimeout());
+    }
+
+    @Test
+    public void testRateLimit() {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(JettyClientProperties.RATE_LIMIT, 0.1);
+        properties.put(JettyClientProperties.RATE_LIMIT_MAX_WAIT, 0);
+        connector.reconfigure(properties);
+        assertEquals("GET", target("test").request().get(String.class));
+        try {
+            target("test").request().get(String.class);
+            fail();
+        } catch (ProcessingException expected) {
+            // rate limit exceeded
+        }
+
+        connector.reconfigure(Collections.singletonMap(JettyClientProperties.RATE_LIMIT, 0));
+        assertEquals("GET", target("test").request().get(String.class));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests gzip compression of request entities.
+ */
+public class RequestCompressionTest extends JerseyTest {
+
+    private static final int THRESHOLD = 1024;
+    private static final String LARGE = createJson(200);
+    private static final String SMALL = createJson(2);
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class EchoResource {
+        @POST
+        public String echo(@HeaderParam("Content-Encoding") String encoding, byte[] entity) throws IOException {
+            if (!"gzip".equals(encoding)) {
+                return digest(encoding != null ? encoding : "identity", new String(entity, "UTF-8"));
+            }
+            final InputStream in = new GZIPInputStream(new ByteArrayInputStream(entity));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return digest(encoding, new String(out.toByteArray(), "UTF-8"));
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(EchoResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.REQUEST_COMPRESSION_THRESHOLD, THRESHOLD);
+        config.property(JettyClientProperties.REQUEST_COMPRESSION_LEVEL, 6);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Test
+    public void testLargeEntityIsCompressed() throws Exception {
+        assertEquals(digest("gzip", LARGE), target("test").request().post(Entity.json(LARGE), String.class));
+        assertEquals(digest("gzip", LARGE), target("test").request().async().post(Entity.json(LARGE), String.class).get());
+
+        final CompressionStatistics statistics = connector.getCompressionStatistics();
+        assertEquals(2, statistics.getCompressedRequests());
+        assertEquals(2L * LARGE.length(), statistics.getEntityBytes());
+        assertTrue(statistics.getSavedBytes() > 0);
+        assertTrue(statistics.getCompressionRatio() < 0.5);
+    }
+
+    @Test
+    public void testFailedEntityReleasesDeflater() throws Exception {
+        final StreamingOutput failing = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                output.write(LARGE.getBytes("UTF-8"));
+                throw new IOException("entity failure");
+            }
+        };
+        try {
+            target("test").request().post(Entity.json(failing), String.class);
+            fail();
+        } catch (ProcessingException expected) {
+            // the entity provider failed
+        }
+        assertEquals(digest("gzip", LARGE), target("test").request().post(Entity.json(LARGE), String.class));
+
+        // the failed entity stream is aborted instead of being closed
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        target("test").register(new ClientRequestFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext) {
+                request.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request().post(Entity.json(SMALL)).close();
+        final RequestCompressor compressor = new RequestCompressor(THRESHOLD, 6);
+        try {
+            final OutputStream stream = compressor.wrap(new ByteArrayOutputStream(), request.get(),
+                    connector.getHttpClient().newRequest(getBaseUri()), -1);
+            stream.write(LARGE.getBytes("UTF-8"));
+            assertEquals(1, compressor.getDeflatersInUse());
+            compressor.abort(stream);
+            assertEquals(0, compressor.getDeflatersInUse());
+        } finally {
+            compressor.close();
+        }
+    }
+
+    @Test
+    public void testSmallEntityIsNotCompressed() throws Exception {
+        assertTrue(SMALL.length() <= THRESHOLD);
+        assertEquals(digest("identity", SMALL), target("test").request().post(Entity.json(SMALL), String.class));
+        assertEquals(digest("identity", SMALL), target("test").request().async().post(Entity.json(SMALL), String.class).get());
+        assertEquals(0, connector.getCompressionStatistics().getCompressedRequests());
+        assertEquals(2, connector.getCompressionStatistics().getUncompressedRequests());
+    }
+
+    @Test
+    public void testStreamedEntityCrossingThreshold() throws Exception {
+        final StreamingOutput entity = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                final byte[] bytes = LARGE.getBytes("UTF-8");
+                for (int i = 0; i < bytes.length; i += 100) {
+                    output.write(bytes, i, Math.min(100, bytes.length - i));
+                    output.flush();
+                }
+            }
+        };
+        assertEquals(digest("gzip", LARGE), target("test").request()
+                .async().post(Entity.entity(entity, MediaType.APPLICATION_JSON_TYPE), String.class).get());
+        assertEquals(digest("gzip", LARGE), target("test").request()
+                .post(Entity.entity(entity, MediaType.APPLICATION_JSON_TYPE), String.class));
+    }
+
+    @Test
+    public void testEncodedEntityIsNotCompressed() {
+        final Variant identity = new Variant(MediaType.APPLICATION_JSON_TYPE, (String) null, "identity");
+        assertEquals(digest("identity", LARGE), target("test").request().post(Entity.entity(LARGE, identity), String.class));
+        assertEquals(0, connector.getCompressionStatistics().getCompressedRequests());
+    }
+
+    private static String digest(final String encoding, final String entity) {
+        return encoding + ":" + entity.length() + ":" + entity.hashCode();
+    }
+
+    private static String createJson(final int items) {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i)
+                    .append("\",\"description\":\"a highly compressible description of the item\"}");
+        }
+        return json.append(']').toString();
+    }
+}
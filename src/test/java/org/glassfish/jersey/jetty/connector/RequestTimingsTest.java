@@ -0,0 +1,132 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the request phase timings.
+ */
+public class RequestTimingsTest extends JerseyTest {
+
+    private static final long DELAY = 200;
+
+    private final AtomicReference<RequestTimings> timings = new AtomicReference<RequestTimings>();
+
+    @Path("/test")
+    public static class SlowResource {
+        @GET
+        public String get() throws InterruptedException {
+            Thread.sleep(DELAY);
+            return "slow";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(SlowResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.REQUEST_TIMINGS, true);
+        config.register(new ClientResponseFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+                timings.set((RequestTimings) requestContext.getProperty(RequestTimings.PROPERTY));
+            }
+        });
+        config.connector(new JettyConnector(config));
+    }
+
+    @Test
+    public void testSyncTimings() {
+        final Response response = target("test").request().get();
+        assertEquals("slow", response.readEntity(String.class));
+        assertTimings(timings.get());
+    }
+
+    @Test
+    public void testAsyncTimings() throws Exception {
+        final Response response = target("test").request().async().get().get();
+        assertEquals("slow", response.readEntity(String.class));
+        final RequestTimings asyncTimings = timings.get();
+        assertNotNull(asyncTimings);
+        // the response is delivered once its headers are received, the entity completes it later
+        for (int i = 0; i < 100 && !asyncTimings.isComplete(); i++) {
+            Thread.sleep(10);
+        }
+        assertTimings(asyncTimings);
+    }
+
+    private static void assertTimings(final RequestTimings timings) {
+        assertNotNull(timings);
+        assertTrue(timings.isComplete());
+        long previous = -1;
+        for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+            final long timestamp = timings.getTimestamp(phase, TimeUnit.NANOSECONDS);
+            assertTrue(phase + " not recorded", timestamp >= 0);
+            assertTrue(phase + " out of order", previous < 0 || timestamp >= previous);
+            previous = timestamp;
+        }
+        assertTrue(timings.getTimeToFirstByte(TimeUnit.MILLISECONDS) >= DELAY - 10);
+        assertTrue(timings.getTotalTime(TimeUnit.MILLISECONDS) >= timings.getTimeToFirstByte(TimeUnit.MILLISECONDS));
+        assertTrue(timings.getConnectionTime(TimeUnit.NANOSECONDS) >= 0);
+        assertTrue(timings.getDownloadTime(TimeUnit.NANOSECONDS) >= 0);
+    }
+}
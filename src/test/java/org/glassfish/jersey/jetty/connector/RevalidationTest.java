@@ -0,0 +1,165 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests conditional revalidation of cached responses.
+ */
+public class RevalidationTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(RevalidationTest.class.getName());
+
+    private static final AtomicInteger VERSION = new AtomicInteger();
+    private static final AtomicInteger FULL_RESPONSES = new AtomicInteger();
+    private static final Date LAST_MODIFIED = new Date(System.currentTimeMillis() - 60000);
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class ValidatedResource {
+        @GET
+        @Path("etag")
+        public Response etag(@Context Request request) {
+            final EntityTag tag = new EntityTag("v" + VERSION.get());
+            final Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.header("Cache-Control", "no-cache").build();
+            }
+            FULL_RESPONSES.incrementAndGet();
+            return Response.ok("etag-v" + VERSION.get()).tag(tag).header("Cache-Control", "no-cache").build();
+        }
+
+        @GET
+        @Path("modified")
+        public Response modified(@Context Request request) {
+            final Response.ResponseBuilder notModified = request.evaluatePreconditions(LAST_MODIFIED);
+            if (notModified != null) {
+                return notModified.header("X-Revalidated", "true").build();
+            }
+            FULL_RESPONSES.incrementAndGet();
+            return Response.ok("modified").lastModified(LAST_MODIFIED).header("Cache-Control", "max-age=0").build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(ValidatedResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.CACHE_MAX_SIZE, 1024 * 1024);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void reset() {
+        VERSION.set(1);
+        FULL_RESPONSES.set(0);
+    }
+
+    @Test
+    public void testNotModifiedIsRebuiltFromStoredBody() throws Exception {
+        assertEquals("etag-v1", target("test/etag").request().get(String.class));
+        final Response response = target("test/etag").request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals("etag-v1", response.readEntity(String.class));
+        assertEquals("\"v1\"", response.getHeaderString("ETag"));
+        assertEquals("etag-v1", target("test/etag").request().async().get(String.class).get());
+        assertEquals(1, FULL_RESPONSES.get());
+
+        CacheStatistics statistics = connector.getCacheStatistics();
+        assertEquals(2, statistics.getRevalidations());
+        assertEquals(2, statistics.getNotModified());
+        assertEquals(0, statistics.getHits());
+    }
+
+    @Test
+    public void testModifiedResponseReplacesStoredResponse() {
+        assertEquals("etag-v1", target("test/etag").request().get(String.class));
+        VERSION.set(2);
+        assertEquals("etag-v2", target("test/etag").request().get(String.class));
+        assertEquals("etag-v2", target("test/etag").request().get(String.class));
+        assertEquals(2, FULL_RESPONSES.get());
+        assertEquals(1, connector.getCacheStatistics().getNotModified());
+    }
+
+    @Test
+    public void testLastModified() {
+        assertEquals("modified", target("test/modified").request().get(String.class));
+        final Response response = target("test/modified").request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals("modified", response.readEntity(String.class));
+        // headers of the 304 response update the stored response
+        assertEquals("true", response.getHeaderString("X-Revalidated"));
+        assertEquals(1, FULL_RESPONSES.get());
+    }
+
+    @Test
+    public void testApplicationConditionalRequestIsNotRewritten() {
+        assertEquals("etag-v1", target("test/etag").request().get(String.class));
+        final Response response = target("test/etag").request().header("If-None-Match", "\"v1\"").get();
+        assertEquals(304, response.getStatus());
+        assertEquals(0, connector.getCacheStatistics().getNotModified());
+    }
+}
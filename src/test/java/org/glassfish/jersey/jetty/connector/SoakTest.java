@@ -0,0 +1,399 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.instanceOf;
+
+/**
+ * Soak test running mixed synchronous and asynchronous traffic through the connector, including cancelled, timed out
+ * and failed requests, and checking after each round that the buffers of the Jetty buffer pool, the connections,
+ * the response entity streams (the {@code ByteBufferInputStream}s of the asynchronous responses) and the executor
+ * threads return to their baseline.
+ * <p/>
+ * The test is skipped unless the {@value #DURATION_PROPERTY} system property gives its duration in seconds, e.g.
+ * {@code mvn test -Dtest=SoakTest -Djersey.jetty.soak.seconds=3600}.
+ */
+public class SoakTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SoakTest.class.getName());
+
+    /**
+     * System property with the duration of the soak test in seconds.
+     */
+    static final String DURATION_PROPERTY = "jersey.jetty.soak.seconds";
+
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int ITERATIONS_PER_ROUND = 20;
+    private static final int TIMEOUT_MILLIS = 200;
+    private static final long QUIESCENCE_MILLIS = 10000;
+    // room for the thread pools of the client and the server to grow under a busier round
+    private static final int THREAD_SLACK = 16;
+    private static final char[] LARGE = new char[64 * 1024];
+
+    static {
+        Arrays.fill(LARGE, 'a');
+    }
+
+    private JettyConnector connector;
+    private CountingByteBufferPool bufferPool;
+    private final StreamTracker streams = new StreamTracker();
+
+    @Path("/soak")
+    public static class SoakResource {
+        @GET
+        public String get(@QueryParam("size") @DefaultValue("16") int size,
+                          @QueryParam("delay") @DefaultValue("0") long delay) throws InterruptedException {
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            return new String(LARGE, 0, size);
+        }
+
+        @POST
+        @Path("error")
+        public Response error(String entity) {
+            return Response.serverError().entity("error").build();
+        }
+    }
+
+    @BeforeClass
+    public static void checkEnabled() {
+        Assume.assumeTrue(Integer.getInteger(DURATION_PROPERTY, 0) > 0);
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(SoakResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.METRICS, true);
+        config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, MAX_CONNECTIONS);
+        config.register(streams);
+        connector = new JettyConnector(config);
+        bufferPool = CountingByteBufferPool.install(connector.getHttpClient());
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testSoak() throws Exception {
+        final long end = System.currentTimeMillis() + Integer.getInteger(DURATION_PROPERTY) * 1000L;
+
+        final ClientConfig timeoutConfig = new ClientConfig()
+                .property(ClientProperties.READ_TIMEOUT, TIMEOUT_MILLIS)
+                .property(JettyClientProperties.METRICS, true)
+                .register(streams);
+        final JettyConnector timeoutConnector = new JettyConnector(timeoutConfig);
+        final CountingByteBufferPool timeoutBufferPool = CountingByteBufferPool.install(timeoutConnector.getHttpClient());
+        timeoutConfig.connector(timeoutConnector);
+        final Client timeoutClient = ClientBuilder.newClient(timeoutConfig);
+        try {
+            final WebTarget target = target("soak");
+            final WebTarget timeoutTarget = timeoutClient.target(getBaseUri()).path("soak");
+            // the selector threads
+            final int baselineBusyThreads = getBusyThreads(connector);
+            final int timeoutBaselineBusyThreads = getBusyThreads(timeoutConnector);
+
+            int baselineThreads = -1;
+            int round = 0;
+            do {
+                runRound(target, timeoutTarget);
+                round++;
+                awaitQuiescence(connector, bufferPool, baselineBusyThreads);
+                awaitQuiescence(timeoutConnector, timeoutBufferPool, timeoutBaselineBusyThreads);
+                streams.awaitCollected();
+
+                final int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+                if (baselineThreads < 0) {
+                    baselineThreads = threads;
+                }
+                assertTrue("Threads grew from " + baselineThreads + " to " + threads + " after round " + round,
+                        threads <= baselineThreads + THREAD_SLACK);
+                LOGGER.info("Soak round " + round + ": " + streams.getCount() + " response streams, "
+                        + bufferPool.getAcquired() + " buffers acquired, " + threads + " threads.");
+            } while (System.currentTimeMillis() < end);
+        } finally {
+            timeoutClient.close();
+        }
+    }
+
+    private void runRound(final WebTarget target, final WebTarget timeoutTarget) throws Exception {
+        final List<Future<Response>> responses = new ArrayList<Future<Response>>();
+        final List<Future<String>> errors = new ArrayList<Future<String>>();
+        for (int i = 0; i < ITERATIONS_PER_ROUND; i++) {
+            // synchronous, read and unread entities
+            assertEquals(16, target.request().get(String.class).length());
+            assertEquals(LARGE.length, target.queryParam("size", LARGE.length).request().get(String.class).length());
+            target.queryParam("size", LARGE.length).request().get().close();
+
+            // asynchronous, completed at the end of the iteration
+            responses.add(target.queryParam("size", LARGE.length).request().async().get());
+            responses.add(target.queryParam("size", LARGE.length).request().async().get());
+
+            // cancelled
+            target.queryParam("delay", TIMEOUT_MILLIS).request().async().get().cancel(true);
+
+            // errors, as in ErrorTest
+            try {
+                target.path("error").request().post(Entity.text("POST"), String.class);
+                fail();
+            } catch (WebApplicationException expected) {
+                assertEquals("error", expected.getResponse().readEntity(String.class));
+            }
+            errors.add(target.path("error").request().async().post(Entity.text("POST"), String.class));
+
+            // timeouts, as in TimeoutTest
+            if (i % 5 == 0) {
+                try {
+                    timeoutTarget.queryParam("delay", 2 * TIMEOUT_MILLIS).request().get();
+                    fail();
+                } catch (ProcessingException expected) {
+                    assertThat(expected.getCause(), instanceOf(TimeoutException.class));
+                }
+                try {
+                    timeoutTarget.queryParam("delay", 2 * TIMEOUT_MILLIS).request().async().get().get();
+                    fail();
+                } catch (ExecutionException expected) {
+                    // the timeout
+                }
+            }
+        }
+
+        boolean read = false;
+        for (Future<Response> response : responses) {
+            final Response r = response.get();
+            // every other asynchronous entity is left unread
+            if (read) {
+                assertEquals(LARGE.length, r.readEntity(String.class).length());
+            } else {
+                r.close();
+            }
+            read = !read;
+        }
+        for (Future<String> error : errors) {
+            try {
+                error.get();
+                fail();
+            } catch (ExecutionException expected) {
+                assertThat(expected.getCause(), instanceOf(WebApplicationException.class));
+            }
+        }
+    }
+
+    private static int getBusyThreads(final JettyConnector connector) {
+        final QueuedThreadPool executor = (QueuedThreadPool) connector.getHttpClient().getExecutor();
+        return executor.getThreads() - executor.getIdleThreads();
+    }
+
+    private static void awaitQuiescence(final JettyConnector connector,
+                                        final CountingByteBufferPool bufferPool,
+                                        final int baselineBusyThreads) throws InterruptedException {
+        final ConnectorMetricsMXBean metrics = connector.getMetrics();
+        final long deadline = System.currentTimeMillis() + QUIESCENCE_MILLIS;
+        String state;
+        do {
+            final int busyThreads = getBusyThreads(connector);
+            final int connections = metrics.getActiveConnections() + metrics.getIdleConnections()
+                    + metrics.getPendingConnections();
+            if (bufferPool.getOutstanding() == 0 && metrics.getActiveRequests() == 0
+                    && metrics.getActiveConnections() == 0 && connections <= MAX_CONNECTIONS && busyThreads <= baselineBusyThreads) {
+                return;
+            }
+            state = bufferPool.getOutstanding() + " buffers, " + metrics.getActiveRequests() + " requests, "
+                    + metrics.getActiveConnections() + " active of " + connections + " connections, "
+                    + busyThreads + " busy threads";
+            Thread.sleep(50);
+        } while (System.currentTimeMillis() < deadline);
+        fail("Connector did not return to baseline: " + state + ".");
+    }
+
+    /**
+     * Buffer pool tracking the buffers acquired and not released yet. The buffers are tracked by identity, as the
+     * Jetty 9.0 request sender may release a buffer twice.
+     */
+    private static class CountingByteBufferPool implements ByteBufferPool {
+
+        private final ByteBufferPool pool;
+        private final Set<BufferKey> outstanding =
+                Collections.newSetFromMap(new ConcurrentHashMap<BufferKey, Boolean>());
+        private final AtomicInteger acquired = new AtomicInteger();
+
+        private CountingByteBufferPool(final ByteBufferPool pool) {
+            this.pool = pool;
+        }
+
+        static CountingByteBufferPool install(final HttpClient client) {
+            // no buffer has been acquired yet, the connections are created with the first requests
+            final CountingByteBufferPool pool = new CountingByteBufferPool(client.getByteBufferPool());
+            client.setByteBufferPool(pool);
+            return pool;
+        }
+
+        @Override
+        public ByteBuffer acquire(final int size, final boolean direct) {
+            final ByteBuffer buffer = pool.acquire(size, direct);
+            acquired.incrementAndGet();
+            outstanding.add(new BufferKey(buffer));
+            return buffer;
+        }
+
+        @Override
+        public void release(final ByteBuffer buffer) {
+            outstanding.remove(new BufferKey(buffer));
+            pool.release(buffer);
+        }
+
+        int getOutstanding() {
+            return outstanding.size();
+        }
+
+        int getAcquired() {
+            return acquired.get();
+        }
+    }
+
+    private static final class BufferKey {
+
+        private final ByteBuffer buffer;
+
+        BufferKey(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof BufferKey && ((BufferKey) o).buffer == buffer;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(buffer);
+        }
+    }
+
+    /**
+     * Response filter keeping weak references to the entity streams of the responses.
+     */
+    private static class StreamTracker implements ClientResponseFilter {
+
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+        private final Set<Reference<?>> live =
+                Collections.newSetFromMap(new ConcurrentHashMap<Reference<?>, Boolean>());
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void filter(final ClientRequestContext requestContext, final ClientResponseContext responseContext) {
+            if (responseContext.hasEntity()) {
+                live.add(new WeakReference<Object>(responseContext.getEntityStream(), queue));
+                count.incrementAndGet();
+            }
+        }
+
+        void awaitCollected() throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + QUIESCENCE_MILLIS;
+            while (!live.isEmpty() && System.currentTimeMillis() < deadline) {
+                System.gc();
+                for (Reference<?> reference; (reference = queue.remove(50)) != null; ) {
+                    live.remove(reference);
+                }
+            }
+            assertEquals("Response entity streams still reachable", 0, live.size());
+        }
+
+        int getCount() {
+            return count.get();
+        }
+    }
+}
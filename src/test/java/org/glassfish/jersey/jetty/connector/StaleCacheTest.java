@@ -0,0 +1,204 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.filter.LoggingFilter;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests serving stale cached responses while they are refreshed or when the origin server fails.
+ */
+public class StaleCacheTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(StaleCacheTest.class.getName());
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final AtomicReference<String> MODE = new AtomicReference<String>();
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class StaleResource {
+        @GET
+        @Path("refresh")
+        public Response refresh() throws InterruptedException {
+            Thread.sleep(200);
+            return Response.ok("v" + COUNTER.incrementAndGet())
+                    .header("Cache-Control", "max-age=1, stale-while-revalidate=30").build();
+        }
+
+        @GET
+        @Path("conditional")
+        public Response conditional(@HeaderParam("If-None-Match") String ifNoneMatch) {
+            COUNTER.incrementAndGet();
+            final Response.ResponseBuilder response = "\"v1\"".equals(ifNoneMatch)
+                    ? Response.notModified() : Response.ok("v1");
+            return response.tag("v1").header("Cache-Control", "max-age=1, stale-while-revalidate=30").build();
+        }
+
+        @GET
+        @Path("error/{cacheControl}")
+        public Response error(@PathParam("cacheControl") String cacheControl) throws InterruptedException {
+            if ("unavailable".equals(MODE.get())) {
+                return Response.status(503).build();
+            } else if ("hang".equals(MODE.get())) {
+                Thread.sleep(1500);
+            }
+            return Response.ok("v" + COUNTER.incrementAndGet()).header("Cache-Control", cacheControl).build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        ResourceConfig config = new ResourceConfig(StaleResource.class);
+        config.register(new LoggingFilter(LOGGER, true));
+        return config;
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.CACHE_MAX_SIZE, 1024 * 1024);
+        config.property(JettyClientProperties.CACHE_STALE_IF_ERROR, 60);
+        config.property(ClientProperties.READ_TIMEOUT, 1000);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @Before
+    public void reset() {
+        COUNTER.set(0);
+        MODE.set(null);
+    }
+
+    private static void awaitCounter(int value) throws InterruptedException {
+        for (int i = 0; i < 50 && COUNTER.get() < value; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(value, COUNTER.get());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        assertEquals("v1", target("test/refresh").request().get(String.class));
+        Thread.sleep(2100);
+
+        final List<Future<String>> responses = new ArrayList<Future<String>>();
+        for (int i = 0; i < 5; i++) {
+            responses.add(target("test/refresh").request().async().get(String.class));
+        }
+        assertEquals("v1", target("test/refresh").request().get(String.class));
+        for (Future<String> response : responses) {
+            assertEquals("v1", response.get());
+        }
+        // a single background refresh
+        awaitCounter(2);
+        Thread.sleep(200);
+        assertEquals(2, COUNTER.get());
+        assertEquals("v2", target("test/refresh").request().get(String.class));
+        assertEquals(6, connector.getCacheStatistics().getStaleHits());
+    }
+
+    @Test
+    public void testStaleWhileRevalidateIsConditional() throws Exception {
+        assertEquals("v1", target("test/conditional").request().get(String.class));
+        Thread.sleep(2100);
+
+        assertEquals("v1", target("test/conditional").request().async().get(String.class).get());
+        awaitCounter(2);
+        // the background refresh revalidates the stored response
+        for (int i = 0; i < 50 && connector.getCacheStatistics().getNotModified() == 0; i++) {
+            Thread.sleep(10);
+        }
+        final CacheStatistics statistics = connector.getCacheStatistics();
+        assertEquals(1, statistics.getRevalidations());
+        assertEquals(1, statistics.getNotModified());
+        assertEquals("v1", target("test/conditional").request().get(String.class));
+        assertEquals(1, connector.getCacheStatistics().getStaleHits());
+        assertEquals(2, COUNTER.get());
+    }
+
+    @Test
+    public void testStaleIfErrorResponse() throws Exception {
+        assertEquals("v1", target("test/error/max-age=1").request().get(String.class));
+        Thread.sleep(2100);
+        MODE.set("unavailable");
+        assertEquals("v1", target("test/error/max-age=1").request().get(String.class));
+        assertEquals("v1", target("test/error/max-age=1").request().async().get(String.class).get());
+        assertEquals(2, connector.getCacheStatistics().getStaleIfErrorHits());
+    }
+
+    @Test
+    public void testStaleIfErrorTimeout() throws Exception {
+        assertEquals("v1", target("test/error/max-age=1").request().get(String.class));
+        Thread.sleep(2100);
+        MODE.set("hang");
+        assertEquals("v1", target("test/error/max-age=1").request().get(String.class));
+        assertEquals(1, connector.getCacheStatistics().getStaleIfErrorHits());
+    }
+
+    @Test
+    public void testMustRevalidateIsNotServedStale() throws Exception {
+        assertEquals("v1", target("test/error/max-age=1,must-revalidate").request().get(String.class));
+        Thread.sleep(2100);
+        MODE.set("unavailable");
+        assertEquals(503, target("test/error/max-age=1,must-revalidate").request().get().getStatus());
+        assertEquals(0, connector.getCacheStatistics().getStaleIfErrorHits());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.SslConfigurator;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the lazy and background start of the connector.
+ */
+public class StartupTest extends JerseyTest {
+
+    @Path("/test")
+    public static class StartupResource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(StartupResource.class);
+    }
+
+    private JettyConnector newConnector(final Object startMode) {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.START_MODE, startMode);
+        return new JettyConnector(config);
+    }
+
+    private Client newClient(final JettyConnector connector) {
+        return ClientBuilder.newClient(new ClientConfig().connector(connector));
+    }
+
+    @Test
+    public void testLazyStart() {
+        final JettyConnector connector = newConnector(StartMode.LAZY);
+        try {
+            assertFalse(connector.getHttpClient().isStarted());
+            final Client client = newClient(connector);
+            assertEquals("GET", client.target(getBaseUri()).path("test").request().get(String.class));
+            assertTrue(connector.getHttpClient().isStarted());
+            assertEquals("GET", client.target(getBaseUri()).path("test").request().get(String.class));
+        } finally {
+            connector.close();
+        }
+        assertTrue(connector.getHttpClient().isStopped());
+    }
+
+    @Test
+    public void testBackgroundStart() throws Exception {
+        final JettyConnector connector = newConnector("background");
+        try {
+            final Client client = newClient(connector);
+            final List<Future<Response>> responses = new ArrayList<Future<Response>>();
+            for (int i = 0; i < 10; i++) {
+                responses.add(client.target(getBaseUri()).path("test").request().async().get());
+            }
+            for (Future<Response> response : responses) {
+                assertEquals("GET", response.get().readEntity(String.class));
+            }
+            assertTrue(connector.getHttpClient().isStarted());
+        } finally {
+            connector.close();
+        }
+        assertTrue(connector.getHttpClient().isStopped());
+    }
+
+    @Test
+    public void testCloseBeforeStart() {
+        final JettyConnector connector = newConnector(StartMode.LAZY);
+        connector.close();
+        try {
+            newClient(connector).target(getBaseUri()).path("test").request().get(String.class);
+            fail();
+        } catch (ProcessingException expected) {
+            // closed
+        }
+        assertFalse(connector.getHttpClient().isStarted());
+    }
+
+    @Test
+    public void testLazyStartFailure() {
+        final ClientConfig config = new ClientConfig();
+        config.property(JettyClientProperties.START_MODE, StartMode.LAZY);
+        config.property(JettyClientProperties.SSL_CONFIG,
+                SslConfigurator.newInstance().trustStoreFile("missing-truststore").trustStorePassword("secret"));
+        final JettyConnector connector = new JettyConnector(config);
+        try {
+            // the SSL context is created by the start
+            newClient(connector).target(getBaseUri()).path("test").request().get(String.class);
+            fail();
+        } catch (ProcessingException expected) {
+            // failed to start
+        } finally {
+            connector.close();
+        }
+    }
+
+    @Test
+    public void testWrongStartMode() {
+        try {
+            newConnector("later");
+            fail();
+        } catch (ProcessingException expected) {
+            // not a start mode
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Application;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the self-tuning thread pool of the connector.
+ */
+public class ThreadPoolTuningTest extends JerseyTest {
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class TuningResource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TuningResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.THREADPOOL_AUTO_TUNING, true);
+        config.property(JettyClientProperties.THREADPOOL_MIN_THREADS, 4);
+        config.property(JettyClientProperties.THREADPOOL_MAX_THREADS, 64);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testConnector() throws Exception {
+        final List<Future<String>> responses = new ArrayList<Future<String>>();
+        for (int i = 0; i < 50; i++) {
+            responses.add(target("test").request().async().get(String.class));
+        }
+        for (Future<String> response : responses) {
+            assertEquals("GET", response.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(connector.getHttpClient().getExecutor() instanceof TunedThreadPool);
+        final ThreadPoolStatistics statistics = connector.getThreadPoolStatistics();
+        assertNotNull(statistics);
+        assertTrue(statistics.getMinThreads() >= 4);
+        assertTrue(statistics.getMaxThreads() <= 64);
+        assertTrue(statistics.getQueueLatencies().getCount() > 0);
+
+        try {
+            connector.reconfigure(Collections.singletonMap(ClientProperties.ASYNC_THREADPOOL_SIZE, 8));
+            fail();
+        } catch (ProcessingException expected) {
+            // the size is tuned
+        }
+    }
+
+    @Test
+    public void testGrowAndShrink() throws Exception {
+        final TunedThreadPool pool = new TunedThreadPool(2, 16, 5);
+        pool.start();
+        try {
+            assertEquals(4, pool.getMaxThreads());
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            Thread.sleep(100);
+
+            // every thread is busy with jobs queued
+            pool.tune();
+            ThreadPoolStatistics statistics = pool.getStatistics();
+            assertEquals(6, statistics.getMaxThreads());
+            assertEquals(1, statistics.getIncreases());
+            assertTrue(statistics.getLastDecision(), statistics.getLastDecision().startsWith("max threads 4 -> 6"));
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 20 && pool.getMaxThreads() > 2; i++) {
+                pool.tune();
+            }
+            statistics = pool.getStatistics();
+            assertEquals(2, statistics.getMaxThreads());
+            assertEquals(2, statistics.getMinThreads());
+            assertTrue(statistics.getDecreases() > 0);
+            assertTrue(statistics.getMaxThreads() <= 16);
+            assertEquals(20, statistics.getQueueLatencies().getCount());
+            assertFalse("none".equals(statistics.getLastDecision()));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testUpperBound() throws Exception {
+        final TunedThreadPool pool = new TunedThreadPool(1, 3, 0);
+        pool.start();
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 10; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            Thread.sleep(100);
+            for (int i = 0; i < 5; i++) {
+                pool.tune();
+            }
+            assertEquals(3, pool.getMaxThreads());
+            release.countDown();
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testInvalidBounds() {
+        final ClientConfig config = new ClientConfig()
+                .property(JettyClientProperties.THREADPOOL_AUTO_TUNING, true)
+                .property(JettyClientProperties.THREADPOOL_MIN_THREADS, 10)
+                .property(JettyClientProperties.THREADPOOL_MAX_THREADS, 5);
+        try {
+            new JettyConnector(config).close();
+            fail();
+        } catch (ProcessingException expected) {
+            // maximum below the minimum
+        }
+        final JettyConnector untuned = new JettyConnector(new ClientConfig());
+        assertNull(untuned.getThreadPoolStatistics());
+        untuned.close();
+    }
+}
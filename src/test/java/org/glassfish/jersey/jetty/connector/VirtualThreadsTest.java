@@ -0,0 +1,172 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the virtual thread mode, or its fallback to the thread pool on JVMs without virtual threads.
+ */
+public class VirtualThreadsTest extends JerseyTest {
+
+    private JettyConnector connector;
+
+    @Path("/test")
+    public static class VirtualThreadsResource {
+        @GET
+        public String get() throws InterruptedException {
+            Thread.sleep(50);
+            return "GET";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(VirtualThreadsResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.property(JettyClientProperties.VIRTUAL_THREADS, true);
+        config.property(ClientProperties.ASYNC_THREADPOOL_SIZE, 8);
+        config.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION, 100);
+        connector = new JettyConnector(config);
+        config.connector(connector);
+    }
+
+    @After
+    public void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    public void testAsyncCallbackThread() throws Exception {
+        // the connector is called directly, Jersey dispatches the invocation callbacks on its own executor
+        final AtomicReference<ClientRequest> request = new AtomicReference<ClientRequest>();
+        target("test").register(new ClientRequestFilter() {
+            @Override
+            public void filter(ClientRequestContext requestContext) {
+                request.set((ClientRequest) requestContext);
+                requestContext.abortWith(Response.noContent().build());
+            }
+        }).request().get().close();
+
+        final AtomicReference<Thread> callbackThread = new AtomicReference<Thread>();
+        final CountDownLatch called = new CountDownLatch(1);
+        connector.apply(new ClientRequest(request.get()), new AsyncConnectorCallback() {
+            @Override
+            public void response(ClientResponse response) {
+                callbackThread.set(Thread.currentThread());
+                response.close();
+                called.countDown();
+            }
+
+            @Override
+            public void failure(Throwable failure) {
+            }
+        });
+        assertTrue(called.await(5, TimeUnit.SECONDS));
+        final Thread thread = callbackThread.get();
+        if (VirtualThreads.isAvailable()) {
+            assertTrue(thread.toString(), VirtualThreads.isVirtual(thread));
+            assertTrue(thread.getName(), thread.getName().startsWith("HttpClient@"));
+        } else {
+            // falls back to the thread pool
+            assertTrue(connector.getHttpClient().getExecutor() instanceof QueuedThreadPool);
+            assertEquals(8, ((QueuedThreadPool) connector.getHttpClient().getExecutor()).getMaxThreads());
+        }
+    }
+
+    @Test
+    public void testConcurrentBlockingCalls() throws Exception {
+        // more blocking calls than the thread pool size, from virtual callers when available
+        final ExecutorService callers = VirtualThreads.isAvailable()
+                ? Executors.newCachedThreadPool(VirtualThreads.newThreadFactory("caller-"))
+                : Executors.newFixedThreadPool(100);
+        try {
+            final List<Future<String>> responses = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; i++) {
+                responses.add(callers.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return target("test").request().get(String.class);
+                    }
+                }));
+                responses.add(target("test").request().async().get(String.class));
+            }
+            for (Future<String> response : responses) {
+                assertEquals("GET", response.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        final Response response = target("test").request().get();
+        assertEquals(200, response.getStatus());
+        response.close();
+    }
+}
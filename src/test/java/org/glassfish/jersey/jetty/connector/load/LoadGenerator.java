@@ -0,0 +1,290 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector.load;
+
+import org.eclipse.jetty.server.Server;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.jetty.connector.JettyClientProperties;
+import org.glassfish.jersey.jetty.connector.JettyConnector;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator sending requests at a constant rate through a {@link JettyConnector}.
+ * <p/>
+ * Requests are sent asynchronously on a fixed schedule, whether the previous responses were received or not,
+ * so that the latencies include the queueing delay of a saturated client or server. See {@link LoadResult}
+ * for the corrected latencies. Sweeping increasing rates finds the saturation knee, the highest rate sustained
+ * within the latency objective.
+ * <p/>
+ * Usage, starting a {@link LoadServer} unless {@code --uri} is given:
+ * <pre>
+ * LoadGenerator [--uri http://localhost:8080/load?delay=1] [--rate 1000] [--duration 10] [--warmup 5]
+ *               [--connections 64] [--sweep 500:5000:500] [--slo 50]
+ * </pre>
+ * Durations are in seconds, the latency objective {@code slo} of the corrected p99 in milliseconds.
+ */
+public class LoadGenerator {
+
+    private final WebTarget target;
+    private final long drainTimeoutNanos;
+
+    /**
+     * Create a load generator.
+     *
+     * @param target       target of the requests, its client should use a {@link JettyConnector}.
+     * @param drainTimeout time to wait for the outstanding responses at the end of a run, in seconds.
+     */
+    public LoadGenerator(final WebTarget target, final long drainTimeout) {
+        this.target = target;
+        this.drainTimeoutNanos = TimeUnit.SECONDS.toNanos(drainTimeout);
+    }
+
+    /**
+     * Send requests at a constant rate.
+     *
+     * @param rate     requests per second.
+     * @param duration duration of the run.
+     * @param unit     duration unit.
+     * @return run result.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public LoadResult run(final double rate, final long duration, final TimeUnit unit) throws InterruptedException {
+        final int total = (int) Math.max(1, Math.round(rate * unit.toNanos(duration) / 1e9));
+        final double interval = 1e9 / rate;
+        final long[] corrected = new long[total];
+        final long[] uncorrected = new long[total];
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicLong lastResponse = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(total);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            final long intended = start + (long) (i * interval);
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            final long sent = System.nanoTime();
+            try {
+                target.request().async().get(new InvocationCallback<Response>() {
+                    @Override
+                    public void completed(final Response response) {
+                        boolean failed = response.getStatus() >= 400;
+                        try {
+                            response.readEntity(byte[].class);
+                        } catch (RuntimeException e) {
+                            failed = true;
+                        } finally {
+                            // a response whose entity failed to be read still holds its connection
+                            response.close();
+                        }
+                        // at most one error per request
+                        if (failed) {
+                            errors.incrementAndGet();
+                        }
+                        record(System.nanoTime());
+                    }
+
+                    @Override
+                    public void failed(final Throwable throwable) {
+                        errors.incrementAndGet();
+                        record(System.nanoTime());
+                    }
+
+                    private void record(final long end) {
+                        // by index, each slot is written once and read after the latch
+                        corrected[index] = end - intended;
+                        uncorrected[index] = end - sent;
+                        completed.incrementAndGet();
+                        long last = lastResponse.get();
+                        while (end > last && !lastResponse.compareAndSet(last, end)) {
+                            last = lastResponse.get();
+                        }
+                        done.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                corrected[index] = System.nanoTime() - intended;
+                uncorrected[index] = System.nanoTime() - sent;
+                completed.incrementAndGet();
+                done.countDown();
+            }
+        }
+        done.await(drainTimeoutNanos, TimeUnit.NANOSECONDS);
+
+        // the requests still outstanding are reported as errors, and left out of the latencies
+        final int count = completed.get();
+        final long[] correctedLatencies = new long[count];
+        final long[] uncorrectedLatencies = new long[count];
+        int n = 0;
+        for (int i = 0; i < total && n < count; i++) {
+            if (corrected[i] != 0) {
+                correctedLatencies[n] = corrected[i];
+                uncorrectedLatencies[n] = uncorrected[i];
+                n++;
+            }
+        }
+        final long elapsed = Math.max(lastResponse.get(), start + (long) ((total - 1) * interval)) - start;
+        return new LoadResult(rate, total, count, errors.get(), elapsed,
+                trim(correctedLatencies, n), trim(uncorrectedLatencies, n));
+    }
+
+    private static long[] trim(final long[] latencies, final int length) {
+        if (latencies.length == length) {
+            return latencies;
+        }
+        final long[] trimmed = new long[length];
+        System.arraycopy(latencies, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * Run at increasing rates.
+     *
+     * @param from     first rate, in requests per second.
+     * @param to       last rate, in requests per second.
+     * @param step     rate increment.
+     * @param duration duration of each run.
+     * @param unit     duration unit.
+     * @return run results, by increasing rate.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public List<LoadResult> sweep(final double from, final double to, final double step, final long duration,
+                                  final TimeUnit unit) throws InterruptedException {
+        final List<LoadResult> results = new ArrayList<LoadResult>();
+        for (double rate = from; rate <= to; rate += step) {
+            final LoadResult result = run(rate, duration, unit);
+            System.out.println(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Find the saturation knee of a sweep, i.e. the highest rate sustained with at most 1 % of errors, a throughput
+     * within 5 % of the rate and a corrected p99 latency within the objective.
+     *
+     * @param results sweep results, by increasing rate.
+     * @param slo     latency objective of the corrected p99.
+     * @param unit    latency objective unit.
+     * @return result at the knee, {@code null} if even the first rate is not sustained.
+     */
+    public static LoadResult findKnee(final List<LoadResult> results, final long slo, final TimeUnit unit) {
+        LoadResult knee = null;
+        for (LoadResult result : results) {
+            final boolean sustained = result.getErrorRate() <= 0.01
+                    && result.getThroughput() >= 0.95 * result.getRate()
+                    && result.getPercentile(99, true, unit) <= slo;
+            if (!sustained) {
+                break;
+            }
+            knee = result;
+        }
+        return knee;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        final double rate = Double.parseDouble(option(options, "rate", "1000"));
+        final long duration = Long.parseLong(option(options, "duration", "10"));
+        final long warmup = Long.parseLong(option(options, "warmup", "5"));
+        final long slo = Long.parseLong(option(options, "slo", "50"));
+
+        final Server server = options.containsKey("uri") ? null : LoadServer.start(LoadServer.BASE_URI);
+        final URI uri = options.containsKey("uri")
+                ? URI.create(options.get("uri")) : LoadServer.BASE_URI.resolve(LoadServer.PATH);
+        final ClientConfig cc = new ClientConfig();
+        cc.property(JettyClientProperties.MAX_CONNECTIONS_PER_DESTINATION,
+                Integer.parseInt(option(options, "connections", "64")));
+        final JettyConnector connector = new JettyConnector(cc);
+        cc.connector(connector);
+        final Client client = ClientBuilder.newClient(cc);
+        try {
+            final LoadGenerator generator = new LoadGenerator(client.target(uri), 30);
+            final String sweep = options.get("sweep");
+            final double firstRate = sweep != null ? Double.parseDouble(sweep.split(":")[0]) : rate;
+            if (warmup > 0) {
+                generator.run(firstRate, warmup, TimeUnit.SECONDS);
+            }
+            if (sweep == null) {
+                System.out.println(generator.run(rate, duration, TimeUnit.SECONDS));
+            } else {
+                final String[] range = sweep.split(":");
+                final List<LoadResult> results = generator.sweep(Double.parseDouble(range[0]),
+                        Double.parseDouble(range[1]), Double.parseDouble(range[2]), duration, TimeUnit.SECONDS);
+                final LoadResult knee = findKnee(results, slo, TimeUnit.MILLISECONDS);
+                System.out.println(knee != null
+                        ? String.format("Saturation knee at %.0f/s (p99 within %d ms)", knee.getRate(), slo)
+                        : String.format("Rate %.0f/s not sustained within %d ms", firstRate, slo));
+            }
+        } finally {
+            client.close();
+            connector.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private static String option(final Map<String, String> options, final String name, final String defaultValue) {
+        final String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector.load;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.jetty.connector.JettyConnector;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the open-loop load generator.
+ */
+public class LoadGeneratorTest extends JerseyTest {
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(LoadServer.LoadResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig config) {
+        config.connector(new JettyConnector(config));
+    }
+
+    @Test
+    public void testConstantRate() throws InterruptedException {
+        final LoadGenerator generator =
+                new LoadGenerator(target(LoadServer.PATH).queryParam("delay", 5).queryParam("size", 256), 10);
+        final LoadResult result = generator.run(100, 1, TimeUnit.SECONDS);
+        assertEquals(100, result.getScheduled());
+        assertEquals(100, result.getCompleted());
+        assertEquals(0, result.getErrorRate(), 0);
+        assertTrue(result.toString(), result.getThroughput() > 50);
+        double previous = 0;
+        for (double percentile : new double[] {50, 90, 99, 99.9, 99.99, 100}) {
+            final double latency = result.getPercentile(percentile, true, TimeUnit.MILLISECONDS);
+            assertTrue(result.toString(), latency >= previous);
+            previous = latency;
+        }
+        assertTrue(result.toString(), result.getPercentile(50, true, TimeUnit.MILLISECONDS) >= 5);
+        assertTrue(result.toString(), result.getPercentile(50, true, TimeUnit.NANOSECONDS)
+                >= result.getPercentile(50, false, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testKnee() {
+        final long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        final long second = TimeUnit.SECONDS.toNanos(1);
+        final LoadResult low = new LoadResult(100, 100, 100, 0, second, new long[] {ms}, new long[] {ms});
+        final LoadResult high = new LoadResult(200, 200, 200, 0, second, new long[] {ms}, new long[] {ms});
+        // a latency above the objective
+        final LoadResult slow = new LoadResult(300, 300, 300, 0, second, new long[] {100 * ms}, new long[] {ms});
+        // a throughput behind the rate
+        final LoadResult behind = new LoadResult(300, 300, 200, 0, second, new long[] {ms}, new long[] {ms});
+        assertSame(high, LoadGenerator.findKnee(Arrays.asList(low, high, slow), 10, TimeUnit.MILLISECONDS));
+        assertSame(high, LoadGenerator.findKnee(Arrays.asList(low, high, behind), 10, TimeUnit.MILLISECONDS));
+        assertNull(LoadGenerator.findKnee(Arrays.asList(slow), 10, TimeUnit.MILLISECONDS));
+    }
+}
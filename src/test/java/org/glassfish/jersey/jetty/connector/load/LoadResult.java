@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link LoadGenerator} run at a constant request rate.
+ * <p/>
+ * Corrected latencies are measured from the time a request was scheduled to be sent, uncorrected latencies
+ * from the time it was actually sent. The difference is the queueing delay a closed-loop benchmark omits when
+ * the client falls behind the schedule, i.e. the coordinated omission.
+ */
+public class LoadResult {
+
+    private final double rate;
+    private final int scheduled;
+    private final int completed;
+    private final int errors;
+    private final long elapsedNanos;
+    private final long[] corrected;
+    private final long[] uncorrected;
+
+    LoadResult(final double rate, final int scheduled, final int completed, final int errors, final long elapsedNanos,
+               final long[] corrected, final long[] uncorrected) {
+        this.rate = rate;
+        this.scheduled = scheduled;
+        this.completed = completed;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.corrected = corrected;
+        this.uncorrected = uncorrected;
+        Arrays.sort(this.corrected);
+        Arrays.sort(this.uncorrected);
+    }
+
+    /**
+     * Get the target request rate.
+     *
+     * @return requests per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Get the number of requests scheduled during the run.
+     *
+     * @return scheduled requests.
+     */
+    public int getScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * Get the number of requests completed with a response, successful or not.
+     *
+     * @return completed requests.
+     */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Get the achieved throughput, i.e. the responses received per second.
+     *
+     * @return requests per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos > 0 ? completed * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Get the ratio of requests which failed, received an error status or did not complete in time.
+     *
+     * @return error rate, from {@code 0} to {@code 1}.
+     */
+    public double getErrorRate() {
+        return scheduled > 0 ? (double) (errors + scheduled - completed) / scheduled : 0;
+    }
+
+    /**
+     * Get a percentile of the latencies.
+     *
+     * @param percentile percentile, e.g. {@code 99.99}.
+     * @param corrected  {@code true} for the latencies corrected for coordinated omission.
+     * @param unit       time unit.
+     * @return latency percentile, {@code 0} if no request completed.
+     */
+    public double getPercentile(final double percentile, final boolean corrected, final TimeUnit unit) {
+        final long[] latencies = corrected ? this.corrected : this.uncorrected;
+        if (latencies.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+        final long nanos = latencies[Math.min(latencies.length, Math.max(1, rank)) - 1];
+        return (double) nanos / TimeUnit.NANOSECONDS.convert(1, unit);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(String.format(
+                "rate %.0f/s: throughput %.1f/s, errors %.2f %%", rate, getThroughput(), getErrorRate() * 100));
+        for (boolean correct : new boolean[] {true, false}) {
+            sb.append(correct ? "\n  corrected   (ms)" : "\n  uncorrected (ms)");
+            for (double percentile : new double[] {50, 90, 99, 99.9, 99.99, 100}) {
+                sb.append(String.format(" p%s=%.2f", percentile == (long) percentile ? String.valueOf((long) percentile)
+                        : String.valueOf(percentile), getPercentile(percentile, correct, TimeUnit.MILLISECONDS)));
+            }
+        }
+        return sb.toString();
+    }
+}
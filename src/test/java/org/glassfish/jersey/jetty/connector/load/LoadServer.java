@@ -0,0 +1,99 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.jetty.connector.load;
+
+import org.eclipse.jetty.server.Server;
+import org.glassfish.jersey.jetty.JettyHttpContainerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local server driven by the {@link LoadGenerator}, with a configurable service time and response size.
+ */
+public class LoadServer {
+
+    public static final String PATH = "load";
+    public static final URI BASE_URI = URI.create("http://localhost:8080/");
+    private static final Logger LOGGER = Logger.getLogger(LoadServer.class.getName());
+
+    @Path(PATH)
+    public static class LoadResource {
+        @GET
+        public byte[] get(@QueryParam("delay") @DefaultValue("0") final long delay,
+                          @QueryParam("size") @DefaultValue("64") final int size) throws InterruptedException {
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            final byte[] entity = new byte[Math.max(0, size)];
+            Arrays.fill(entity, (byte) 'l');
+            return entity;
+        }
+    }
+
+    /**
+     * Start the server.
+     *
+     * @param baseUri base URI of the server.
+     * @return started server.
+     */
+    public static Server start(final URI baseUri) {
+        return JettyHttpContainerFactory.createServer(baseUri, new ResourceConfig(LoadResource.class));
+    }
+
+    public static void main(String[] args) {
+        try {
+            final Server server = start(BASE_URI);
+            System.out.println(String.format("Load server started.\nTry out %s%s?delay=10&size=1024\nHit enter to stop it...",
+                    BASE_URI, PATH));
+            System.in.read();
+            server.stop();
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+}